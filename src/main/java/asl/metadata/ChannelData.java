@@ -1,5 +1,6 @@
 package asl.metadata;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -8,9 +9,10 @@ import java.util.Hashtable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ChannelData {
+public class ChannelData implements Serializable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.metadata.ChannelData.class);
+	private static final long serialVersionUID = 1L;
 
 	private static final int CHANNEL_EPOCH_INFO_BLOCKETTE_NUMBER = 52;
 	private static final int CHANNEL_COMMENT_BLOCKETTE_NUMBER = 59;
@@ -18,6 +18,7 @@
  */
 package asl.metadata;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -26,9 +27,10 @@ import java.util.Hashtable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class EpochData {
+public class EpochData implements Serializable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.metadata.EpochData.class);
+	private static final long serialVersionUID = 1L;
 
 	private Blockette format = null;
 	private Blockette info = null;
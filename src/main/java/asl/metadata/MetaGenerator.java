@@ -34,9 +34,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
@@ -59,6 +65,11 @@ public class MetaGenerator {
    */
   protected Hashtable<StationKey, SeedVolume> volumes = null;
 
+  /**
+   * Parsed volumes stored on disk, null if volumes are only held in memory.
+   */
+  private MetadataStore store = null;
+
   /**
    * Private class meant to enable mock test class to inherit from this without running other
    * function
@@ -67,6 +78,26 @@ public class MetaGenerator {
     volumes = new Hashtable<>();
   }
 
+  /**
+   * Number of processed channel epochs kept by {@link #getStationMeta(Station, LocalDateTime)}.
+   */
+  private static final int MAX_CHANNEL_EPOCHS = 8192;
+
+  /**
+   * Channel metadata already processed for an epoch, keyed by station, channel, epoch start and
+   * whether the epoch ends on the requested day. Every day of an epoch has the same response, so
+   * only the timestamp differs between days. Guarded by itself.
+   */
+  private final Map<String, ChannelMeta> channelEpochs =
+      new LinkedHashMap<String, ChannelMeta>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ChannelMeta> eldest) {
+          return size() > MAX_CHANNEL_EPOCHS;
+        }
+      };
+
   /**
    * Look in datalessDir for all files of form XX.dataless where XX = network {II, IU, NE, etc.}
    *
@@ -74,6 +105,20 @@ public class MetaGenerator {
    * @param networkSubset the network subset to parse
    */
   public MetaGenerator(String datalessDir, String datalessFilePattern, List<String> networkSubset) {
+    this(datalessDir, datalessFilePattern, networkSubset, null);
+  }
+
+  /**
+   * Look in datalessDir for all files of form XX.dataless where XX = network {II, IU, NE, etc.}
+   *
+   * @param datalessDir path to dataless seed files, read from config.xml
+   * @param networkSubset the network subset to parse
+   * @param metadataStoreDir directory parsed volumes are stored in, so only new or changed dataless
+   * files are parsed by rdseed. Stored volumes are read when their station is first requested. Can
+   * be null, in which case every file is parsed and held in memory.
+   */
+  public MetaGenerator(String datalessDir, String datalessFilePattern, List<String> networkSubset,
+      String metadataStoreDir) {
     volumes = new Hashtable<>();
 
     File dir = new File(datalessDir);
@@ -85,71 +130,142 @@ public class MetaGenerator {
       System.exit(0);
     }
 
-    // this will try to create a list of all paths that define dataless based on network data
-
-    for (String networkName : networkSubset) {
-      List<String> files = getDatalessFilesForNetwork(dir, datalessFilePattern, networkName);
-
-      if (files.size() == 0) {
-        continue;
+    if (metadataStoreDir != null) {
+      try {
+        store = new MetadataStore(new File(metadataStoreDir));
+      } catch (IOException e) {
+        logger.error("Unable to use metadata store, parsing all dataless files:", e);
       }
+    }
 
-      // we expect dataless structures to be associated over entire network
-      // so we'll read in the strings from
-      for (String datalessFile : files) {
+    // this will try to create a list of all paths that define dataless based on network data
+    // Each dataless file is loaded by its own task, most of which is spent waiting on rdseed.
+    int loaderCount = Runtime.getRuntime().availableProcessors();
+    ExecutorService loaders = Executors.newFixedThreadPool(loaderCount);
+    List<Future<Boolean>> loaderTasks = new ArrayList<>();
+    long startTime = System.currentTimeMillis();
 
-        ArrayList<String> strings = new ArrayList<>(); // list of lines from processed metadata file
+    try {
+      for (String networkName : networkSubset) {
+        List<String> files = getDatalessFilesForNetwork(dir, datalessFilePattern, networkName);
 
-        logger.info("== MetaGenerator: rdseed -f [datalessFile={}]", datalessFile);
-        ProcessBuilder pb = new ProcessBuilder("rdseed", "-s", "-f", datalessFile);
+        if (files.size() == 0) {
+          continue;
+        }
 
-        String stationName = getStationNameFromPath(datalessFile, networkName, datalessFilePattern);
+        // we expect dataless structures to be associated over entire network
+        // so we'll read in the strings from
+        for (String datalessFile : files) {
+          loaderTasks.add(loaders.submit(
+              () -> loadDatalessFile(datalessFile, networkName, datalessFilePattern)));
+        } // end loop over the per-station dataless files for a given network
 
-        try {
-          Process process = pb.start();
-          BufferedReader reader = new BufferedReader(
-              new InputStreamReader(process.getInputStream()));
-          String line = null;
-          while ((line = reader.readLine()) != null) {
-            strings.add(line);
-          }
-          process.waitFor();
-        }
-        // Need to catch both IOException and InterruptedException
-        catch (IOException e) {
-          // System.out.println("Error: IOException Description: " +
-          // e.getMessage());
-          logger.error("IOException:", e);
-        } catch (InterruptedException e) {
-          // System.out.println("Error: InterruptedException Description: "
-          // + e.getMessage());
-          logger.error("InterruptedException:", e);
-        }
+      } // end loop over network name codes
 
-        SeedVolume volume = null;
+      for (Future<Boolean> loaderTask : loaderTasks) {
+        boolean loaded = false;
         try {
-          volume = buildVolumesFromStringData(strings, networkName, stationName);
-        } catch (Exception e) {
-          logger.error("== processing dataless volume for network=[{}]", networkName);
+          loaded = loaderTask.get();
+        } catch (ExecutionException e) {
+          logger.error("ExecutionException:", e);
         }
-
-        if (volume == null) {
-          logger.error("== processing dataless volume==null! for network=[{}]", networkName);
+        if (!loaded) {
           System.exit(0);
-        } else {
-          addVolume(volume);
         }
+      }
+    } catch (InterruptedException e) {
+      logger.error("InterruptedException:", e);
+      loaders.shutdownNow();
+      System.exit(0);
+    } finally {
+      loaders.shutdown();
+    }
+    logger.info("== MetaGenerator: loaded [{}] dataless files in [{}] ms using [{}] threads",
+        loaderTasks.size(), System.currentTimeMillis() - startTime, loaderCount);
 
-      } // end loop over the per-station dataless files for a given network
-
-    } // end loop over network name codes
-
-    if (volumes.size() == 0) {
+    if (getStationKeys().size() == 0) {
       logger.error("No dataless files found");
       System.exit(0);
     }
   }
 
+  /**
+   * Loads a dataless file, either from the metadata store or by parsing it with rdseed.
+   *
+   * @return false if the file could not be parsed
+   */
+  private boolean loadDatalessFile(String datalessFile, String networkName,
+      String datalessFilePattern) {
+    long startTime = System.currentTimeMillis();
+    if (store != null && store.addStored(new File(datalessFile))) {
+      logger.debug("== MetaGenerator: stored volume [datalessFile={}] in [{}] ms", datalessFile,
+          System.currentTimeMillis() - startTime);
+      return true;
+    }
+
+    String stationName = getStationNameFromPath(datalessFile, networkName, datalessFilePattern);
+    SeedVolume volume = readDatalessFile(datalessFile, networkName, stationName);
+
+    if (volume == null) {
+      logger.error("== processing dataless volume==null! for network=[{}]", networkName);
+      return false;
+    } else if (store != null) {
+      try {
+        store.store(new File(datalessFile), volume);
+      } catch (IOException e) {
+        logger.error("Unable to store volume for [{}]:", datalessFile, e);
+        addVolume(volume);
+      }
+    } else {
+      addVolume(volume);
+    }
+    logger.info("== MetaGenerator: parsed [datalessFile={}] in [{}] ms", datalessFile,
+        System.currentTimeMillis() - startTime);
+    return true;
+  }
+
+  /**
+   * Parses a dataless file using rdseed.
+   *
+   * @return the volume, null if it could not be parsed
+   */
+  private SeedVolume readDatalessFile(String datalessFile, String networkName,
+      String stationName) {
+    ArrayList<String> strings = new ArrayList<>(); // list of lines from processed metadata file
+
+    logger.info("== MetaGenerator: rdseed -f [datalessFile={}]", datalessFile);
+    ProcessBuilder pb = new ProcessBuilder("rdseed", "-s", "-f", datalessFile);
+
+    try {
+      Process process = pb.start();
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(process.getInputStream()));
+      String line = null;
+      while ((line = reader.readLine()) != null) {
+        strings.add(line);
+      }
+      process.waitFor();
+    }
+    // Need to catch both IOException and InterruptedException
+    catch (IOException e) {
+      // System.out.println("Error: IOException Description: " +
+      // e.getMessage());
+      logger.error("IOException:", e);
+    } catch (InterruptedException e) {
+      // System.out.println("Error: InterruptedException Description: "
+      // + e.getMessage());
+      logger.error("InterruptedException:", e);
+    }
+
+    SeedVolume volume = null;
+    try {
+      volume = buildVolumesFromStringData(strings, networkName, stationName);
+    } catch (Exception e) {
+      logger.error("== processing dataless volume for network=[{}]", networkName);
+    }
+    return volume;
+  }
+
   static String getStationNameFromPath(String filePath, String networkName,
       String datalessFilePattern) {
     String filename = filePath.substring(
@@ -198,11 +314,10 @@ public class MetaGenerator {
 
   protected void addVolume(SeedVolume volume) {
     StationKey stationKey = volume.getStationKey();
-    if (volumes.containsKey(stationKey)) {
+    // Volumes are added concurrently while loading.
+    if (volumes.putIfAbsent(stationKey, volume) != null) {
       logger.error("== Attempting to load volume stationKey=[{}] --> Already loaded!",
           stationKey);
-    } else {
-      volumes.put(stationKey, volume);
     }
   }
 
@@ -219,9 +334,38 @@ public class MetaGenerator {
       List<Station> stations = volume.getStationList();
       allStations.addAll(stations);
     }
+    if (store != null) {
+      for (StationKey key : store.getStationKeys()) {
+        if (!volumes.containsKey(key)) {
+          allStations.addAll(store.getStationList(key));
+        }
+      }
+    }
     return allStations;
   }
 
+  /**
+   * Return the keys of all volumes, whether held in memory or stored.
+   */
+  private Set<StationKey> getStationKeys() {
+    Set<StationKey> keys = new HashSet<>(volumes.keySet());
+    if (store != null) {
+      keys.addAll(store.getStationKeys());
+    }
+    return keys;
+  }
+
+  /**
+   * Return the volume for a station key, reading it from the store if it is not held in memory.
+   */
+  private SeedVolume getVolume(StationKey stationKey) {
+    SeedVolume volume = volumes.get(stationKey);
+    if (volume == null && store != null) {
+      volume = store.getVolume(stationKey);
+    }
+    return volume;
+  }
+
   /**
    * Return a list of all stations matching parameters.
    *
@@ -237,11 +381,12 @@ public class MetaGenerator {
     }
 
     List<Station> allStations = new ArrayList<>();
+    Set<StationKey> stationKeys = getStationKeys();
 
     if (networks != null && stations != null) {
       for (String network : networks) {
         for (String station : stations) {
-          if (volumes.containsKey(new StationKey(network, station))) {
+          if (stationKeys.contains(new StationKey(network, station))) {
             allStations.add(new Station(network, station));
           }
         }
@@ -250,7 +395,7 @@ public class MetaGenerator {
       // networks is not null so stations must be null based on previous conditional
       // we'll check this by iterating through keys and finding if they match the networks in list
       Set<String> networkSet = new HashSet<>(Arrays.asList(networks)); // speeds up lookup
-      for (StationKey stationKey : volumes.keySet()) {
+      for (StationKey stationKey : stationKeys) {
         if (networkSet.contains(stationKey.getNetwork())) {
           allStations.add(new Station(stationKey.getNetwork(), stationKey.getName()));
         }
@@ -258,7 +403,7 @@ public class MetaGenerator {
     } else if (stations != null) {
       // networks must be null based on previous conditional
       Set<String> stationSet = new HashSet<>(Arrays.asList(stations));
-      for (StationKey stationKey : volumes.keySet()) {
+      for (StationKey stationKey : stationKeys) {
         if (stationSet.contains(stationKey.getName())) {
           allStations.add(new Station(stationKey.getNetwork(), stationKey.getName()));
         }
@@ -279,7 +424,7 @@ public class MetaGenerator {
    * @return the station data - this can be null if seed files are malformatted
    */
   private StationData getStationData(Station station) {
-    SeedVolume volume = volumes.get(new StationKey(station));
+    SeedVolume volume = getVolume(new StationKey(station));
     if (volume == null) {
       logger.error(
           "== getStationData() - Volume==null for Station=[{}]  Check the volume label in Blockette 10 Field 9. Must be formatted like IU* to work.\n",
@@ -305,7 +450,8 @@ public class MetaGenerator {
    * Constains all Blockettes for a particular channel, for the REQUESTED epoch only. ChannelMeta -
    * Our (minimal) internal format of the channel response. Contains the first 3 (0, 1, 2) response
    * stages for the REQUESTED epoch only. ChannelMeta.setDayBreak() = true if we detect a change in
-   * metadata on the requested timestamp day.
+   * metadata on the requested timestamp day. Channel epochs processed for an earlier request are
+   * reused, so only the first day of an epoch processes its response stages.
    */
 
   public StationMeta getStationMeta(Station station, LocalDateTime timestamp) {
@@ -347,9 +493,6 @@ public class MetaGenerator {
     for (ChannelKey key : keys) {
       // System.out.println("==Channel:"+key );
       ChannelData channel = channels.get(key);
-      // ChannelMeta channelMeta = new ChannelMeta(key,timestamp);
-      ChannelMeta channelMeta = new ChannelMeta(key, timestamp,
-          station);
 
       // See if this channel contains the requested epoch time and if
       // so return the key
@@ -361,13 +504,30 @@ public class MetaGenerator {
 
         // If the epoch is closed, check that the end time is at
         // least 24 hours later than the requested time
-        if (epochData.getEndTime() != null) {
-          if (epochData.getEndTime().compareTo(timestamp.plusDays(1)) < 0) {
+        boolean dayBreak = epochData.getEndTime() != null
+            && epochData.getEndTime().compareTo(timestamp.plusDays(1)) < 0;
+
+        String epochKey = station + " " + key + " " + epochTimestamp + " " + dayBreak;
+        ChannelMeta processed;
+        synchronized (channelEpochs) {
+          processed = channelEpochs.get(epochKey);
+        }
+
+        ChannelMeta channelMeta;
+        if (processed != null) {
+          channelMeta = processed.forTimestamp(timestamp);
+        } else {
+          // ChannelMeta channelMeta = new ChannelMeta(key,timestamp);
+          channelMeta = new ChannelMeta(key, timestamp, station);
+          if (dayBreak) {
             // set channelMeta.dayBreak = true
             channelMeta.setDayBreak();
           }
+          channelMeta.processEpochData(epochData);
+          synchronized (channelEpochs) {
+            channelEpochs.put(epochKey, channelMeta);
+          }
         }
-        channelMeta.processEpochData(epochData);
         stationMeta.addChannel(key, channelMeta);
       }
     }
@@ -0,0 +1,252 @@
+package asl.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parsed dataless volumes stored on disk, one file per dataless file.
+ *
+ * A stored volume is only used while its dataless file keeps the length and modification time it
+ * was parsed from, otherwise the dataless file has to be parsed and stored again. Volumes are read
+ * from disk the first time their station is requested and only the most recently used volumes are
+ * kept in memory.
+ */
+class MetadataStore {
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(asl.metadata.MetadataStore.class);
+
+  /**
+   * Changes whenever the stored form changes, invalidating every stored volume.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Number of volumes kept in memory once read.
+   */
+  private static final int MAX_LOADED_VOLUMES = 64;
+
+  /**
+   * Describes a stored volume without reading it.
+   */
+  private static class Header {
+
+    private final String datalessPath;
+    private final long datalessLength;
+    private final long datalessModified;
+    private final StationKey stationKey;
+    private final List<Station> stations;
+
+    private Header(File datalessFile, StationKey stationKey, List<Station> stations) {
+      this.datalessPath = datalessFile.getAbsolutePath();
+      this.datalessLength = datalessFile.length();
+      this.datalessModified = datalessFile.lastModified();
+      this.stationKey = stationKey;
+      this.stations = stations;
+    }
+
+    private Header(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      if (in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Stored volume has an old format");
+      }
+      this.datalessPath = in.readUTF();
+      this.datalessLength = in.readLong();
+      this.datalessModified = in.readLong();
+      this.stationKey = (StationKey) in.readObject();
+      @SuppressWarnings("unchecked")
+      List<Station> stations = (List<Station>) in.readObject();
+      this.stations = stations;
+    }
+
+    private void write(ObjectOutputStream out) throws IOException {
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(datalessPath);
+      out.writeLong(datalessLength);
+      out.writeLong(datalessModified);
+      out.writeObject(stationKey);
+      out.writeObject(new ArrayList<>(stations));
+    }
+
+    private boolean matches(File datalessFile) {
+      return datalessPath.equals(datalessFile.getAbsolutePath())
+          && datalessLength == datalessFile.length()
+          && datalessModified == datalessFile.lastModified();
+    }
+  }
+
+  private final File directory;
+
+  /**
+   * Stored volumes by station key. Guarded by this.
+   */
+  private final Hashtable<StationKey, File> storedFiles = new Hashtable<>();
+
+  /**
+   * Stations of each stored volume. Guarded by this.
+   */
+  private final Hashtable<StationKey, List<Station>> storedStations = new Hashtable<>();
+
+  /**
+   * Most recently used volumes. Guarded by this.
+   */
+  private final LinkedHashMap<StationKey, SeedVolume> loaded =
+      new LinkedHashMap<StationKey, SeedVolume>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<StationKey, SeedVolume> eldest) {
+          return size() > MAX_LOADED_VOLUMES;
+        }
+      };
+
+  /**
+   * @param directory the directory volumes are stored in, created if it does not exist
+   * @throws IOException if the directory can not be created
+   */
+  MetadataStore(File directory) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create metadata store directory " + directory);
+    }
+    this.directory = directory;
+  }
+
+  private File getStoredFile(File datalessFile) {
+    return new File(directory, datalessFile.getName() + ".ser.gz");
+  }
+
+  /**
+   * Adds the stored volume of a dataless file, without reading the volume.
+   *
+   * @param datalessFile the dataless file
+   * @return false if no volume is stored for the file or the file changed since it was stored, in
+   * which case it has to be parsed and passed to {@link #store(File, SeedVolume)}
+   */
+  boolean addStored(File datalessFile) {
+    File storedFile = getStoredFile(datalessFile);
+    if (!storedFile.isFile()) {
+      return false;
+    }
+    try (ObjectInputStream in = openStoredFile(storedFile)) {
+      Header header = new Header(in);
+      if (!header.matches(datalessFile)) {
+        logger.info("== MetadataStore: [{}] changed since it was stored", datalessFile);
+        return false;
+      }
+      synchronized (this) {
+        add(header.stationKey, storedFile, header.stations);
+      }
+      return true;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.warn("== MetadataStore: Unable to read stored volume [{}]:", storedFile, e);
+      return false;
+    }
+  }
+
+  /**
+   * Stores the volume parsed from a dataless file, replacing any previously stored volume.
+   *
+   * @param datalessFile the dataless file
+   * @param volume the volume parsed from it
+   * @throws IOException if the volume could not be written
+   */
+  void store(File datalessFile, SeedVolume volume) throws IOException {
+    // Only the in memory state is guarded, each dataless file has its own stored file.
+    File storedFile = getStoredFile(datalessFile);
+    File tempFile = new File(directory, storedFile.getName() + ".tmp");
+    Header header = new Header(datalessFile, volume.getStationKey(), volume.getStationList());
+    try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tempFile))))) {
+      header.write(out);
+      out.writeObject(volume);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile.toPath());
+      throw e;
+    }
+    Files.move(tempFile.toPath(), storedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    synchronized (this) {
+      add(header.stationKey, storedFile, header.stations);
+      loaded.put(header.stationKey, volume);
+    }
+  }
+
+  /**
+   * Must be called while holding this.
+   */
+  private void add(StationKey stationKey, File storedFile, List<Station> stations) {
+    if (storedFiles.containsKey(stationKey)) {
+      logger.error("== Attempting to load volume stationKey=[{}] --> Already loaded!",
+          stationKey);
+      return;
+    }
+    storedFiles.put(stationKey, storedFile);
+    storedStations.put(stationKey, Collections.unmodifiableList(stations));
+  }
+
+  /**
+   * @return the keys of all stored volumes
+   */
+  synchronized Set<StationKey> getStationKeys() {
+    return new HashSet<>(storedFiles.keySet());
+  }
+
+  /**
+   * @param stationKey the volume's station key
+   * @return the stations in the volume, null if no volume is stored for the key
+   */
+  synchronized List<Station> getStationList(StationKey stationKey) {
+    return storedStations.get(stationKey);
+  }
+
+  /**
+   * Gets a stored volume, reading it from disk if it is not in memory.
+   *
+   * @param stationKey the volume's station key
+   * @return the volume, null if it is not stored or can not be read
+   */
+  synchronized SeedVolume getVolume(StationKey stationKey) {
+    SeedVolume volume = loaded.get(stationKey);
+    if (volume != null) {
+      return volume;
+    }
+    File storedFile = storedFiles.get(stationKey);
+    if (storedFile == null) {
+      return null;
+    }
+
+    try (ObjectInputStream in = openStoredFile(storedFile)) {
+      new Header(in);
+      volume = (SeedVolume) in.readObject();
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.error("== MetadataStore: Unable to read stored volume [{}]:", storedFile, e);
+      return null;
+    }
+    loaded.put(stationKey, volume);
+    return volume;
+  }
+
+  private static ObjectInputStream openStoredFile(File storedFile) throws IOException {
+    return new ObjectInputStream(
+        new GZIPInputStream(new BufferedInputStream(new FileInputStream(storedFile))));
+  }
+}
@@ -1,5 +1,6 @@
 package asl.metadata;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -14,11 +15,14 @@ import org.slf4j.LoggerFactory;
  * @author Joel Edwards - USGS
  * @author Mike Hagerty
  */
-public class SeedVolume {
+public class SeedVolume implements Serializable {
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.metadata.SeedVolume.class);
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The volume info blockette: blockette 10. */
 	private Blockette volumeInfo = null;
 
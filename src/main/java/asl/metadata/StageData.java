@@ -1,8 +1,11 @@
 package asl.metadata;
 
+import java.io.Serializable;
 import java.util.Hashtable;
 
-public class StageData {
+public class StageData implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private int stageID;
 	private Hashtable<Integer, Blockette> blockettes;
 
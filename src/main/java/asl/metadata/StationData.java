@@ -1,5 +1,6 @@
 package asl.metadata;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -9,9 +10,10 @@ import java.util.TreeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class StationData {
+public class StationData implements Serializable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.metadata.StationData.class);
+	private static final long serialVersionUID = 1L;
 
 	private static final int STATION_EPOCH_BLOCKETTE_NUMBER = 50;
 	private static final int STATION_COMMENT_BLOCKETTE_NUMBER = 51;
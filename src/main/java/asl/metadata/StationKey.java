@@ -1,5 +1,7 @@
 package asl.metadata;
 
+import java.io.Serializable;
+
 /**
  * The Class StationKey.
  * This is basically a copy of {@link asl.metadata.Station}
@@ -9,7 +11,10 @@ package asl.metadata;
  * @author Joel Edwards - USGS
  * @author Mike Hagerty
  */
-class StationKey extends Key implements Comparable<StationKey> {
+class StationKey extends Key implements Comparable<StationKey>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	/** The Constant STATION_EPOCH_BLOCKETTE_NUMBER. Blockette 50*/
 	private static final int STATION_EPOCH_BLOCKETTE_NUMBER = 50;
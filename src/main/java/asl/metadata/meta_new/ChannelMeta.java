@@ -8,6 +8,7 @@ import asl.metadata.StageData;
 import asl.metadata.Station;
 import asl.security.MemberDigest;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Hashtable;
@@ -111,6 +112,31 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 		return copyChan;
 	}
 
+	/**
+	 * Return this channel's metadata for another timestamp within the same
+	 * epoch. Unlike {@link #copy(Channel)} the response stages are shared
+	 * rather than copied, since they are not modified once the epoch has been
+	 * processed.
+	 * 
+	 * @param metaTimestamp
+	 *            the timestamp of the requested day
+	 * @return a new ChannelMeta sharing this channel's response stages
+	 */
+	public ChannelMeta forTimestamp(LocalDateTime metaTimestamp) {
+		ChannelMeta dayChan = new ChannelMeta(new ChannelKey(location, name),
+				metaTimestamp, station);
+		dayChan.sampleRate = this.sampleRate;
+		dayChan.elevation = this.elevation;
+		dayChan.dip = this.dip;
+		dayChan.azimuth = this.azimuth;
+		dayChan.depth = this.depth;
+		dayChan.dayBreak = this.dayBreak;
+		dayChan.instrumentType = this.instrumentType;
+		dayChan.channelFlags = this.channelFlags;
+		dayChan.stages = this.stages;
+		return dayChan;
+	}
+
 	/**
 	 * Add parts of this channelMeta to its digest
 	 */
@@ -348,6 +374,66 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 
 	public Complex[] getResponse(double[] freqs, ResponseUnits responseOut)
 			throws ChannelMetaException {
+		double[] interleaved = getCachedResponse(freqs, responseOut);
+		Complex[] response = new Complex[freqs.length];
+		for (int i = 0; i < freqs.length; i++) {
+			response[i] = new Complex(interleaved[2 * i], interleaved[2 * i + 1]);
+		}
+		return response;
+	}
+
+	/**
+	 * Same as {@link #getResponse(double[], ResponseUnits)}, but the response
+	 * is returned as interleaved real and imaginary parts.
+	 *
+	 * @param freqs
+	 *            the frequencies to evaluate the response at
+	 * @param responseOut
+	 *            the units of the response
+	 * @return a new array of length 2 * freqs.length
+	 * @throws ChannelMetaException
+	 *             if the response can not be evaluated
+	 */
+	public double[] getInterleavedResponse(double[] freqs, ResponseUnits responseOut)
+			throws ChannelMetaException {
+		return getCachedResponse(freqs, responseOut).clone();
+	}
+
+	/**
+	 * Gets the response from the {@link ResponseCache}, computing it if this
+	 * channel's epoch has not been evaluated at these frequencies yet.
+	 *
+	 * @return the shared response, must not be modified
+	 */
+	private double[] getCachedResponse(double[] freqs, ResponseUnits responseOut)
+			throws ChannelMetaException {
+		if (freqs.length == 0) {
+			throw new ChannelMetaException("getResponse: freqs.length = 0!");
+		}
+		if (invalidResponse()) {
+			throw new ChannelMetaException("getResponse: Invalid Response!");
+		}
+		ResponseStage stage = stages.get(1);
+		if (!(stage instanceof PoleZeroStage)) {
+			throw new ChannelMetaException(
+					"getResponse: Stage1 is NOT a PoleZeroStage!");
+		}
+
+		ByteBuffer digest = ByteBuffer.wrap(getDigestBytes().array().clone());
+		int inputUnits = stage.getInputUnits();
+		double[] response = ResponseCache.get(digest, inputUnits, responseOut, freqs);
+		if (response == null) {
+			response = computeResponse(freqs, responseOut);
+			ResponseCache.put(digest, inputUnits, responseOut, freqs, response);
+		}
+		return response;
+	}
+
+	/**
+	 * Evaluates the response as interleaved real and imaginary parts.
+	 */
+	private double[] computeResponse(double[] freqs, ResponseUnits responseOut)
+			throws ChannelMetaException {
 		int outUnits = 0;
 		switch (responseOut) {
 		case DISPLACEMENT: // return Displacement Response
@@ -364,92 +450,84 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 			break;
 		}
 
-		if (freqs.length == 0) {
-			throw new ChannelMetaException("getResponse: freqs.length = 0!");
-		}
-		if (invalidResponse()) {
-			throw new ChannelMetaException("getResponse: Invalid Response!");
-		}
-		Complex[] response = null;
+		double[] response = new double[2 * freqs.length];
 
 		// Set response = polezero response (with A0 factored in):
 		ResponseStage stage = stages.get(1);
 
-		if (!(stage instanceof PoleZeroStage)) {
-			throw new ChannelMetaException(
-					"getResponse: Stage1 is NOT a PoleZeroStage!");
-		} else {
-			PoleZeroStage pz = (PoleZeroStage) stage;
-			try {
-				response = pz.getResponse(freqs);
-			} catch (PoleZeroStageException e) {
-				logger.error("PoleZeroStageException:", e);
-				throw new ChannelMetaException("PoleZeroStageException");
+		PoleZeroStage pz = (PoleZeroStage) stage;
+		try {
+			pz.getResponse(freqs, response);
+		} catch (PoleZeroStageException e) {
+			logger.error("PoleZeroStageException:", e);
+			throw new ChannelMetaException("PoleZeroStageException");
+		}
+		/*Default response (in SEED Units) requested = 0 --> Don't integrate or differentiate */
+		if (outUnits != 0) { // Convert response to desired responseOut Units
+			int inUnits = stage.getInputUnits(); // e.g., 0=Unknown ;
+													// 1=Disp(m) ;
+													// 2=Vel(m/s^2) ; 3=Acc
+													// ; ...
+			if (inUnits == 0) {
+				String msg = String
+						.format("getResponse:[%s] date:[%s] Response requested but PoleZero Stage Input Units = Unknown!",
+								responseOut, this.getDate());
+				throw new ChannelMetaException(msg);
 			}
-			/*Default response (in SEED Units) requested = 0 --> Don't integrate or differentiate */
-			if (outUnits != 0) { // Convert response to desired responseOut Units
-				int inUnits = stage.getInputUnits(); // e.g., 0=Unknown ;
-														// 1=Disp(m) ;
-														// 2=Vel(m/s^2) ; 3=Acc
-														// ; ...
-				if (inUnits == 0) {
-					String msg = String
-							.format("getResponse:[%s] date:[%s] Response requested but PoleZero Stage Input Units = Unknown!",
-									responseOut, this.getDate());
-					throw new ChannelMetaException(msg);
-				}
-				int n = outUnits - inUnits;
-
-				// We need to convert the returned response if the desired
-				// response units != the stored response units:
-				// inUnit
-				// 1 - Displacement
-				// 2 - Velocity
-				// 3 - Acceleration
-				//
-				// In the Four Trans convention used by SEED:
-				// x(t) ~ Int[ X(w)e^+iwt ] dw ==> x'(t) ~ Int[ iw * X(w)e^+iwt
-				// ] dw ==> FFT[x'(t)] = iw x FFT[x(t)]
-				//
-				// x(t) = v(t) * i(t)
-				// X(w) = V(w) x I(w) --> V(w) = X(w)/I(w) = FFT[u'(t)] = iw x
-				// U(w) where U(w) = FFT[u(t)]
-				// or U(w) = X(w)/{iw x I(w)}
-				// U(w) = X(w)/II(w) where II(w) = iw x I(w) <-- divide by this
-				// response to achieve integration
-				//
-				// So, integration n times: multiply I(w) by (iw)^n
-				// differentiation n times: multiply I(w) by (-i/w)^n
-				//
-				// Ex: if the response units are Velocity (inUnits=2) and we
-				// want our output units = Acceleration (outUnits=3), then
-				// n = 3 - 2 = 1, and we return I'(w)=I(w)/(iw) = -i/w * I(w)
-
-				// Here we set s to be omega. This doesn't depend on the
-				// response type as was previous
-				double s = 2. * Math.PI;
-
-				// Here we integrate
-				if (n < 0) { // INTEGRATION RESPONSE I(w) x (iw)^n
-					for (int i = 0; i < freqs.length; i++) {
-						Complex iw = new Complex(0.0, s * freqs[i]);
-						for (int j = 1; j < Math.abs(n); j++)
-							iw = iw.multiply(iw);
-						response[i] = iw.multiply(response[i]);
-					}
+			int n = outUnits - inUnits;
+
+			// We need to convert the returned response if the desired
+			// response units != the stored response units:
+			// inUnit
+			// 1 - Displacement
+			// 2 - Velocity
+			// 3 - Acceleration
+			//
+			// In the Four Trans convention used by SEED:
+			// x(t) ~ Int[ X(w)e^+iwt ] dw ==> x'(t) ~ Int[ iw * X(w)e^+iwt
+			// ] dw ==> FFT[x'(t)] = iw x FFT[x(t)]
+			//
+			// x(t) = v(t) * i(t)
+			// X(w) = V(w) x I(w) --> V(w) = X(w)/I(w) = FFT[u'(t)] = iw x
+			// U(w) where U(w) = FFT[u(t)]
+			// or U(w) = X(w)/{iw x I(w)}
+			// U(w) = X(w)/II(w) where II(w) = iw x I(w) <-- divide by this
+			// response to achieve integration
+			//
+			// So, integration n times: multiply I(w) by (iw)^n
+			// differentiation n times: multiply I(w) by (-i/w)^n
+			//
+			// Ex: if the response units are Velocity (inUnits=2) and we
+			// want our output units = Acceleration (outUnits=3), then
+			// n = 3 - 2 = 1, and we return I'(w)=I(w)/(iw) = -i/w * I(w)
+
+			// Here we set s to be omega. This doesn't depend on the
+			// response type as was previous
+			double s = 2. * Math.PI;
+
+			// Here we integrate
+			if (n < 0) { // INTEGRATION RESPONSE I(w) x (iw)^n
+				double[] iw = new double[2];
+				for (int i = 0; i < freqs.length; i++) {
+					iw[0] = 0.0;
+					iw[1] = s * freqs[i];
+					for (int j = 1; j < Math.abs(n); j++)
+						PoleZeroStage.multiply(iw, 0, iw[0], iw[1]);
+					PoleZeroStage.multiply(response, i, iw[0], iw[1]);
 				}
-				// Here we differentiate
-				else if (n > 0) { // DIFFERENTIATION RESPONSE I(w) / (iw)^n
-					for (int i = 0; i < freqs.length; i++) {
-						Complex iw = new Complex(0.0, -1.0 / (s * freqs[i]));
-						for (int j = 1; j < Math.abs(n); j++)
-							iw = iw.multiply(iw);
-						response[i] = iw.multiply(response[i]);
-					}
+			}
+			// Here we differentiate
+			else if (n > 0) { // DIFFERENTIATION RESPONSE I(w) / (iw)^n
+				double[] iw = new double[2];
+				for (int i = 0; i < freqs.length; i++) {
+					iw[0] = 0.0;
+					iw[1] = -1.0 / (s * freqs[i]);
+					for (int j = 1; j < Math.abs(n); j++)
+						PoleZeroStage.multiply(iw, 0, iw[0], iw[1]);
+					PoleZeroStage.multiply(response, i, iw[0], iw[1]);
 				}
-			} // Convert
-		} // else
-
+			}
+		} // Convert
 		// Scale polezero response by stage1Gain * stage2Gain:
 		// Unless stage1Gain*stage2Gain is different from stage0Gain
 		// (=Sensitivity) by more than 10%,
@@ -481,7 +559,7 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 		}
 
 		for (int i = 0; i < freqs.length; i++) {
-			response[i] = response[i].multiply(scale);
+			PoleZeroStage.multiply(response, i, scale);
 		}
 
 		return response;
@@ -114,6 +114,22 @@ public class PoleZeroStage extends ResponseStage implements Cloneable, Serializa
 	 * really check that length > 0
 	 */
 	Complex[] getResponse(double[] freqs) throws PoleZeroStageException {
+		double[] interleaved = new double[2 * freqs.length];
+		getResponse(freqs, interleaved);
+		Complex[] response = new Complex[freqs.length];
+		for (int i = 0; i < freqs.length; i++) {
+			response[i] = new Complex(interleaved[2 * i], interleaved[2 * i + 1]);
+		}
+		return response;
+	}
+
+	/*
+	 * Compute the response at given freqs[0,...length] into response as
+	 * interleaved real and imaginary parts: response[2 * i] + i * response[2 *
+	 * i + 1] = G(freqs[i]). The arithmetic is the same as Complex's, without
+	 * allocating one per operation.
+	 */
+	void getResponse(double[] freqs, double[] response) throws PoleZeroStageException {
 		// Some polezero responses (e.g., ANMO.IU.20.BN?) appear to have NO
 		// zeros
 		if (!poleAdded || !normalizationSet) {
@@ -127,15 +143,37 @@ public class PoleZeroStage extends ResponseStage implements Cloneable, Serializa
 			throw new PoleZeroStageException(
 					"[ PoleZeroStage-->getResponse Error: Input freqs[] has no zero length! ]");
 		}
-		Complex[] response = new Complex[freqs.length];
+
+		double sScale;
+		if (getStageType() == 'A') {
+			sScale = 2 * Math.PI;
+		} else if (getStageType() == 'B') {
+			sScale = 1.0;
+		} else {
+			throw new PoleZeroStageException(
+					"[ PoleZeroStage-->evalResponse Error: Cannot evalResp a non-PoleZero Stage!]");
+		}
+
+		double[] zeroRe = new double[zeros.size()];
+		double[] zeroIm = new double[zeros.size()];
+		for (int j = 0; j < zeroRe.length; j++) {
+			zeroRe[j] = zeros.get(j).getReal();
+			zeroIm[j] = zeros.get(j).getImaginary();
+		}
+		double[] poleRe = new double[poles.size()];
+		double[] poleIm = new double[poles.size()];
+		for (int j = 0; j < poleRe.length; j++) {
+			poleRe[j] = poles.get(j).getReal();
+			poleIm[j] = poles.get(j).getImaginary();
+		}
+
+		double[] numerator = new double[2];
+		double[] denomenator = new double[2];
 		for (int i = 0; i < freqs.length; i++) {
-			try {
-				response[i] = evalResp(freqs[i]);
-			} catch (PoleZeroStageException e) {
-				logger.error("PoleZeroStageException:", e);
-			}
+			evalResp(sScale * freqs[i], zeroRe, zeroIm, poleRe, poleIm, numerator, denomenator);
+			response[2 * i] = numerator[0];
+			response[2 * i + 1] = numerator[1];
 		}
-		return response;
 	}
 
 	/*
@@ -164,31 +202,92 @@ public class PoleZeroStage extends ResponseStage implements Cloneable, Serializa
 	 * * pole zero expansion Note that the stage sensitivity Sd is *not*
 	 * included, so that the response from this stage should be approx. 1 (flat)
 	 * at the mid range.
+	 * 
+	 * s = i * sImaginary, the response is returned in numerator,
+	 * denomenator is scratch space.
 	 */
-	private Complex evalResp(double f) throws PoleZeroStageException {
-		Complex numerator = Complex.ONE;
-		Complex denomenator = Complex.ONE;
-		Complex s;
-		Complex Gf;
+	private void evalResp(double sImaginary, double[] zeroRe, double[] zeroIm, double[] poleRe,
+			double[] poleIm, double[] numerator, double[] denomenator) {
+		numerator[0] = 1.0;
+		numerator[1] = 0.0;
+		denomenator[0] = 1.0;
+		denomenator[1] = 0.0;
 
-		if (getStageType() == 'A') {
-			s = new Complex(0.0, 2 * Math.PI * f);
-		} else if (getStageType() == 'B') {
-			s = new Complex(0.0, f);
+		for (int j = 0; j < zeroRe.length; j++) {
+			multiply(numerator, 0, 0.0 - zeroRe[j], sImaginary - zeroIm[j]);
+		}
+		for (int j = 0; j < poleRe.length; j++) {
+			multiply(denomenator, 0, 0.0 - poleRe[j], sImaginary - poleIm[j]);
+		}
+		multiply(numerator, 0, normalizationConstant);
+		divide(numerator, 0, denomenator[0], denomenator[1]);
+	}
+
+	/*
+	 * Multiply the interleaved complex value a[i] by re + i * im, following
+	 * Complex.multiply(Complex).
+	 */
+	static void multiply(double[] a, int i, double re, double im) {
+		double aRe = a[2 * i];
+		double aIm = a[2 * i + 1];
+		if (Double.isNaN(aRe) || Double.isNaN(aIm) || Double.isNaN(re) || Double.isNaN(im)) {
+			a[2 * i] = Double.NaN;
+			a[2 * i + 1] = Double.NaN;
+		} else if (Double.isInfinite(aRe) || Double.isInfinite(aIm) || Double.isInfinite(re)
+				|| Double.isInfinite(im)) {
+			a[2 * i] = Double.POSITIVE_INFINITY;
+			a[2 * i + 1] = Double.POSITIVE_INFINITY;
 		} else {
-			throw new PoleZeroStageException(
-					"[ PoleZeroStage-->evalResponse Error: Cannot evalResp a non-PoleZero Stage!]");
+			a[2 * i] = aRe * re - aIm * im;
+			a[2 * i + 1] = aRe * im + aIm * re;
 		}
+	}
 
-		for (int j = 0; j < getNumberOfZeros(); j++) {
-			numerator = numerator.multiply(s.subtract(zeros.get(j)));
+	/*
+	 * Multiply the interleaved complex value a[i] by factor, following
+	 * Complex.multiply(double).
+	 */
+	static void multiply(double[] a, int i, double factor) {
+		double aRe = a[2 * i];
+		double aIm = a[2 * i + 1];
+		if (Double.isNaN(aRe) || Double.isNaN(aIm) || Double.isNaN(factor)) {
+			a[2 * i] = Double.NaN;
+			a[2 * i + 1] = Double.NaN;
+		} else if (Double.isInfinite(aRe) || Double.isInfinite(aIm) || Double.isInfinite(factor)) {
+			a[2 * i] = Double.POSITIVE_INFINITY;
+			a[2 * i + 1] = Double.POSITIVE_INFINITY;
+		} else {
+			a[2 * i] = aRe * factor;
+			a[2 * i + 1] = aIm * factor;
 		}
-		for (int j = 0; j < getNumberOfPoles(); j++) {
-			denomenator = denomenator.multiply(s.subtract(poles.get(j)));
+	}
+
+	/*
+	 * Divide the interleaved complex value a[i] by c + i * d, following
+	 * Complex.divide(Complex).
+	 */
+	static void divide(double[] a, int i, double c, double d) {
+		double aRe = a[2 * i];
+		double aIm = a[2 * i + 1];
+		boolean aInfinite = Double.isInfinite(aRe) || Double.isInfinite(aIm);
+		if (Double.isNaN(aRe) || Double.isNaN(aIm) || Double.isNaN(c) || Double.isNaN(d)
+				|| (c == 0.0 && d == 0.0)) {
+			a[2 * i] = Double.NaN;
+			a[2 * i + 1] = Double.NaN;
+		} else if ((Double.isInfinite(c) || Double.isInfinite(d)) && !aInfinite) {
+			a[2 * i] = 0.0;
+			a[2 * i + 1] = 0.0;
+		} else if (Math.abs(c) < Math.abs(d)) {
+			double q = c / d;
+			double denominator = c * q + d;
+			a[2 * i] = (aRe * q + aIm) / denominator;
+			a[2 * i + 1] = (aIm * q - aRe) / denominator;
+		} else {
+			double q = d / c;
+			double denominator = d * q + c;
+			a[2 * i] = (aIm * q + aRe) / denominator;
+			a[2 * i + 1] = (aIm - aRe * q) / denominator;
 		}
-		Gf = numerator.multiply(normalizationConstant);
-		Gf = Gf.divide(denomenator);
-		return Gf;
 	}
 
 }
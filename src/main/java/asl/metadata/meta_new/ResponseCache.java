@@ -0,0 +1,109 @@
+package asl.metadata.meta_new;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
+
+/**
+ * Instrument responses shared by every ChannelMeta.
+ *
+ * The metadata of a channel rarely changes, so the same response is requested
+ * for every day and metric of a scan. Responses are keyed by the digest of the
+ * channel's metadata, so every ChannelMeta of the same epoch shares them. The
+ * cache is bounded by the size of the responses it holds and evicts the least
+ * recently used responses first.
+ */
+class ResponseCache {
+
+	/** Maximum size of the cached responses in bytes. */
+	private static final long MAX_SIZE = 64L << 20;
+
+	/**
+	 * Identifies a response: the channel metadata, the units and the
+	 * frequencies it was evaluated at.
+	 */
+	private static class Key {
+		private final ByteBuffer channelDigest;
+		private final int inputUnits;
+		private final ResponseUnits responseUnits;
+		private final double[] freqs;
+		private final int hash;
+
+		private Key(ByteBuffer channelDigest, int inputUnits, ResponseUnits responseUnits, double[] freqs) {
+			this.channelDigest = channelDigest;
+			this.inputUnits = inputUnits;
+			this.responseUnits = responseUnits;
+			this.freqs = freqs;
+			this.hash = 31 * (31 * (31 * channelDigest.hashCode() + inputUnits) + responseUnits.hashCode())
+					+ Arrays.hashCode(freqs);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && inputUnits == other.inputUnits && responseUnits == other.responseUnits
+					&& channelDigest.equals(other.channelDigest) && Arrays.equals(freqs, other.freqs);
+		}
+	}
+
+	private static final LinkedHashMap<Key, double[]> responses = new LinkedHashMap<>(64, 0.75f, true);
+
+	private static long size = 0;
+
+	private ResponseCache() {
+	}
+
+	/**
+	 * Gets a cached response.
+	 *
+	 * @return the interleaved response, must not be modified, null if not
+	 *         cached
+	 */
+	static synchronized double[] get(ByteBuffer channelDigest, int inputUnits, ResponseUnits responseUnits,
+			double[] freqs) {
+		return responses.get(new Key(channelDigest, inputUnits, responseUnits, freqs));
+	}
+
+	/**
+	 * Caches a response, evicting the least recently used responses until the
+	 * cache fits.
+	 *
+	 * @param response
+	 *            the interleaved response, must not be modified afterwards
+	 */
+	static synchronized void put(ByteBuffer channelDigest, int inputUnits, ResponseUnits responseUnits,
+			double[] freqs, double[] response) {
+		long responseSize = 8L * (freqs.length + response.length);
+		if (responseSize > MAX_SIZE) {
+			return;
+		}
+		Key key = new Key(channelDigest, inputUnits, responseUnits, freqs.clone());
+		double[] previous = responses.put(key, response);
+		if (previous != null) {
+			size -= 8L * (freqs.length + previous.length);
+		}
+		size += responseSize;
+
+		Iterator<Map.Entry<Key, double[]>> iterator = responses.entrySet().iterator();
+		while (size > MAX_SIZE && iterator.hasNext()) {
+			Map.Entry<Key, double[]> eldest = iterator.next();
+			iterator.remove();
+			size -= 8L * (eldest.getKey().freqs.length + eldest.getValue().length);
+		}
+	}
+}
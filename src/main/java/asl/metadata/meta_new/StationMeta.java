@@ -232,8 +232,7 @@ public class StationMeta implements Serializable {
 	 * @return the channel array
 	 */
 	public List<Channel> getChannelArray(String bands, boolean ignoreTriggered, boolean ignoreDerived) {
-		TreeSet<ChannelKey> keys = new TreeSet<>();
-		keys.addAll(channels.keySet());
+		TreeSet<ChannelKey> keys = getSortedChannelKeys();
 
 		ArrayList<Channel> channelArrayList = new ArrayList<>();
 
@@ -261,6 +260,19 @@ public class StationMeta implements Serializable {
 		return channelArrayList;
 	}
 	
+	/**
+	 * Copies the channel keys. Rotated channels may be added by concurrently
+	 * running metrics, so the keys are copied holding the table's lock, which
+	 * {@link #addChannel(ChannelKey, ChannelMeta)} also takes.
+	 *
+	 * @return the sorted channel keys
+	 */
+	private TreeSet<ChannelKey> getSortedChannelKeys() {
+		synchronized (channels) {
+			return new TreeSet<>(channels.keySet());
+		}
+	}
+
 	/**
 	 * Convert 1/2 component descriptions to matching N/E or 1/2 channels
 	 * depending on which actually exists. All components except 1/2 are ignored
@@ -314,8 +326,7 @@ public class StationMeta implements Serializable {
 	 * @return the continuous channels
 	 */
 	public List<Channel> getContinuousChannels() {
-		TreeSet<ChannelKey> keys = new TreeSet<>();
-		keys.addAll(channels.keySet());
+		TreeSet<ChannelKey> keys = getSortedChannelKeys();
 
 		ArrayList<Channel> channelArrayList = new ArrayList<>();
 
@@ -337,8 +348,7 @@ public class StationMeta implements Serializable {
 	 * @return the derived channels
 	 */
 	public List<Channel> getRotatableChannels() {
-		TreeSet<ChannelKey> keys = new TreeSet<>();
-		keys.addAll(channels.keySet());
+		TreeSet<ChannelKey> keys = getSortedChannelKeys();
 
 		ArrayList<Channel> channelArrayList = new ArrayList<>();
 
@@ -47,12 +47,15 @@ public abstract class Global {
   protected static final Logger logger = LoggerFactory.getLogger(asl.seedscan.Global.class);
   protected static String datalessDir;
   protected static String datalessFile;
+  protected static String metadataStoreDir;
   protected static DatabaseT database;
   protected static String plotsDir;
   protected static String dataDir;
   protected static String eventsDir;
   protected static String qualityflags;
   protected static String lockfile;
+  protected static int metricThreads;
+  protected static boolean offHeapSamples;
 
 
   /**
@@ -113,6 +116,7 @@ public abstract class Global {
 
     datalessDir = CONFIG.getDatalessDir();
     datalessFile = CONFIG.getDatalessFile();
+    metadataStoreDir = CONFIG.getMetadataStoreDir();
     database = CONFIG.getDatabase();
 
     lockfile = CONFIG.getLockfile();
@@ -124,6 +128,10 @@ public abstract class Global {
     dataDir = CONFIG.getPath();
 
     eventsDir = CONFIG.getEventsDir();
+
+    metricThreads = CONFIG.getMetricThreads() == null ? 1 : CONFIG.getMetricThreads();
+
+    offHeapSamples = Boolean.TRUE.equals(CONFIG.isOffHeapSamples());
   }
 
   public static List<String> getNetworkRestrictions() {
@@ -138,6 +146,10 @@ public abstract class Global {
     return datalessFile;
   }
 
+  public static String getMetadataStoreDir() {
+    return metadataStoreDir;
+  }
+
   public static DatabaseT getDatabase() {
     return database;
   }
@@ -146,6 +158,21 @@ public abstract class Global {
     return metrics;
   }
 
+  /**
+   * @return the number of threads running the metrics of a station-day, 1 if they run on the
+   * scanning thread
+   */
+  public static int getMetricThreads() {
+    return metricThreads;
+  }
+
+  /**
+   * @return true if the samples of loaded station-days are kept off the heap
+   */
+  public static boolean getOffHeapSamples() {
+    return offHeapSamples;
+  }
+
   public static String getPlotsDir() {
     return plotsDir;
   }
@@ -53,9 +53,10 @@ public class SeedScan {
       }
 
       metaGenerator = new MetaGenerator(Global.getDatalessDir(), Global.getDatalessFile(),
-          Global.getNetworkRestrictions());
+          Global.getNetworkRestrictions(), Global.getMetadataStoreDir());
       database = new MetricDatabase(Global.getDatabase());
-      scanManager = new ScanManager(database, metaGenerator);
+      scanManager = new ScanManager(database, metaGenerator, Global.getMetricThreads(),
+          Global.getOffHeapSamples());
 
       logger.info("Handing control to ScanManager");
       // Blocking call to begin scanning.
@@ -30,7 +30,7 @@ public class DatabaseScan {
 	/** Used for deleting existing data. */
 	public final String location;
 	
-	/** Used for deleting existing data. */
+	/** Used for deleting existing data and restricting which channels are scanned. */
 	public final String channel;
 	
 	/** Only recompute this metric */
@@ -3,13 +3,21 @@ package asl.seedscan.database;
 
 import java.beans.PropertyVetoException;
 import java.nio.ByteBuffer;
+import java.sql.Array;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +50,43 @@ public class MetricDatabase {
 	/** The username. */
 	private String username;
 
+	/**
+	 * Writes queued results in the background. Null if results are written
+	 * immediately.
+	 */
+	private MetricWriter writer;
+
+	/** Number of station-days whose digests are kept in memory. */
+	private static final int MAX_PREFETCHED_DAYS = 64;
+
+	/**
+	 * Digests of every stored metric value of recently scanned station-days,
+	 * keyed by {@link #getStationDayKey(LocalDate, Station)} and then by
+	 * {@link #getDigestKey(String, String, String)}. A day is dropped once its
+	 * scan has finished with it, see
+	 * {@link #releaseStationDayDigests(LocalDate, Station)}, and least recently
+	 * used days are dropped if scans leave too many behind.
+	 */
+	private final Map<String, Map<String, ByteBuffer>> stationDayDigests =
+			new LinkedHashMap<String, Map<String, ByteBuffer>>(MAX_PREFETCHED_DAYS, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Map<String, ByteBuffer>> eldest) {
+			return size() > MAX_PREFETCHED_DAYS;
+		}
+	};
+
+	/**
+	 * Calls spInsertMetricData for each row of the parameter arrays in a single
+	 * statement. The type of the value array selects the double precision or
+	 * text version of spInsertMetricData.
+	 */
+	private static final String INSERT_METRIC_DATA = "SELECT spInsertMetricData("
+			+ "v.day::date, v.metric, v.network, v.station, v.location, v.channel, v.value, decode(v.digest, 'hex')) "
+			+ "FROM unnest(?, ?, ?, ?, ?, ?, ?, ?) "
+			+ "AS v(day, metric, network, station, location, channel, value, digest)";
+
 	/**
 	 * Used for testing purposes only. Where java requires call to super() in
 	 * mock Class.
@@ -101,12 +146,18 @@ public class MetricDatabase {
 		// Reset any orphaned scans immediately after connection.
 		// This also serves as a check if we have write access to the database.
 		resetStationScans();
+		writer = new MetricWriter(this);
 	}
 
 	/**
-	 * Closes the connection pool and sets dataSource to null.
+	 * Writes any queued results, then closes the connection pool and sets
+	 * dataSource to null.
 	 */
 	public void close() {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
 		dataSource.close();
 		dataSource = null;
 	}
@@ -115,10 +166,27 @@ public class MetricDatabase {
 	 * Mark a scan as finished. The database handles further work, such as
 	 * completing parent scans and collapsing finished scans.
 	 * 
+	 * Results queued with {@link #queueMetricData(MetricResult)} are stored
+	 * before the scan is marked finished.
+	 * 
 	 * @param pkScanID
 	 *            The UUID of the finished station scan.
 	 */
 	public void finishScan(UUID pkScanID) {
+		if (writer != null) {
+			writer.finishScan(pkScanID);
+		} else {
+			markScanFinished(pkScanID);
+		}
+	}
+
+	/**
+	 * Mark a scan as finished immediately.
+	 * 
+	 * @param pkScanID
+	 *            The UUID of the finished station scan.
+	 */
+	void markScanFinished(UUID pkScanID) {
 		Connection connection = null;
 		CallableStatement callStatement = null;
 		try {
@@ -153,6 +221,10 @@ public class MetricDatabase {
 	 * @return the metric value
 	 */
 	public Double getMetricValue(LocalDate date, String metricName, Station station, Channel channel) {
+		MetricResult pending = getPendingResult(date, metricName, station);
+		if (pending != null && pending.getResult(MetricResult.createResultId(channel)) != null) {
+			return pending.getResult(MetricResult.createResultId(channel));
+		}
 		Double value = null;
 		Connection connection = null;
 		CallableStatement callStatement = null;
@@ -191,6 +263,10 @@ public class MetricDatabase {
 
 	/**
 	 * Gets the metric value digest for a particular channel, metric, day.
+	 * 
+	 * The first request for a station-day fetches the digests of all its
+	 * metrics and channels in one query, later requests for that day are
+	 * answered from memory.
 	 *
 	 * @param date
 	 *            the date
@@ -203,6 +279,16 @@ public class MetricDatabase {
 	 * @return the metric value digest
 	 */
 	public ByteBuffer getMetricValueDigest(LocalDate date, String metricName, Station station, Channel channel) {
+		MetricResult pending = getPendingResult(date, metricName, station);
+		if (pending != null && pending.getDigest(MetricResult.createResultId(channel)) != null) {
+			return pending.getDigest(MetricResult.createResultId(channel));
+		}
+		Map<String, ByteBuffer> digests = getStationDayDigests(date, station);
+		if (digests != null) {
+			ByteBuffer digest = digests.get(getDigestKey(metricName, channel.getLocation(), channel.getChannel()));
+			return (digest == null) ? null : digest.duplicate();
+		}
+
 		ByteBuffer digest = null;
 		Connection connection = null;
 		CallableStatement callStatement = null;
@@ -242,6 +328,123 @@ public class MetricDatabase {
 		return digest;
 	}
 
+	/**
+	 * Gets the digests of a station-day, fetching them if they are not in
+	 * memory.
+	 *
+	 * @return the digests, null if they could not be fetched
+	 */
+	private Map<String, ByteBuffer> getStationDayDigests(LocalDate date, Station station) {
+		String key = getStationDayKey(date, station);
+		synchronized (stationDayDigests) {
+			Map<String, ByteBuffer> digests = stationDayDigests.get(key);
+			if (digests != null) {
+				return digests;
+			}
+		}
+
+		Map<String, ByteBuffer> digests = new ConcurrentHashMap<>();
+		Connection connection = null;
+		CallableStatement callStatement = null;
+		ResultSet resultSet = null;
+		try {
+			try {
+				connection = dataSource.getConnection();
+				callStatement = connection.prepareCall("SELECT * FROM spGetStationDayDigests(?, ?, ?)");
+
+				callStatement.setObject(1, date);
+				callStatement.setString(2, station.getNetwork());
+				callStatement.setString(3, station.getStation());
+
+				resultSet = callStatement.executeQuery();
+
+				while (resultSet.next()) {
+					byte[] digestIn = resultSet.getBytes("hash");
+					if (digestIn != null) {
+						digests.put(getDigestKey(resultSet.getString("metric"), resultSet.getString("location"),
+								resultSet.getString("channel")), ByteBuffer.wrap(digestIn));
+					}
+				}
+			} finally {
+				if (resultSet != null)
+					resultSet.close();
+				if (callStatement != null)
+					callStatement.close();
+				if (connection != null)
+					connection.close();
+			}
+		} catch (SQLException e) {
+			logger.error("SQLException:", e);
+			return null;
+		}
+
+		synchronized (stationDayDigests) {
+			// Another scan of the same day may have fetched it meanwhile.
+			Map<String, ByteBuffer> existing = stationDayDigests.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			stationDayDigests.put(key, digests);
+		}
+		return digests;
+	}
+
+	/**
+	 * Drops the digests of a station-day held in memory, once its scan has
+	 * finished with them. A later scan of the day fetches them again, so it
+	 * sees values stored since by other processes. Results still waiting to
+	 * be written are found through the writer.
+	 *
+	 * @param date
+	 *            the date
+	 * @param station
+	 *            the network and station information
+	 */
+	public void releaseStationDayDigests(LocalDate date, Station station) {
+		synchronized (stationDayDigests) {
+			stationDayDigests.remove(getStationDayKey(date, station));
+		}
+	}
+
+	/**
+	 * Updates the digests held in memory with newly stored results.
+	 */
+	private void updateStationDayDigests(Collection<MetricResult> resultsList) {
+		for (MetricResult results : resultsList) {
+			Map<String, ByteBuffer> digests;
+			synchronized (stationDayDigests) {
+				digests = stationDayDigests.get(getStationDayKey(results.getDate(), results.getStation()));
+			}
+			if (digests == null) {
+				continue;
+			}
+			for (String id : results.getIdSet()) {
+				Channel channel = MetricResult.createChannel(id);
+				digests.put(getDigestKey(results.getMetricName(), channel.getLocation(), channel.getChannel()),
+						results.getDigest(id));
+			}
+		}
+	}
+
+	private static String getStationDayKey(LocalDate date, Station station) {
+		return station.getNetwork() + "_" + station.getStation() + " " + date;
+	}
+
+	private static String getDigestKey(String metricName, String location, String channel) {
+		return metricName + " " + location + "-" + channel;
+	}
+
+	/**
+	 * Gets a queued result that has not been stored yet, so values computed
+	 * earlier in a station-day are seen before they reach the database.
+	 */
+	private MetricResult getPendingResult(LocalDate date, String metricName, Station station) {
+		if (writer == null) {
+			return null;
+		}
+		return writer.getPendingResult(date, metricName, station);
+	}
+
 	public void insertChildScan(UUID parentID, String network, String station, String location, String channel,
 			String metric, LocalDate startDate, LocalDate endDate, int priority, boolean deleteExisting) {
 		Connection connection = null;
@@ -320,6 +523,27 @@ public class MetricDatabase {
 		}
 	}
 
+	/**
+	 * Queue a metric result to be inserted in the background. Falls back to
+	 * inserting immediately if results are not written in the background.
+	 *
+	 * @param results
+	 *            the metric result to insert
+	 */
+	public void queueMetricData(MetricResult results) {
+		if (writer == null) {
+			insertMetricData(results);
+			return;
+		}
+		try {
+			writer.add(results);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while queueing results, inserting immediately");
+			Thread.currentThread().interrupt();
+			insertMetricData(results);
+		}
+	}
+
 	/**
 	 * Insert metric result
 	 *
@@ -328,40 +552,65 @@ public class MetricDatabase {
 	 * @return 0 if successful
 	 */
 	public int insertMetricData(MetricResult results) {
+		return insertMetricData(Collections.singletonList(results));
+	}
+
+	/**
+	 * Insert metric results. All values are sent to spInsertMetricData as
+	 * arrays in a single statement and stored in one transaction, rather
+	 * than calling it once per channel.
+	 *
+	 * @param resultsList
+	 *            the metric results to insert
+	 * @return 0 if successful
+	 */
+	public int insertMetricData(Collection<MetricResult> resultsList) {
 		int result = -1;
+		List<Object[]> doubleRows = new ArrayList<>();
+		List<Object[]> textRows = new ArrayList<>();
+		for (MetricResult results : resultsList) {
+			boolean textValues = results.getMetricName().equals("CalibrationMetric");
+			for (String id : results.getIdSet()) {
+				Channel channel = MetricResult.createChannel(id);
+				Object[] row = { results.getDate().toString(), results.getMetricName(),
+						results.getStation().getNetwork(), results.getStation().getStation(), channel.getLocation(),
+						channel.getChannel(), textValues ? id : results.getResult(id),
+						toHex(results.getDigest(id).array()) };
+				if (textValues) {
+					textRows.add(row);
+				} else {
+					doubleRows.add(row);
+				}
+			}
+		}
+		if (doubleRows.isEmpty() && textRows.isEmpty()) {
+			return 0;
+		}
+
 		Connection connection = null;
-		CallableStatement callStatement = null;
 		try {
 			try {
 				connection = dataSource.getConnection();
-
-				callStatement = connection.prepareCall("SELECT spInsertMetricData(?, ?, ?, ?, ?, ?, ?, ?)");
-
-				for (String id : results.getIdSet()) {
-					Channel channel = MetricResult.createChannel(id);
-
-					callStatement.setObject(1, results.getDate());
-					callStatement.setString(2, results.getMetricName());
-					callStatement.setString(3, results.getStation().getNetwork());
-					callStatement.setString(4, results.getStation().getStation());
-					callStatement.setString(5, channel.getLocation());
-					callStatement.setString(6, channel.getChannel());
-					callStatement.setBytes(8, results.getDigest(id).array());
-
-					if (results.getMetricName().equals("CalibrationMetric")) {
-						callStatement.setString(7, id);
-					} else {
-						callStatement.setDouble(7, results.getResult(id));
+				connection.setAutoCommit(false);
+				try {
+					if (!doubleRows.isEmpty()) {
+						insertRows(connection, INSERT_METRIC_DATA, "float8", doubleRows);
 					}
-
-					callStatement.executeQuery();
+					if (!textRows.isEmpty()) {
+						insertRows(connection, INSERT_METRIC_DATA, "text", textRows);
+					}
+					connection.commit();
+					result = 0;
+					updateStationDayDigests(resultsList);
+				} catch (SQLException e) {
+					connection.rollback();
+					throw e;
 				}
-				result = 0;
 			} finally {
-				if (callStatement != null)
-					callStatement.close();
-				if (connection != null)
+				if (connection != null) {
+					connection.setAutoCommit(true);
 					connection.close();
+				}
 			}
 		} catch (SQLException e) {
 			logger.error("SQLException:", e);
@@ -370,6 +619,43 @@ public class MetricDatabase {
 		return result;
 	}
 
+	/**
+	 * Binds each column of the rows as an array parameter and executes the
+	 * insert.
+	 */
+	private static void insertRows(Connection connection, String sql, String valueType, List<Object[]> rows)
+			throws SQLException {
+		CallableStatement callStatement = null;
+		try {
+			callStatement = connection.prepareCall(sql);
+			for (int column = 0; column < 8; column++) {
+				Object[] values = new Object[rows.size()];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = rows.get(i)[column];
+				}
+				String type = (column == 6) ? valueType : "varchar";
+				Array array = connection.createArrayOf(type, values);
+				callStatement.setArray(column + 1, array);
+			}
+			callStatement.executeQuery().close();
+		} finally {
+			if (callStatement != null)
+				callStatement.close();
+		}
+	}
+
+	/**
+	 * Hex encodes a digest for decode(..., 'hex').
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
 	/**
 	 * Insert a message (usually an error message) into the database regarding a
 	 * scan.
@@ -0,0 +1,263 @@
+package asl.seedscan.database;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.metadata.Station;
+import asl.seedscan.metrics.MetricResult;
+
+/**
+ * Writes metric results to a {@link MetricDatabase} on a background thread,
+ * so scans do not wait on the database.
+ *
+ * Everything queued since the previous write is stored in a single batch, in
+ * the order it was queued. Finishing a scan is queued behind its results, so a
+ * scan is only marked finished once its results are stored. Results that have
+ * not been stored yet can be read back with
+ * {@link #getPendingResult(LocalDate, String, Station)}.
+ */
+class MetricWriter implements Runnable {
+
+	/** The Constant logger. */
+	private static final Logger logger = LoggerFactory.getLogger(asl.seedscan.database.MetricWriter.class);
+
+	/** Number of queued results at which queueing blocks until some are written. */
+	private static final int MAX_QUEUED = 2000;
+
+	/** Maximum number of queued tasks written in one batch. */
+	private static final int MAX_BATCH = 500;
+
+	/**
+	 * A queued write. Either a result to insert or a scan to mark finished.
+	 */
+	private static class Task {
+		private final MetricResult result;
+		private final UUID finishedScanID;
+
+		private Task(MetricResult result, UUID finishedScanID) {
+			this.result = result;
+			this.finishedScanID = finishedScanID;
+		}
+	}
+
+	/**
+	 * Identifies the result of a metric for a station-day.
+	 */
+	private static class ResultKey {
+		private final LocalDate date;
+		private final String metricName;
+		private final Station station;
+
+		private ResultKey(LocalDate date, String metricName, Station station) {
+			this.date = date;
+			this.metricName = metricName;
+			this.station = station;
+		}
+
+		private ResultKey(MetricResult result) {
+			this(result.getDate(), result.getMetricName(), result.getStation());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(date, metricName, station);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ResultKey)) {
+				return false;
+			}
+			ResultKey other = (ResultKey) obj;
+			return date.equals(other.date) && metricName.equals(other.metricName)
+					&& station.equals(other.station);
+		}
+	}
+
+	private final MetricDatabase database;
+
+	/** Tasks waiting to be written. Guarded by this. */
+	private final LinkedList<Task> queue = new LinkedList<>();
+
+	/** Tasks currently being written. Guarded by this. */
+	private List<Task> inFlight = Collections.emptyList();
+
+	/**
+	 * The most recently queued result of each station-day metric that is
+	 * queued or being written. Guarded by this.
+	 */
+	private final Map<ResultKey, MetricResult> pending = new HashMap<>();
+
+	/** Guarded by this. */
+	private boolean closed = false;
+
+	private final Thread thread;
+
+	/**
+	 * Creates and starts a writer.
+	 *
+	 * @param database
+	 *            the database results are written to
+	 */
+	MetricWriter(MetricDatabase database) {
+		this.database = database;
+		this.thread = new Thread(this, "MetricWriter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Queues a result for insertion. Blocks while the queue is full.
+	 *
+	 * @param result
+	 *            the metric result
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for space in the queue
+	 */
+	synchronized void add(MetricResult result) throws InterruptedException {
+		while (queue.size() >= MAX_QUEUED && !closed) {
+			wait();
+		}
+		if (closed) {
+			throw new IllegalStateException("MetricWriter is closed");
+		}
+		queue.add(new Task(result, null));
+		pending.put(new ResultKey(result), result);
+		notifyAll();
+	}
+
+	/**
+	 * Queues marking a scan finished behind any results already queued.
+	 *
+	 * @param scanID
+	 *            the UUID of the finished station scan
+	 */
+	synchronized void finishScan(UUID scanID) {
+		if (closed) {
+			throw new IllegalStateException("MetricWriter is closed");
+		}
+		queue.add(new Task(null, scanID));
+		notifyAll();
+	}
+
+	/**
+	 * Finds the most recently queued result of a metric for a station-day
+	 * that has not been stored yet.
+	 *
+	 * @param date
+	 *            the date
+	 * @param metricName
+	 *            the metric name
+	 * @param station
+	 *            the station
+	 * @return the result, null if no matching result is waiting to be stored
+	 */
+	synchronized MetricResult getPendingResult(LocalDate date, String metricName, Station station) {
+		return pending.get(new ResultKey(date, metricName, station));
+	}
+
+	/**
+	 * Blocks until everything queued so far has been written.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	synchronized void flush() throws InterruptedException {
+		while (!queue.isEmpty() || !inFlight.isEmpty()) {
+			wait();
+		}
+	}
+
+	/**
+	 * Writes everything still queued and stops the writer thread.
+	 */
+	void close() {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while writing queued metric results");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			List<Task> batch = new ArrayList<>();
+			synchronized (this) {
+				while (queue.isEmpty() && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						logger.error("MetricWriter interrupted, {} tasks not written", queue.size());
+						return;
+					}
+				}
+				if (queue.isEmpty()) {
+					return;
+				}
+				while (!queue.isEmpty() && batch.size() < MAX_BATCH) {
+					batch.add(queue.poll());
+				}
+				inFlight = batch;
+				notifyAll();
+			}
+
+			try {
+				write(batch);
+			} catch (RuntimeException e) {
+				logger.error("Unable to write metric results:", e);
+			} finally {
+				synchronized (this) {
+					for (Task task : batch) {
+						// A result queued again after this one stays pending.
+						if (task.result != null) {
+							pending.remove(new ResultKey(task.result), task.result);
+						}
+					}
+					inFlight = Collections.emptyList();
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inserts the results of a batch, marking scans finished once the results
+	 * queued before them are stored.
+	 */
+	private void write(List<Task> batch) {
+		List<MetricResult> results = new ArrayList<>();
+		for (Task task : batch) {
+			if (task.result != null) {
+				results.add(task.result);
+			} else {
+				if (!results.isEmpty()) {
+					database.insertMetricData(results);
+					results.clear();
+				}
+				database.markScanFinished(task.finishedScanID);
+			}
+		}
+		if (!results.isEmpty()) {
+			database.insertMetricData(results);
+		}
+	}
+}
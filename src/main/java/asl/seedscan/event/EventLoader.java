@@ -44,6 +44,12 @@ public class EventLoader {
 	 */
 	private static Hashtable<String, Hashtable<String, EventCMT>> cmtTree = null;
 
+	/** Maximum size of the samples held by the synthetics cache in bytes. */
+	private static final long SYNTHETICS_CACHE_SIZE = 64L << 20;
+
+	/** Synthetics read and filtered by any scan. */
+	private static final SyntheticsCache syntheticsCache = new SyntheticsCache(SYNTHETICS_CACHE_SIZE);
+
 	/**
 	 * Instantiates a new event loader. This class is instantiated once per
 	 * scanner thread. This is why it is mostly static. It could probably be
@@ -111,6 +117,11 @@ public class EventLoader {
 	 * Gets the day synthetics. This method is dependent on getDayEvents() being
 	 * called first. If not will always return null.
 	 *
+	 * The synthetics are shared with every other scan and must not be
+	 * modified. Use
+	 * {@link #getFilteredSynthetic(String, String, SacTimeSeries, double, double, double, double)}
+	 * to filter them.
+	 *
 	 * @param timestamp
 	 *            the timestamp
 	 * @param station
@@ -162,9 +173,9 @@ public class EventLoader {
 
 			for (File sacFile : sacFiles) {
 				logger.info(String.format("Found sacFile=%s [%s]", sacFile, sacFile.getName()));
-				SacTimeSeries sac = new SacTimeSeries();
+				SacTimeSeries sac;
 				try {
-					sac.read(sacFile);
+					sac = syntheticsCache.getSynthetic(sacFile);
 				} catch (IOException e) {
 					//File didn't read correctly, try next file.
 					logger.error("Exception:", e);
@@ -190,6 +201,32 @@ public class EventLoader {
 		return allEventSynthetics;
 	}
 
+	/**
+	 * Gets a bandpassed copy of a synthetic returned by getDaySynthetics().
+	 * Filtered synthetics are cached, so each one is only filtered once for
+	 * every channel and scan using it.
+	 *
+	 * @param eventId
+	 *            the event id e.g. "C201510260909A"
+	 * @param fileName
+	 *            the synthetic's key e.g. "ANMO.XX.LXZ.modes.sac.proc"
+	 * @param synthetic
+	 *            the synthetic
+	 * @param f1
+	 *            the low frequency at which the taper starts
+	 * @param f2
+	 *            the low corner frequency
+	 * @param f3
+	 *            the high corner frequency
+	 * @param f4
+	 *            the high frequency at which the taper ends
+	 * @return a new array holding the bandpassed samples
+	 */
+	public static double[] getFilteredSynthetic(String eventId, String fileName, SacTimeSeries synthetic,
+			double f1, double f2, double f3, double f4) {
+		return syntheticsCache.getFilteredSynthetic(eventId, fileName, synthetic, f1, f2, f3, f4);
+	}
+
 	/**
 	 * Gets the day events.
 	 *
@@ -0,0 +1,158 @@
+package asl.seedscan.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.timeseries.MyFilter;
+import sac.SacTimeSeries;
+
+/**
+ * Event synthetics shared by every scan.
+ *
+ * Holds the synthetics read from the events directory and bandpassed copies
+ * of them, so scans of the same event days do not read and filter the same
+ * files again. The cache is bounded by the number of samples it holds and
+ * evicts the least recently used synthetics first.
+ *
+ * Cached synthetics are shared between threads and must not be modified.
+ */
+class SyntheticsCache {
+
+	/** The Constant logger. */
+	private static final Logger logger = LoggerFactory.getLogger(asl.seedscan.event.SyntheticsCache.class);
+
+	/**
+	 * A cached synthetic and the version of its source it was created from.
+	 */
+	private static class Entry {
+		private final Object value;
+		private final Object version;
+		private final long size;
+
+		private Entry(Object value, Object version, long size) {
+			this.value = value;
+			this.version = version;
+			this.size = size;
+		}
+	}
+
+	private final long maxSize;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+	private long size = 0;
+
+	/**
+	 * Instantiates a new synthetics cache.
+	 *
+	 * @param maxSize
+	 *            the maximum size of the cached samples in bytes
+	 */
+	SyntheticsCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Reads a synthetic, or returns it from the cache if the file has not
+	 * changed since it was read.
+	 *
+	 * @param sacFile
+	 *            the sac file
+	 * @return the synthetic, must not be modified
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	SacTimeSeries getSynthetic(File sacFile) throws IOException {
+		String key = sacFile.getPath();
+		// Any change to the file changes its length or modification time.
+		Long stamp = 31 * sacFile.length() + sacFile.lastModified();
+		SacTimeSeries sac = (SacTimeSeries) get(key, stamp);
+		if (sac == null) {
+			sac = new SacTimeSeries();
+			sac.read(sacFile);
+			put(key, stamp, sac, (sac.getY() == null) ? 0 : 4L * sac.getY().length);
+		}
+		return sac;
+	}
+
+	/**
+	 * Gets a bandpassed copy of a synthetic. The synthetic itself is not
+	 * modified.
+	 *
+	 * @param eventId
+	 *            the event id e.g. "C201510260909A"
+	 * @param fileName
+	 *            the name of the synthetic's file e.g.
+	 *            "ANMO.XX.LXZ.modes.sac.proc"
+	 * @param synthetic
+	 *            the synthetic as returned by {@link #getSynthetic(File)}
+	 * @param f1
+	 *            the low frequency at which the taper starts
+	 * @param f2
+	 *            the low corner frequency
+	 * @param f3
+	 *            the high corner frequency
+	 * @param f4
+	 *            the high frequency at which the taper ends
+	 * @return a new array holding the bandpassed samples
+	 */
+	double[] getFilteredSynthetic(String eventId, String fileName, SacTimeSeries synthetic, double f1, double f2,
+			double f3, double f4) {
+		String key = String.format("%s/%s [%f-%f-%f-%f]", eventId, fileName, f1, f2, f3, f4);
+		// Filtered copies are only valid for the synthetic they were made
+		// from, which is replaced if its file changes.
+		float[] filtered = (float[]) get(key, synthetic);
+		if (filtered == null) {
+			filtered = MyFilter.bandpass(synthetic.getY(), synthetic.getHeader().getDelta(), f1, f2, f3, f4);
+			put(key, synthetic, filtered, 4L * filtered.length);
+		}
+
+		double[] data = new double[filtered.length];
+		for (int k = 0; k < filtered.length; k++) {
+			data[k] = (double) filtered[k];
+		}
+		return data;
+	}
+
+	private synchronized Object get(String key, Object version) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.version.equals(version)) {
+			remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	private synchronized void put(String key, Object version, Object value, long valueSize) {
+		if (valueSize > maxSize) {
+			return;
+		}
+		remove(key);
+		entries.put(key, new Entry(value, version, valueSize));
+		size += valueSize;
+
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Entry eldest = iterator.next().getValue();
+			iterator.remove();
+			size -= eldest.size;
+		}
+		logger.debug("Cached synthetic [{}], cache size = [{} KB]", key, size >> 10);
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			size -= entry.size;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package asl.seedscan.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.sc.seis.TauP.Arrival;
+import edu.sc.seis.TauP.SphericalCoords;
+import edu.sc.seis.TauP.TauModel;
+import edu.sc.seis.TauP.TauModelException;
+import edu.sc.seis.TauP.TauModelLoader;
+import edu.sc.seis.TauP.TauP_Time;
+
+/**
+ * Travel times of seismic phases through the PREM model, shared by every
+ * scan.
+ *
+ * The model is loaded once and the arrivals computed for an event, a
+ * station location and a list of phases are kept, so metrics computing the
+ * same arrivals for every channel and every scan of an event day do not
+ * compute them again. TauP_Time is not thread safe, so each thread
+ * calculates with its own TauP_Time on the shared model.
+ */
+public class TravelTimes {
+
+	/** The Constant logger. */
+	private static final Logger logger = LoggerFactory.getLogger(asl.seedscan.event.TravelTimes.class);
+
+	/** The earth model arrivals are computed with. */
+	private static final String MODEL_NAME = "prem";
+
+	/** Number of computed arrival lists kept. */
+	private static final int MAX_CACHED_ARRIVALS = 10000;
+
+	/**
+	 * The arrival of a phase at a station.
+	 */
+	public static class PhaseArrival {
+		private final String name;
+		private final double time;
+
+		private PhaseArrival(String name, double time) {
+			this.name = name;
+			this.time = time;
+		}
+
+		/**
+		 * @return the name of the phase e.g. "P"
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the travel time from the event in seconds
+		 */
+		public double getTime() {
+			return time;
+		}
+	}
+
+	/** Lazily loaded by {@link #getModel()}. Guarded by the class. */
+	private static TauModel model = null;
+
+	/** The TauP_Time of each thread, sharing {@link #model}. */
+	private static final ThreadLocal<TauP_Time> timeTools = new ThreadLocal<>();
+
+	/** Computed arrivals by event, station location and phases. Guarded by itself. */
+	private static final Map<String, List<PhaseArrival>> arrivalCache = new LinkedHashMap<String, List<PhaseArrival>>(
+			256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<PhaseArrival>> eldest) {
+			return size() > MAX_CACHED_ARRIVALS;
+		}
+	};
+
+	private TravelTimes() {
+	}
+
+	/**
+	 * Gets the earth model, loading it the first time.
+	 *
+	 * @return the model
+	 * @throws TauModelException
+	 *             if the model could not be loaded
+	 */
+	private static synchronized TauModel getModel() throws TauModelException {
+		if (model == null) {
+			logger.info("Loading travel time model [{}]", MODEL_NAME);
+			model = TauModelLoader.load(MODEL_NAME);
+		}
+		return model;
+	}
+
+	/**
+	 * Gets the arrivals of phases at a station from an event, ordered by
+	 * travel time.
+	 *
+	 * @param eventCMT
+	 *            the event
+	 * @param stationLatitude
+	 *            the station latitude
+	 * @param stationLongitude
+	 *            the station longitude
+	 * @param phases
+	 *            comma separated phase names e.g. "P,S"
+	 * @return the arrivals, empty if none of the phases arrive at the station
+	 * @throws TauModelException
+	 *             if the arrival times are not determinable
+	 */
+	public static List<PhaseArrival> getArrivals(EventCMT eventCMT, double stationLatitude,
+			double stationLongitude, String phases) throws TauModelException {
+		String key = eventCMT.getEventID() + " " + eventCMT.getLatitude() + " " + eventCMT.getLongitude() + " "
+				+ eventCMT.getDepth() + " " + stationLatitude + " " + stationLongitude + " " + phases;
+		List<PhaseArrival> arrivals;
+		synchronized (arrivalCache) {
+			arrivals = arrivalCache.get(key);
+		}
+		if (arrivals != null) {
+			return arrivals;
+		}
+
+		TauP_Time timeTool = timeTools.get();
+		if (timeTool == null) {
+			timeTool = new TauP_Time(getModel());
+			timeTools.set(timeTool);
+		}
+		double greatCircleArc = SphericalCoords.distance(eventCMT.getLatitude(), eventCMT.getLongitude(),
+				stationLatitude, stationLongitude);
+		timeTool.clearPhaseNames();
+		timeTool.parsePhaseList(phases);
+		timeTool.setSourceDepth(eventCMT.getDepth());
+		timeTool.calculate(greatCircleArc);
+
+		arrivals = new ArrayList<>();
+		for (Arrival arrival : timeTool.getArrivals()) {
+			arrivals.add(new PhaseArrival(arrival.getName(), arrival.getTime()));
+		}
+		arrivals = Collections.unmodifiableList(arrivals);
+		// Threads missing the same key at once compute the same arrivals
+		synchronized (arrivalCache) {
+			arrivalCache.put(key, arrivals);
+		}
+		return arrivals;
+	}
+}
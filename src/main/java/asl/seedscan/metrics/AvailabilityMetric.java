@@ -42,6 +42,11 @@ public class AvailabilityMetric extends Metric {
 		return "AvailabilityMetric";
 	}
 
+	@Override
+	public boolean needsSamples() {
+		return false;
+	}
+
 	public void process() {
 		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
 
@@ -53,7 +58,7 @@ public class AvailabilityMetric extends Metric {
 		for (Channel channel : channels) {
 
 			ByteBuffer digest = metricData.valueDigestChanged(channel,
-					createIdentifier(channel), getForceUpdate());
+					createIdentifier(channel), getForceUpdate(), needsSamples());
 
 			if (digest == null) { // means oldDigest == newDigest and we don't
 				// need to recompute the metric
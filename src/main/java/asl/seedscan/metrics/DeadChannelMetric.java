@@ -2,6 +2,8 @@ package asl.seedscan.metrics;
 
 import java.nio.ByteBuffer;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -31,6 +33,15 @@ public class DeadChannelMetric extends PowerBandMetric {
 		return "DeadChannelMetric";
 	}
 
+	/**
+	 * The NLNMDeviationMetric of the same band, read from the database.
+	 */
+	@Override
+	public Collection<String> getDependencies() {
+		String period = getName().split("[:]")[1];
+		return Collections.singletonList("NLNMDeviationMetric:" + period);
+	}
+
 	public void process() {
 		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
 
@@ -2,11 +2,11 @@ package asl.seedscan.metrics;
 
 import asl.metadata.Channel;
 import asl.seedscan.event.EventCMT;
+import asl.seedscan.event.TravelTimes;
+import asl.seedscan.event.TravelTimes.PhaseArrival;
 import asl.timeseries.TimeseriesUtils;
-import edu.sc.seis.TauP.Arrival;
 import edu.sc.seis.TauP.SphericalCoords;
 import edu.sc.seis.TauP.TauModelException;
-import edu.sc.seis.TauP.TauP_Time;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -494,25 +494,19 @@ public class EventComparePWaveOrientation extends Metric {
 
     double eventLatitude = eventCMT.getLatitude();
     double eventLongitude = eventCMT.getLongitude();
-    double eventDepth = eventCMT.getDepth();
     double stationLatitude = stationMeta.getLatitude();
     double stationLongitude = stationMeta.getLongitude();
     double greatCircleArc = SphericalCoords
         .distance(eventLatitude, eventLongitude, stationLatitude, stationLongitude);
-    TauP_Time timeTool;
+    List<PhaseArrival> arrivals;
     try {
-      timeTool = new TauP_Time("prem");
-      timeTool.parsePhaseList("P");
-      timeTool.setSourceDepth(eventDepth);
-      timeTool.calculate(greatCircleArc);
+      arrivals = TravelTimes.getArrivals(eventCMT, stationLatitude, stationLongitude, "P");
     } catch (TauModelException e) {
       //Arrival times are not determinable.
       logger.error(e.getMessage());
       throw new ArrivalTimeException(e.getMessage());
     }
 
-    List<Arrival> arrivals = timeTool.getArrivals();
-
     double arrivalTimeP;
     if (arrivals.get(0).getName().equals("P")) {
       arrivalTimeP = arrivals.get(0).getTime();
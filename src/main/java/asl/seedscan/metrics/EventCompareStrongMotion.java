@@ -16,10 +16,10 @@ import asl.metadata.ChannelArray;
 import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
 import asl.metadata.meta_new.ChannelMetaException;
 import asl.seedscan.event.EventCMT;
-import edu.sc.seis.TauP.Arrival;
+import asl.seedscan.event.TravelTimes;
+import asl.seedscan.event.TravelTimes.PhaseArrival;
 import edu.sc.seis.TauP.SphericalCoords;
 import edu.sc.seis.TauP.TauModelException;
-import edu.sc.seis.TauP.TauP_Time;
 
 public class EventCompareStrongMotion extends Metric {
 	private static final Logger logger = LoggerFactory.getLogger(asl.seedscan.metrics.EventCompareStrongMotion.class);
@@ -281,25 +281,19 @@ public class EventCompareStrongMotion extends Metric {
 	private double[] getEventArrivalTimes(EventCMT eventCMT) {
 		double evla = eventCMT.getLatitude();
 		double evlo = eventCMT.getLongitude();
-		double evdep = eventCMT.getDepth();
 		double stla = stationMeta.getLatitude();
 		double stlo = stationMeta.getLongitude();
 		double gcarc = SphericalCoords.distance(evla, evlo, stla, stlo);
 		double azim = SphericalCoords.azimuth(evla, evlo, stla, stlo);
-		TauP_Time timeTool = null;
+		List<PhaseArrival> arrivals;
 		try {
-			timeTool = new TauP_Time("prem");
-			timeTool.parsePhaseList("P,S");
-			timeTool.setSourceDepth(evdep);
-			timeTool.calculate(gcarc);
+			arrivals = TravelTimes.getArrivals(eventCMT, stla, stlo, "P,S");
 		} catch (TauModelException e) {
 			logger.error(e.getMessage());
 			return null; // Return null since arrival times are not
 							// determinable.
 		}
 
-		List<Arrival> arrivals = timeTool.getArrivals();
-
 		// We could screen by max distance (e.g., 90 deg for P direct)
 		// or by counting arrivals (since you won't get a P arrival beyond about
 		// 97 deg or so)
@@ -19,7 +19,7 @@ import asl.metadata.ChannelArray;
 import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
 import asl.metadata.meta_new.ChannelMetaException;
 import asl.seedscan.event.EventCMT;
-import asl.timeseries.MyFilter;
+import asl.seedscan.event.EventLoader;
 import sac.SacHeader;
 import sac.SacTimeSeries;
 
@@ -157,12 +157,15 @@ public class EventCompareSynthetic extends Metric {
 						}
 
 						SacTimeSeries sacSynthetics = null;
+						double[] baseData = null;
 						String fileKey = getStn() + "." + basechannel[0] + "." + basechannel[1].substring(0, 2)
 								+ channelVal.substring(2, 3) + ".modes.sac.proc";
 						// e.g. "ANMO.XX.LXZ.modes.sac.proc"
 						if (synthetics.containsKey(fileKey)) {
 							sacSynthetics = synthetics.get(fileKey);
-							MyFilter.bandpass(sacSynthetics, FREQUENCY1, FREQUENCY2, FREQUENCY3, FREQUENCY4);
+							// Synthetics are shared, so filter a copy.
+							baseData = EventLoader.getFilteredSynthetic(key, fileKey, sacSynthetics, FREQUENCY1,
+									FREQUENCY2, FREQUENCY3, FREQUENCY4);
 						} else {
 							logger.info("Did not find sac synthetic=[{}] in Hashtable", fileKey);
 							continue; // Try next event
@@ -187,7 +190,6 @@ public class EventCompareSynthetic extends Metric {
 
 						ResponseUnits units = ResponseUnits.DISPLACEMENT;
 
-						double[] baseData = sacArrayToDouble(sacSynthetics);
 						double[] channelData = metricData.getFilteredDisplacement(units, curChannel, eventStartTime,
 								eventEndTime, FREQUENCY1, FREQUENCY2, FREQUENCY3, FREQUENCY4);
 
@@ -238,24 +240,6 @@ public class EventCompareSynthetic extends Metric {
 		return gcal.getTimeInMillis();
 	}
 
-	/**
-	 * Sac array to double.
-	 * 
-	 * @param sac
-	 *            the sac timeseries data
-	 * @return the array list
-	 */
-	private double[] sacArrayToDouble(SacTimeSeries sac) {
-
-		float[] fdata = sac.getY();
-		double[] data = new double[fdata.length];
-		for (int k = 0; k < fdata.length; k++) {
-			data[k] = (double) fdata[k];
-		}
-
-		return data;
-	}
-
 	/**
 	 * Compare 2 double[] arrays between array indices n1 and n2 currently
 	 * doing: SUM[ x(n) * y(n) ] / SUM[ y(n) * y(n) ], where x(n)=data and
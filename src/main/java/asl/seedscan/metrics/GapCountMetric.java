@@ -24,6 +24,11 @@ public class GapCountMetric extends Metric {
 		return "GapCountMetric";
 	}
 
+	@Override
+	public boolean needsSamples() {
+		return false;
+	}
+
 	public void process() {
 		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
 
@@ -44,7 +49,7 @@ public class GapCountMetric extends Metric {
 			}
 
 			ByteBuffer digest = metricData.valueDigestChanged(channel,
-					createIdentifier(channel), getForceUpdate());
+					createIdentifier(channel), getForceUpdate(), needsSamples());
 
 			if (digest == null) { // means oldDigest == newDigest and we don't
 									// need to recompute the metric
@@ -1,6 +1,8 @@
 
 package asl.seedscan.metrics;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
@@ -14,7 +16,6 @@ import asl.metadata.meta_new.StationMeta;
 import asl.seedscan.database.MetricValueIdentifier;
 import asl.seedscan.event.EventCMT;
 import asl.timeseries.CrossPower;
-import asl.timeseries.CrossPowerKey;
 import sac.SacTimeSeries;
 
 /**
@@ -32,9 +33,6 @@ public abstract class Metric {
 	/** The arguments. */
 	private Hashtable<String, String> arguments;
 	
-	/** The cross power map. */
-	private Hashtable<CrossPowerKey, CrossPower> crossPowerMap;
-
 	/** Determines if metric will be forced to recompute and update the database.*/
 	private boolean forceUpdate = false;
 	
@@ -67,7 +65,6 @@ public abstract class Metric {
 	 */
 	public Metric() {
 		arguments = new Hashtable<>();
-		crossPowerMap = new Hashtable<>();
 
 		// MTH: 03-18-13: Added to allow these optional arguments to each
 		// cfg:metric in config.xml
@@ -106,6 +103,29 @@ public abstract class Metric {
 	 */
 	public abstract void process();
 
+	/**
+	 * Gets the names of the metrics whose stored values this metric reads.
+	 * When metrics of a station-day run concurrently, this metric only starts
+	 * once those metrics have finished.
+	 *
+	 * @return the metric names as returned by {@link #getName()}
+	 */
+	public Collection<String> getDependencies() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Reports whether this metric reads the samples of its data. A scan whose
+	 * metrics only use the time ranges, sample counts and timing quality of
+	 * the records loads summaries without decompressing any samples.
+	 *
+	 * @return true unless the metric only needs summaries, see
+	 *         {@link asl.seedsplitter.Sequence#isSummary()}
+	 */
+	public boolean needsSamples() {
+		return true;
+	}
+
 	/**
 	 * Creates the identifier.
 	 *
@@ -132,26 +152,8 @@ public abstract class Metric {
 	}
 
 	/**
-	 * Gets the cross power map.
-	 *
-	 * @return the cross power map
-	 */
-	public Hashtable<CrossPowerKey, CrossPower> getCrossPowerMap() {
-		return crossPowerMap;
-	}
-
-	/**
-	 * Sets the cross power map.
-	 *
-	 * @param crossPowerMap the cross power map
-	 */
-	public void setCrossPowerMap(
-			Hashtable<CrossPowerKey, CrossPower> crossPowerMap) {
-		this.crossPowerMap = crossPowerMap;
-	}
-
-	/**
-	 * Gets the cross power.
+	 * Gets the cross power. Cross powers are kept by the metric data, so
+	 * every metric of a station-day shares them.
 	 *
 	 * @param channelA first channel
 	 * @param channelB second channel
@@ -159,20 +161,11 @@ public abstract class Metric {
 	 * @throws MetricException when CrossPower cannot be created.
 	 */
 	protected CrossPower getCrossPower(Channel channelA, Channel channelB) throws MetricException {
-		CrossPowerKey key = new CrossPowerKey(channelA, channelB);
-		CrossPower crossPower = null;
-
-		if (crossPowerMap.containsKey(key)) {
-			crossPower = crossPowerMap.get(key);
-		} else {
-			try {
-				crossPower = new CrossPower(channelA, channelB, metricData);
-				crossPowerMap.put(key, crossPower);
-			} catch (MetricPSDException | ChannelMetaException e) {
-				throw new MetricException("Unable to create CrossPower", e);
-			}
+		try {
+			return metricData.getCrossPower(channelA, channelB);
+		} catch (MetricPSDException | ChannelMetaException e) {
+			throw new MetricException("Unable to create CrossPower", e);
 		}
-		return crossPower;
 	}
 
 	/**
@@ -1,14 +1,25 @@
 package asl.seedscan.metrics;
 
 import asl.util.Logging;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.math3.complex.Complex;
 import org.slf4j.Logger;
@@ -29,7 +40,11 @@ import asl.seedsplitter.BlockLocator;
 import asl.seedsplitter.ContiguousBlock;
 import asl.seedsplitter.DataSet;
 import asl.seedsplitter.IllegalSampleRateException;
+import asl.seedsplitter.IntSeries;
+import asl.seedsplitter.Sequence;
 import asl.seedsplitter.SequenceRangeException;
+import asl.timeseries.CrossPower;
+import asl.timeseries.CrossPowerKey;
 import asl.timeseries.FFTUtils;
 import asl.timeseries.TimeseriesException;
 import asl.timeseries.TimeseriesUtils;
@@ -47,6 +62,18 @@ public class MetricData implements Serializable {
    */
   private static final long serialVersionUID = 3L;
 
+  /**
+   * The serialized fields. The quality data is serialized as lists of Integer, as before it was
+   * kept in IntSeries, so existing serialized MetricData still loads. See
+   * {@link #writeObject(ObjectOutputStream)}.
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("data", Hashtable.class),
+      new ObjectStreamField("qualityData", Hashtable.class),
+      new ObjectStreamField("randomCal", Hashtable.class),
+      new ObjectStreamField("metadata", StationMeta.class)
+  };
+
   /**
    * The Constant logger.
    */
@@ -61,7 +88,7 @@ public class MetricData implements Serializable {
   /**
    * The quality data.
    */
-  private Hashtable<String, ArrayList<Integer>> qualityData;
+  private Hashtable<String, IntSeries> qualityData;
 
   /**
    * The random calibration.
@@ -87,11 +114,32 @@ public class MetricData implements Serializable {
     this.metricReader = metricReader;
   }
 
+  /**
+   * Detrended day arrays by channel, see {@link #getDetrendedPaddedDayData(Channel)}.
+   */
+  private transient Map<Channel, SoftReference<double[]>> detrendedDayCache;
+
+  /**
+   * Cross powers by channel pair, see {@link #getCrossPower(Channel, Channel)}.
+   */
+  private transient ConcurrentHashMap<CrossPowerKey, FutureTask<CrossPower>> crossPowers;
+
   /**
    * The next metric data.
    */
   private transient MetricData nextMetricData;
 
+  /**
+   * Number of unreleased references to the data, shared by the loaded metric data and its views,
+   * see {@link #release()}. Null after deserialization.
+   */
+  private transient AtomicInteger references;
+
+  /**
+   * True once this instance has released its reference.
+   */
+  private transient boolean released;
+
   /**
    * Gets the next metric data.
    *
@@ -118,13 +166,14 @@ public class MetricData implements Serializable {
    * @param randomCal the random cal
    */
   public MetricData(MetricDatabase metricReader, Hashtable<String, ArrayList<DataSet>> data,
-      Hashtable<String, ArrayList<Integer>> qualityData, StationMeta metadata,
+      Hashtable<String, IntSeries> qualityData, StationMeta metadata,
       Hashtable<String, ArrayList<Blockette320>> randomCal) {
     this.metricReader = metricReader;
     this.data = data;
     this.qualityData = qualityData;
     this.randomCal = randomCal;
     this.metadata = metadata;
+    this.references = new AtomicInteger(1);
   }
 
   /**
@@ -138,6 +187,135 @@ public class MetricData implements Serializable {
     this.metricReader = metricReader;
   }
 
+  /**
+   * Instantiates a new view of already loaded metric data. The view shares the decoded DataSets,
+   * quality and calibration of the source, but has its own data table, metadata and next metric
+   * data. Rotated channels are added to the view's own table and metadata, so several scans can
+   * use the same decoded day without changing it or chaining onto each other's next days.
+   *
+   * @param source the loaded metric data, or another view of it
+   * @param metadata the metadata of the view, not shared with other views
+   */
+  public MetricData(MetricData source, StationMeta metadata) {
+    this.metricReader = source.metricReader;
+    if (source.data != null) {
+      synchronized (source.data) {
+        this.data = new Hashtable<>(source.data);
+      }
+    }
+    this.qualityData = source.qualityData;
+    this.randomCal = source.randomCal;
+    this.metadata = metadata;
+    this.references = source.references;
+    if (references != null) {
+      references.incrementAndGet();
+    }
+  }
+
+  /**
+   * Releases this instance's reference to the data. Once the loaded metric data and every view of
+   * it have been released, samples kept off the heap are returned to their pool, see
+   * {@link DataSet#release()}, and must no longer be read through any of them. Further calls on
+   * the same instance do nothing.
+   */
+  public void release() {
+    synchronized (this) {
+      if (released || references == null) {
+        return;
+      }
+      released = true;
+    }
+    if (references.decrementAndGet() == 0 && data != null) {
+      for (ArrayList<DataSet> dataSets : data.values()) {
+        for (DataSet dataSet : dataSets) {
+          dataSet.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the quality data as lists of Integer.
+   *
+   * @param out the stream
+   * @throws IOException if the stream can not be written
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    Hashtable<String, ArrayList<Integer>> qualities = null;
+    if (qualityData != null) {
+      qualities = new Hashtable<>();
+      for (Map.Entry<String, IntSeries> entry : qualityData.entrySet()) {
+        IntSeries series = entry.getValue();
+        ArrayList<Integer> list = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+          list.add(series.get(i));
+        }
+        qualities.put(entry.getKey(), list);
+      }
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("data", data);
+    fields.put("qualityData", qualities);
+    fields.put("randomCal", randomCal);
+    fields.put("metadata", metadata);
+    out.writeFields();
+  }
+
+  /**
+   * Reads the quality data written as lists of Integer into IntSeries.
+   *
+   * @param in the stream
+   * @throws IOException if the stream can not be read
+   * @throws ClassNotFoundException if a class of the stream is unknown
+   */
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    data = (Hashtable<String, ArrayList<DataSet>>) fields.get("data", null);
+    randomCal = (Hashtable<String, ArrayList<Blockette320>>) fields.get("randomCal", null);
+    metadata = (StationMeta) fields.get("metadata", null);
+    Hashtable<String, ArrayList<Integer>> qualities =
+        (Hashtable<String, ArrayList<Integer>>) fields.get("qualityData", null);
+    if (qualities != null) {
+      qualityData = new Hashtable<>();
+      for (Map.Entry<String, ArrayList<Integer>> entry : qualities.entrySet()) {
+        IntSeries series = new IntSeries(entry.getValue().size());
+        for (Integer quality : entry.getValue()) {
+          series.add(quality);
+        }
+        qualityData.put(entry.getKey(), series);
+      }
+    }
+  }
+
+  /**
+   * Estimates the heap held by the data, quality and calibration tables. Sample blocks are counted
+   * at their full allocated size.
+   *
+   * @return the estimated size in bytes
+   */
+  public long estimateSize() {
+    long size = 0;
+    if (data != null) {
+      for (ArrayList<DataSet> dataSets : data.values()) {
+        for (DataSet dataSet : dataSets) {
+          size += (long) dataSet.getBlockCount() * DataSet.getBlockSize() * Integer.BYTES;
+        }
+      }
+    }
+    if (qualityData != null) {
+      for (IntSeries qualities : qualityData.values()) {
+        size += (long) qualities.size() * Integer.BYTES;
+      }
+    }
+    if (randomCal != null) {
+      for (ArrayList<Blockette320> calibrations : randomCal.values()) {
+        size += calibrations.size() * 256L;
+      }
+    }
+    return size;
+  }
+
   /**
    * Gets the metadata.
    *
@@ -213,14 +391,7 @@ public class MetricData implements Serializable {
     if (data == null) {
       return false;
     }
-    String locationName = location + "-" + name;
-    Set<String> keys = data.keySet();
-    for (String key : keys) { // key looks like "IU_ANMO 00-BHZ (20.0 Hz)"
-      if (key.contains(locationName)) {
-        return true;
-      }
-    }
-    return false;
+    return findDataKey(location + "-" + name) != null;
   }
 
   /**
@@ -234,14 +405,26 @@ public class MetricData implements Serializable {
     if (data == null) {
       return false;
     }
-    String locationName = "-" + name;
-    Set<String> keys = data.keySet();
-    for (String key : keys) { // key looks like "IU_ANMO 00-BHZ (20.0 Hz)"
-      if (key.contains(locationName)) {
-        return true;
+    return findDataKey("-" + name) != null;
+  }
+
+  /**
+   * Finds the first data key containing a location and channel name. Metrics running concurrently
+   * may add rotated channels to the data meanwhile, so the keys are walked holding the table's
+   * lock, which {@link Hashtable#put(Object, Object)} also takes.
+   *
+   * @param locationName e.g. "00-BHZ"
+   * @return the key, e.g. "IU_ANMO 00-BHZ (20.0 Hz)", null if no key contains locationName
+   */
+  private String findDataKey(String locationName) {
+    synchronized (data) {
+      for (String key : data.keySet()) {
+        if (key.contains(locationName)) {
+          return key;
+        }
       }
     }
-    return false;
+    return null;
   }
 
   /**
@@ -271,15 +454,8 @@ public class MetricData implements Serializable {
    * @return {@code ArrayList<DataSet>} = All DataSets for a given channel (e.g., "00-BHZ")
    */
   private ArrayList<DataSet> getChannelData(String location, String name) {
-    String locationName = location + "-" + name;
-    Set<String> keys = data.keySet();
-    for (String key : keys) {
-      // key looks like "IU_ANMO 00-BHZ (20.0 Hz)"
-      if (key.contains(locationName)) {
-        return data.get(key);
-      }
-    }
-    return null;
+    String key = findDataKey(location + "-" + name);
+    return key == null ? null : data.get(key);
   }
 
   /**
@@ -353,7 +529,7 @@ public class MetricData implements Serializable {
    * @param channel the channel
    * @return the channel timing quality data
    */
-  ArrayList<Integer> getChannelTimingQualityData(Channel channel) {
+  IntSeries getChannelTimingQualityData(Channel channel) {
     return getChannelTimingQualityData(channel.getLocation(), channel.getChannel());
   }
 
@@ -364,7 +540,7 @@ public class MetricData implements Serializable {
    * @param name the name
    * @return the channel timing quality data
    */
-  private ArrayList<Integer> getChannelTimingQualityData(String location, String name) {
+  private IntSeries getChannelTimingQualityData(String location, String name) {
     String locationName = location + "-" + name;
     Set<String> keys = qualityData.keySet();
     for (String key : keys) { // key looks like "IU_ANMO 00-BHZ (20.0 Hz)"
@@ -493,11 +669,12 @@ public class MetricData implements Serializable {
     double dt = 1. / srate;
     double df = 1. / (nfft * dt);
 
-    double[] data = new double[timeseries.length];
-    System.arraycopy(timeseries, 0, data, 0, timeseries.length);
-    TimeseriesUtils.detrend(data);
-    TimeseriesUtils.demean(data);
-    TimeseriesUtils.costaper(data, .01);
+    // Zero padded to nfft
+    double[] data = new double[nfft];
+    System.arraycopy(timeseries, 0, data, 0, ndata);
+    TimeseriesUtils.detrend(data, ndata);
+    TimeseriesUtils.demean(data, ndata);
+    TimeseriesUtils.costaper(data, ndata, .01);
 
     double[] freq = new double[nf];
     for (int k = 0; k < nf; k++) {
@@ -507,8 +684,9 @@ public class MetricData implements Serializable {
     // Get the instrument response for requested ResponseUnits
     Complex[] instrumentResponse = chanMeta.getResponse(freq, responseUnits);
 
-    // fft2 returns just the (nf = nfft/2 + 1) positive frequencies
-    Complex[] xfft = FFTUtils.singleSidedFFT(data);
+    // realFFT returns just the (nf = nfft/2 + 1) positive frequencies
+    double[] xfft = new double[2 * nf];
+    FFTUtils.realFFT(data, xfft);
 
     double fNyq = (double) (nf - 1) * df;
 
@@ -526,22 +704,20 @@ public class MetricData implements Serializable {
       // Because Apache's FFT matches our imaginary sign, we don't
       // need a conjugate. If we were using Numerical Recipes we would
       // need to.
-      xfft[k] = xfft[k].divide(instrumentResponse[k]); // Remove
-      // instrument
-      xfft[k] = xfft[k].multiply(taper); // Bandpass
+      Complex filtered = new Complex(xfft[2 * k], xfft[2 * k + 1])
+          .divide(instrumentResponse[k]) // Remove instrument
+          .multiply(taper); // Bandpass
+      xfft[2 * k] = filtered.getReal();
+      xfft[2 * k + 1] = filtered.getImaginary();
     }
 
-    Complex[] cfft = new Complex[nfft];
-    cfft[0] = Complex.ZERO; // DC
-    cfft[nf - 1] = xfft[nf - 1]; // Nyq
-    for (int k = 1; k < nf - 1; k++) { // Reflect spec about the Nyquist
-      // to get -ve freqs
-      cfft[k] = xfft[k];
-      cfft[2 * nf - 2 - k] = xfft[k].conjugate();
-    }
+    xfft[0] = 0.; // DC
+    xfft[1] = 0.;
 
-    Complex[] invertedFFT = FFTUtils.inverseFFT(cfft);
-    return FFTUtils.getRealArray(invertedFFT, ndata);
+    // The inverse of the positive frequencies is the inverse of the spectrum
+    // reflected about the Nyquist
+    FFTUtils.inverseRealFFT(xfft, data);
+    return Arrays.copyOf(data, ndata);
   }
 
   /**
@@ -690,10 +866,98 @@ public class MetricData implements Serializable {
    * DataSets<br>
    * Zero pad any gaps between DataSets.
    *
+   * The array is kept until {@link #releaseDetrendedDayData()} is called or the heap runs low, so
+   * metrics needing the same channel share it.
+   *
    * @param channel the channel
-   * @return the padded day data
+   * @return the padded day data, shared between callers and must not be modified
    */
   public double[] getDetrendedPaddedDayData(Channel channel) {
+    Map<Channel, SoftReference<double[]>> cache = getDetrendedDayCache();
+    SoftReference<double[]> cached = cache.get(channel);
+    double[] data = (cached == null) ? null : cached.get();
+    if (data == null) {
+      data = createDetrendedPaddedDayData(channel);
+      if (data != null) {
+        cache.put(channel, new SoftReference<>(data));
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Releases the day arrays kept by {@link #getDetrendedPaddedDayData(Channel)}. Called once every
+   * metric of the station-day has been computed.
+   */
+  public void releaseDetrendedDayData() {
+    getDetrendedDayCache().clear();
+  }
+
+  private synchronized Map<Channel, SoftReference<double[]>> getDetrendedDayCache() {
+    // Transient, so it is null after deserialization.
+    if (detrendedDayCache == null) {
+      detrendedDayCache = new ConcurrentHashMap<>();
+    }
+    return detrendedDayCache;
+  }
+
+  /**
+   * Gets the cross power of two channels, computing it the first time the pair is requested. A
+   * metric requesting a pair that another metric is computing waits for that result instead of
+   * computing it again.
+   *
+   * @param channelA first channel
+   * @param channelB second channel
+   * @return the cross power, shared by every metric of the station-day
+   * @throws MetricPSDException if the power spectrum can not be computed
+   * @throws ChannelMetaException if the instrument response can not be computed
+   */
+  public CrossPower getCrossPower(Channel channelA, Channel channelB)
+      throws MetricPSDException, ChannelMetaException {
+    CrossPowerKey key = new CrossPowerKey(channelA, channelB);
+    ConcurrentHashMap<CrossPowerKey, FutureTask<CrossPower>> cache = getCrossPowerCache();
+    FutureTask<CrossPower> task = cache.get(key);
+    if (task == null) {
+      FutureTask<CrossPower> newTask = new FutureTask<>(
+          () -> new CrossPower(channelA, channelB, this));
+      task = cache.putIfAbsent(key, newTask);
+      if (task == null) {
+        task = newTask;
+        task.run();
+      }
+    }
+
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MetricPSDException("Interrupted while waiting for CrossPower " + key);
+    } catch (ExecutionException e) {
+      // Failures are not kept, so a later request tries again.
+      cache.remove(key, task);
+      Throwable cause = e.getCause();
+      if (cause instanceof MetricPSDException) {
+        throw (MetricPSDException) cause;
+      } else if (cause instanceof ChannelMetaException) {
+        throw (ChannelMetaException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  private synchronized ConcurrentHashMap<CrossPowerKey, FutureTask<CrossPower>> getCrossPowerCache() {
+    // Transient, so it is null after deserialization.
+    if (crossPowers == null) {
+      crossPowers = new ConcurrentHashMap<>();
+    }
+    return crossPowers;
+  }
+
+  private double[] createDetrendedPaddedDayData(Channel channel) {
     if (!hasChannelData(channel)) {
       logger.warn(String
           .format("== getPaddedDayData(): We have NO data for channel=[%s] date=[%s]\n", channel,
@@ -708,76 +972,109 @@ public class MetricData implements Serializable {
 
     int nPointsPerDay = (int) (86400000000L / interval);
 
-    double[] data = new double[nPointsPerDay];
+    DayAssembler assembler = new DayAssembler(new double[nPointsPerDay]);
 
     long lastEndTime = dayStartTime;
-    int k = 0;
 
-    long xSum = 0;
-    long ySum = 0;
-    long xySum = 0;
-    long xxSum = 0;
-    long count = 0;
     for (DataSet dataset : datasets) {
 			/*microsecs since Jan. 1, 1970*/
       long startTime = dataset.getStartTime();
       long endTime = dataset.getEndTime();
-      int length = dataset.getLength();
 
-      int[] series = dataset.getSeries();
-
-      k += (int) ((startTime - lastEndTime) / interval);
-
-      for (int j = 0; j < length; j++) {
-        xSum += k;
-        ySum += series[j];
-        xySum = xySum + (k * (long) series[j]);
-        xxSum = xxSum + (k * (long) k);
-        k++;
-        count++;
-      }
+      assembler.skip((int) ((startTime - lastEndTime) / interval));
+      dataset.forEachBlock(assembler);
 
       lastEndTime = endTime;
     }
 
-    double slope = (count * xySum - xSum * ySum) / (double) (count * xxSum - xSum * xSum);
-    double yOffset = (ySum - slope * xSum) / (double) count;
+    return assembler.detrend();
+  }
+
+  /**
+   * Copies the data sets of a day into a zero padded array and removes their linear trend, walking
+   * the samples of each data set once.
+   *
+   * The trend is fit against sample positions that count every gap in full, while the samples are
+   * placed after gaps padded with one point less, so {@link #trendIndex} and {@link #dataIndex}
+   * are tracked separately.
+   */
+  private static class DayAssembler implements Sequence.BlockConsumer {
+
+    private final double[] data;
 
-    lastEndTime = dayStartTime;
-    k = 0;
+    /**
+     * Start and end positions in {@link #data} of each data set's samples.
+     */
+    private final ArrayList<int[]> sampleRanges = new ArrayList<>();
 
-    for (int i = 0; i < datasets.size(); i++) {
-      DataSet dataset = datasets.get(i);
-      long startTime = dataset.getStartTime(); // microsecs since Jan. 1,
-      // 1970
-      long endTime = dataset.getEndTime();
-      int length = dataset.getLength();
-      int[] series = dataset.getSeries();
+    private int trendIndex = 0;
+    private int dataIndex = 0;
 
-      if (i == 0) {
-        lastEndTime = dayStartTime;
+    private long xSum = 0;
+    private long ySum = 0;
+    private long xySum = 0;
+    private long xxSum = 0;
+    private long count = 0;
+
+    private DayAssembler(double[] data) {
+      this.data = data;
+    }
+
+    /**
+     * Skips the gap before the next data set.
+     *
+     * @param gapPoints number of sample intervals since the end of the previous data set or the
+     * start of the day
+     */
+    private void skip(int gapPoints) {
+      trendIndex += gapPoints;
+      int npad = gapPoints - 1;
+      if (npad > 0) {
+        // data is already zero filled
+        dataIndex += npad;
       }
-      int npad = (int) ((startTime - lastEndTime) / interval) - 1;
+      sampleRanges.add(new int[]{dataIndex, dataIndex});
+    }
 
-			/*Begin does nothing except increase k by npad*/
-      for (int j = 0; j < npad; j++) {
-        if (k < data.length) {
-          data[k] = 0.;
-        }
+    @Override
+    public void accept(int[] block, int offset, int length) {
+      int k = trendIndex;
+      for (int j = offset; j < offset + length; j++) {
+        xSum += k;
+        ySum += block[j];
+        xySum = xySum + (k * (long) block[j]);
+        xxSum = xxSum + (k * (long) k);
         k++;
       }
-			/*End does nothing*/
+      trendIndex = k;
+      count += length;
 
-      for (int j = 0; j < length; j++) {
-        if (k < data.length) {
-          data[k] = series[j] - k * slope - yOffset;
+      for (int j = offset; j < offset + length; j++) {
+        if (dataIndex < data.length) {
+          data[dataIndex] = block[j];
         }
-        k++;
+        dataIndex++;
       }
+      sampleRanges.get(sampleRanges.size() - 1)[1] = dataIndex;
+    }
 
-      lastEndTime = endTime;
+    /**
+     * Removes the linear trend fit over all samples from the samples, leaving the padding zero.
+     *
+     * @return the detrended day
+     */
+    private double[] detrend() {
+      double slope = (count * xySum - xSum * ySum) / (double) (count * xxSum - xSum * xSum);
+      double yOffset = (ySum - slope * xSum) / (double) count;
+
+      for (int[] range : sampleRanges) {
+        int end = Math.min(range[1], data.length);
+        for (int k = range[0]; k < end; k++) {
+          data[k] = data[k] - k * slope - yOffset;
+        }
+      }
+      return data;
     }
-    return data;
   }
 
   /**
@@ -895,11 +1192,12 @@ public class MetricData implements Serializable {
       String eastString = location + "-" + channelPrefix + "ED"; // e.g.,
       // "10-BHED"
 
-      Set<String> keys = data.keySet();
-      for (String key : keys) {
-        if (key.contains(lookupString)) { // "LH1" --> "LHND" and "LHED"
-          northKey = key.replaceAll(lookupString, northString);
-          eastKey = key.replaceAll(lookupString, eastString);
+      synchronized (data) {
+        for (String key : data.keySet()) {
+          if (key.contains(lookupString)) { // "LH1" --> "LHND" and "LHED"
+            northKey = key.replaceAll(lookupString, northString);
+            eastKey = key.replaceAll(lookupString, eastString);
+          }
         }
       }
 
@@ -1056,8 +1354,25 @@ public class MetricData implements Serializable {
    */
   synchronized ByteBuffer valueDigestChanged(Channel channel, MetricValueIdentifier id,
       boolean forceUpdate) {
+    return valueDigestChanged(channel, id, forceUpdate, true);
+  }
+
+  /**
+   * Determine if the current digest computed for a
+   * channel or channelArray has changed from the value stored in the
+   * database.
+   *
+   * @param channel the channel is translated into a ChannelArray
+   * @param id contains Network, Station, Location, Channel information for identification.
+   * @param forceUpdate set in config.xml. True forces a recompute if old and new digests match.
+   * @param samples false to digest the data without its data points, see {@link
+   * Metric#needsSamples()}
+   * @return hashed digest in a ByteBuffer or null if computation isn't warranted.
+   */
+  synchronized ByteBuffer valueDigestChanged(Channel channel, MetricValueIdentifier id,
+      boolean forceUpdate, boolean samples) {
     ChannelArray channelArray = new ChannelArray(channel.getLocation(), channel.getChannel());
-    return valueDigestChanged(channelArray, id, forceUpdate);
+    return valueDigestChanged(channelArray, id, forceUpdate, samples);
   }
 
   /**
@@ -1074,6 +1389,29 @@ public class MetricData implements Serializable {
    */
   synchronized ByteBuffer valueDigestChanged(ChannelArray channelArray, MetricValueIdentifier id,
       boolean forceUpdate) {
+    return valueDigestChanged(channelArray, id, forceUpdate, true);
+  }
+
+  /**
+   * Determine if the current digest computed for a channel or channelArray
+   * has changed from the value stored in the database.
+   *
+   * If a rotated channel is not located in the metadata, this method will
+   * attempt to rotate the data.
+   *
+   * Metrics that do not read data points digest the start time, sample rate and number of data
+   * points of the data instead, so a summary scan and a full scan of the same data agree. A stored
+   * digest of the data points still counts as unchanged for them.
+   *
+   * @param channelArray Array of 2 or 3 component channels for a single location.
+   * @param id contains Network, Station, Location, Channel information for identification.
+   * @param forceUpdate set in config.xml. True forces a recompute if old and new digests match.
+   * @param samples false to digest the data without its data points, see {@link
+   * Metric#needsSamples()}
+   * @return hashed digest in a ByteBuffer or null if computation isn't warranted.
+   */
+  synchronized ByteBuffer valueDigestChanged(ChannelArray channelArray, MetricValueIdentifier id,
+      boolean forceUpdate, boolean samples) {
     String metricName = id.getMetricName();
     Station station = id.getStation();
     LocalDate date = id.getDate();
@@ -1120,7 +1458,7 @@ public class MetricData implements Serializable {
       return null;
     }
 
-    ByteBuffer newDigest = getHash(channelArray);
+    ByteBuffer newDigest = getHash(channelArray, samples);
     if (newDigest == null) {
       logger.warn("Digest of [{}, {}, {}, {}] = null", strdate, metricName, station, channelId);
     }
@@ -1138,7 +1476,13 @@ public class MetricData implements Serializable {
           .getMetricValueDigest(id.getDate(), id.getMetricName(), id.getStation(),
               id.getChannel());
       if (oldDigest != null) {
-        if (newDigest.compareTo(oldDigest) == 0) {
+        boolean digestsEqual = newDigest.compareTo(oldDigest) == 0;
+        if (!digestsEqual && !samples && hasChannelArrayData(channelArray)) {
+          // Values stored before these metrics left the data points out of their digests
+          ByteBuffer samplesDigest = getHash(channelArray, true);
+          digestsEqual = samplesDigest != null && samplesDigest.compareTo(oldDigest) == 0;
+        }
+        if (digestsEqual) {
           if (forceUpdate) {
 						/*
 						 * Don't do anything --> return the digest to force the
@@ -1174,9 +1518,10 @@ public class MetricData implements Serializable {
    * Gets the hash.
    *
    * @param channelArray the channel array
+   * @param samples false to leave the data points out, see {@link Sequence#getSummaryDigestBytes()}
    * @return the hash
    */
-  private synchronized ByteBuffer getHash(ChannelArray channelArray) {
+  private synchronized ByteBuffer getHash(ChannelArray channelArray, boolean samples) {
     ArrayList<ByteBuffer> digests = new ArrayList<>();
 
     List<Channel> channels = channelArray.getChannels();
@@ -1202,7 +1547,7 @@ public class MetricData implements Serializable {
           return null;
         } else {
           for (DataSet dataset : datasets) {
-            digests.add(dataset.getDigestBytes());
+            digests.add(samples ? dataset.getDigestBytes() : dataset.getSummaryDigestBytes());
           }
         }
       }
@@ -54,6 +54,11 @@ public class MetricResult {
 		digestMap.put(id, digest);
 	}
 
+	public void removeResult(String id) {
+		valueMap.remove(id);
+		digestMap.remove(id);
+	}
+
 	public Double getResult(String id) {
 		return valueMap.get(id);
 	}
@@ -39,6 +39,13 @@ public class MetricWrapper {
 		return arguments.get(name);
 	}
 
+	/**
+	 * @return true if the wrapped metric reads the samples of its data
+	 */
+	public boolean needsSamples() {
+		return arguments.needsSamples();
+	}
+
 	public Metric getNewInstance() throws InstantiationException,
 			IllegalAccessException, NoSuchFieldException {
 
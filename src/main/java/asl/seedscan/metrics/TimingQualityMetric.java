@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import asl.metadata.Channel;
+import asl.seedsplitter.IntSeries;
 
 public class TimingQualityMetric extends Metric {
 	private static final Logger logger = LoggerFactory
@@ -40,6 +41,11 @@ public class TimingQualityMetric extends Metric {
 		return "TimingQualityMetric";
 	}
 
+	@Override
+	public boolean needsSamples() {
+		return false;
+	}
+
 	public void process() {
 		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
 
@@ -55,7 +61,7 @@ public class TimingQualityMetric extends Metric {
 			}
 
 			ByteBuffer digest = metricData.valueDigestChanged(channel,
-					createIdentifier(channel), getForceUpdate());
+					createIdentifier(channel), getForceUpdate(), needsSamples());
 
 			if (digest == null) { // means oldDigest == newDigest and we don't
 				// need to recompute the metric
@@ -83,19 +89,14 @@ public class TimingQualityMetric extends Metric {
 			return NO_RESULT;
 		}
 
-		List<Integer> qualities = metricData.getChannelTimingQualityData(channel);
+		IntSeries qualities = metricData.getChannelTimingQualityData(channel);
 
 		if (qualities == null) {
 			return NO_RESULT;
 		}
 
-		int totalQuality = 0;
-		int totalPoints = 0;
-
-		for (int i = 0; i < qualities.size(); i++) {
-			totalQuality += qualities.get(i);
-			totalPoints++;
-		}
+		long totalQuality = qualities.sum();
+		int totalPoints = qualities.size();
 
 		double averageQuality = 0.;
 
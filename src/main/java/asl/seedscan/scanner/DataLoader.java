@@ -5,7 +5,10 @@ import asl.metadata.meta_new.StationMeta;
 import asl.seedscan.ArchivePath;
 import asl.seedscan.Global;
 import asl.seedscan.metrics.MetricData;
+import asl.seedsplitter.ChannelIndex;
 import asl.seedsplitter.DataSet;
+import asl.seedsplitter.DirectBlockPool;
+import asl.seedsplitter.IntSeries;
 import asl.seedsplitter.SeedSplitter;
 import java.io.File;
 import java.io.FilenameFilter;
@@ -20,6 +23,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seed.Blockette320;
@@ -61,10 +65,17 @@ public abstract class DataLoader {
    * SeedSplitter function: processing times greater than 3 min. will move to
    * the next day
    */
-  private static SplitterObject executeSplitter(File[] files, int timeout, LocalDate timestamp)
-      throws TimeoutException, ExecutionException, InterruptedException {
+  private static SplitterObject executeSplitter(File dir, File[] files, Pattern channelFilter,
+      boolean summary, DirectBlockPool directPool, int processorCount, int timeout,
+      LocalDate timestamp) throws TimeoutException, ExecutionException, InterruptedException {
     Hashtable<String, ArrayList<DataSet>> table = null;
-    SeedSplitter splitter = new SeedSplitter(files);
+    SeedSplitter splitter = new SeedSplitter(files, processorCount);
+    splitter.setSummary(summary);
+    splitter.setDirectBlockPool(directPool);
+    if (channelFilter != null) {
+      splitter.setChannelPattern(channelFilter);
+      splitter.setChannelIndex(ChannelIndex.load(dir, files));
+    }
     ExecutorService executor = Executors.newSingleThreadExecutor();
     Future<Hashtable<String, ArrayList<DataSet>>> future = executor.submit(new Task(splitter));
 
@@ -90,6 +101,25 @@ public abstract class DataLoader {
    * @return complete MetricData object for station day.
    */
   public static MetricData getMetricData(LocalDate date, Station station, ScanManager manager) {
+    return getMetricData(date, station, manager, null, false);
+  }
+
+  /**
+   * Return a MetricData object for the station + timestamp holding only the channels that match
+   * the filter. The day directory's {@link ChannelIndex} is used to skip files and records of
+   * other channels without decoding them.
+   *
+   * @param date The date to load
+   * @param station Station to load
+   * @param manager ScanManager that contains metadata and database for the MetricData
+   * @param channelFilter Pattern the channel codes to load must match, null loads every channel
+   * @param summary true to only read record headers, the loaded DataSets are summaries without
+   * samples, see {@link asl.seedsplitter.Sequence#isSummary()}
+   * @return MetricData object for station day, to be released with {@link MetricData#release()}
+   * once it is no longer used.
+   */
+  public static MetricData getMetricData(LocalDate date, Station station, ScanManager manager,
+      Pattern channelFilter, boolean summary) {
 
     StationMeta stationMeta = manager.metaGenerator.getStationMeta(station, date.atStartOfDay());
     if (stationMeta == null) {
@@ -137,20 +167,57 @@ public abstract class DataLoader {
 
     logger.info(dir.getPath() + " contains " + files.length + " files.");
 
+    String filterKey = channelFilter == null ? null : channelFilter.pattern();
+    long fileStamp = MetricDataCache.getFileStamp(files);
+    File[] dayFiles = files;
+    try {
+      return manager.dataCache.get(station, date, filterKey, summary, fileStamp, stationMeta,
+          () -> loadMetricData(dir, dayFiles, date, station, manager, channelFilter, summary));
+    } catch (InterruptedException e) {
+      logger.error("== InterruptedException: Skipping to next day for [{}]:[{}]\n", station,
+          date.format(DateTimeFormatter.ISO_ORDINAL_DATE));
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Gets the number of SeedSplitProcessor threads to decode a station-day with. The loading
+   * thread is joined by one processor per idle scan thread, the same spare capacity station scans
+   * are split across, so a busy manager decodes each day on a single thread.
+   *
+   * @param manager the manager running the scan
+   * @param fileCount the number of files of the day
+   * @return the number of processors, at least 1 and at most fileCount
+   */
+  private static int getSplitterProcessors(ScanManager manager, int fileCount) {
+    return Math.max(1, Math.min(fileCount, 1 + manager.getIdleThreadCount()));
+  }
+
+  /**
+   * Decodes a station-day for {@link MetricDataCache}. The loaded MetricData carries no metadata,
+   * each view of it gets the metadata of the scan using it.
+   *
+   * @return the loaded MetricData, null if it could not be loaded
+   */
+  private static MetricData loadMetricData(File dir, File[] files, LocalDate date,
+      Station station, ScanManager manager, Pattern channelFilter, boolean summary) {
     // execute SeedSplitter process (180 sec timer will be issued)
     try {
       int timeout = 180;
-      SplitterObject splitObj = executeSplitter(files, timeout, date);
+      SplitterObject splitObj = executeSplitter(dir, files, channelFilter, summary,
+          manager.getDirectBlockPool(), getSplitterProcessors(manager, files.length), timeout,
+          date);
       SeedSplitter splitter = splitObj.splitter;
       Hashtable<String, ArrayList<DataSet>> table = splitObj.table;
 
-      Hashtable<String, ArrayList<Integer>> qualityTable = null;
+      Hashtable<String, IntSeries> qualityTable = null;
       qualityTable = splitter.getQualityTable();
 
       Hashtable<String, ArrayList<Blockette320>> calibrationTable = null;
       calibrationTable = splitter.getCalTable();
 
-      return new MetricData(manager.database, table, qualityTable, stationMeta, calibrationTable);
+      return new MetricData(manager.database, table, qualityTable, null, calibrationTable);
     } catch (TimeoutException e) {
       logger.error("== TimeoutException: Skipping to next day for [{}]:[{}]\n", station,
           date.format(DateTimeFormatter.ISO_ORDINAL_DATE));
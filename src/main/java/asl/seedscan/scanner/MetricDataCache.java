@@ -0,0 +1,387 @@
+package asl.seedscan.scanner;
+
+import asl.metadata.Station;
+import asl.metadata.meta_new.StationMeta;
+import asl.seedscan.metrics.MetricData;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of decoded station-days shared by every scan of a {@link ScanManager}.
+ *
+ * Scans of consecutive days each load the day they scan and the day after, and parallel scans of
+ * overlapping date ranges load the same days again. The cache keeps recently loaded days so they
+ * are only decoded once. It is bounded by the estimated size of the cached data rather than the
+ * number of days, and evicts the least recently used days first.
+ *
+ * Entries remember the size and modification times of the files they were loaded from, so a day
+ * whose files changed is loaded again.
+ *
+ * The cached MetricData is never handed out directly. Callers receive a view of it with their
+ * own metadata, see {@link MetricData#MetricData(MetricData, StationMeta)}, so a scan rotating
+ * channels or attaching its next day does not change the cached day.
+ *
+ * Callers asking for a day that another caller is loading wait for that load instead of decoding
+ * the day again, see {@link #get(Station, LocalDate, String, boolean, long, StationMeta,
+ * Supplier)}.
+ *
+ * The cache holds a reference to each cached day, released when the day leaves the cache, see
+ * {@link MetricData#release()}. Off-heap samples are returned to their pool once the cache and
+ * every view have released the day.
+ */
+public class MetricDataCache {
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(asl.seedscan.scanner.MetricDataCache.class);
+
+  /**
+   * Default share of the maximum heap used by the cache.
+   */
+  private static final int DEFAULT_HEAP_FRACTION = 8;
+
+  /**
+   * Identifies a loaded station-day.
+   */
+  private static class Key {
+
+    private final Station station;
+    private final LocalDate date;
+    private final String channelFilter;
+    private final boolean summary;
+
+    private Key(Station station, LocalDate date, String channelFilter, boolean summary) {
+      this.station = station;
+      this.date = date;
+      this.channelFilter = channelFilter;
+      this.summary = summary;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(station, date, channelFilter, summary);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return station.equals(other.station) && date.equals(other.date)
+          && Objects.equals(channelFilter, other.channelFilter) && summary == other.summary;
+    }
+  }
+
+  /**
+   * A cached station-day and the state of the files it was loaded from.
+   */
+  private static class Entry {
+
+    private final MetricData data;
+    private final long size;
+    private final long fileStamp;
+
+    private Entry(MetricData data, long size, long fileStamp) {
+      this.data = data;
+      this.size = size;
+      this.fileStamp = fileStamp;
+    }
+  }
+
+  /**
+   * A station-day being loaded, waited for by callers asking for it meanwhile.
+   */
+  private static class Load {
+
+    private final long fileStamp;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /**
+     * Number of callers waiting for the load. Guarded by the cache.
+     */
+    private int waiters = 0;
+
+    /**
+     * One reference to the loaded data per waiter, taken before the cache may release the data.
+     * Empty if the load failed. Guarded by the cache.
+     */
+    private final ArrayDeque<MetricData> references = new ArrayDeque<>();
+
+    private Load(long fileStamp) {
+      this.fileStamp = fileStamp;
+    }
+  }
+
+  private final long maxSize;
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private final HashMap<Key, Load> loads = new HashMap<>();
+  private long size = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Creates a cache using an eighth of the maximum heap.
+   */
+  MetricDataCache() {
+    this(Runtime.getRuntime().maxMemory() / DEFAULT_HEAP_FRACTION);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxSize the maximum estimated size of the cached data in bytes, 0 disables caching
+   */
+  MetricDataCache(long maxSize) {
+    this.maxSize = maxSize;
+    logger.info("MetricData cache size = [{} MB]", maxSize >> 20);
+  }
+
+  /**
+   * Combines the lengths and modification times of a day's files into a single value that changes
+   * when any of the files change.
+   *
+   * @param files the files of the day directory
+   * @return the stamp of the files
+   */
+  static long getFileStamp(File[] files) {
+    long stamp = files.length;
+    for (File file : files) {
+      stamp = 31 * stamp + file.getName().hashCode();
+      stamp = 31 * stamp + file.length();
+      stamp = 31 * stamp + file.lastModified();
+    }
+    return stamp;
+  }
+
+  /**
+   * Returns a view of a cached station-day.
+   *
+   * @param station the station
+   * @param date the day
+   * @param channelFilter the channel filter the day was loaded with, may be null
+   * @param summary true if the day was loaded as summaries without samples
+   * @param fileStamp stamp of the day's files, see {@link #getFileStamp(File[])}
+   * @param metadata the metadata of the view
+   * @return a view of the cached data, null if the day is not cached or its files changed
+   */
+  public synchronized MetricData get(Station station, LocalDate date, String channelFilter,
+      boolean summary, long fileStamp, StationMeta metadata) {
+    Entry entry = getEntry(new Key(station, date, channelFilter, summary), fileStamp);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return new MetricData(entry.data, metadata);
+  }
+
+  /**
+   * Returns a view of a station-day, loading it if it is not cached. If another caller is already
+   * loading the day, waits for that load instead of loading it again.
+   *
+   * @param station the station
+   * @param date the day
+   * @param channelFilter the channel filter the day is loaded with, may be null
+   * @param summary true if the day is loaded as summaries without samples
+   * @param fileStamp stamp of the day's files, see {@link #getFileStamp(File[])}
+   * @param metadata the metadata of the view
+   * @param loader loads the day, returns null if it could not be loaded. The cache takes over the
+   * reference to the loaded data.
+   * @return a view of the data, null if it could not be loaded
+   * @throws InterruptedException if interrupted while waiting for another caller's load
+   */
+  public MetricData get(Station station, LocalDate date, String channelFilter, boolean summary,
+      long fileStamp, StationMeta metadata, Supplier<MetricData> loader)
+      throws InterruptedException {
+    Key key = new Key(station, date, channelFilter, summary);
+    Load load;
+    boolean loading = false;
+    synchronized (this) {
+      Entry entry = getEntry(key, fileStamp);
+      if (entry != null) {
+        hits++;
+        return new MetricData(entry.data, metadata);
+      }
+      load = loads.get(key);
+      if (load != null && load.fileStamp == fileStamp) {
+        hits++;
+        load.waiters++;
+      } else {
+        misses++;
+        load = new Load(fileStamp);
+        loads.put(key, load);
+        loading = true;
+      }
+    }
+    // Loaded outside of the lock, so other days are served meanwhile
+    return loading ? load(key, load, metadata, loader) : await(load, metadata);
+  }
+
+  /**
+   * Loads a day in the calling thread and hands the result to the callers waiting for it.
+   */
+  private MetricData load(Key key, Load load, StationMeta metadata,
+      Supplier<MetricData> loader) {
+    MetricData data = null;
+    MetricData view = null;
+    try {
+      data = loader.get();
+    } finally {
+      synchronized (this) {
+        if (loads.get(key) == load) {
+          loads.remove(key);
+        }
+        if (data != null) {
+          for (int i = 0; i < load.waiters; i++) {
+            load.references.add(new MetricData(data, null));
+          }
+          view = new MetricData(data, metadata);
+          add(key, load.fileStamp, data);
+        }
+        load.done.countDown();
+      }
+    }
+    return view;
+  }
+
+  /**
+   * Waits for another caller's load of a day.
+   *
+   * @return a view of the loaded data, null if the load failed
+   */
+  private MetricData await(Load load, StationMeta metadata) throws InterruptedException {
+    try {
+      load.done.await();
+    } catch (InterruptedException e) {
+      synchronized (this) {
+        if (load.done.getCount() > 0) {
+          load.waiters--;
+        } else {
+          MetricData reference = load.references.poll();
+          if (reference != null) {
+            reference.release();
+          }
+        }
+      }
+      throw e;
+    }
+    MetricData reference;
+    synchronized (this) {
+      reference = load.references.poll();
+    }
+    if (reference == null) {
+      return null;
+    }
+    MetricData view = new MetricData(reference, metadata);
+    reference.release();
+    return view;
+  }
+
+  /**
+   * Gets the entry of a cached day, dropping it if its files changed.
+   */
+  private Entry getEntry(Key key, long fileStamp) {
+    Entry entry = entries.get(key);
+    if (entry != null && entry.fileStamp != fileStamp) {
+      logger.debug("Files changed for cached [{}]:[{}], reloading", key.station, key.date);
+      remove(key);
+      entry = null;
+    }
+    return entry;
+  }
+
+  /**
+   * Adds a loaded station-day, evicting the least recently used days until the cache fits. Days
+   * larger than the whole cache are not cached.
+   *
+   * @param station the station
+   * @param date the day
+   * @param channelFilter the channel filter the day was loaded with, may be null
+   * @param summary true if the day was loaded as summaries without samples
+   * @param fileStamp stamp of the day's files, see {@link #getFileStamp(File[])}
+   * @param data the loaded data, the cache takes over the caller's reference to it
+   */
+  public synchronized void put(Station station, LocalDate date, String channelFilter,
+      boolean summary, long fileStamp, MetricData data) {
+    add(new Key(station, date, channelFilter, summary), fileStamp, data);
+  }
+
+  private void add(Key key, long fileStamp, MetricData data) {
+    long dataSize = data.estimateSize();
+    if (dataSize > maxSize) {
+      data.release();
+      return;
+    }
+    remove(key);
+    entries.put(key, new Entry(data, dataSize, fileStamp));
+    size += dataSize;
+
+    Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+    while (size > maxSize && iterator.hasNext()) {
+      Entry eldest = iterator.next().getValue();
+      iterator.remove();
+      size -= eldest.size;
+      eldest.data.release();
+      evictions++;
+    }
+  }
+
+  private void remove(Key key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      size -= entry.size;
+      entry.data.release();
+    }
+  }
+
+  /**
+   * Removes every cached day.
+   */
+  public synchronized void clear() {
+    for (Entry entry : entries.values()) {
+      entry.data.release();
+    }
+    entries.clear();
+    size = 0;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the estimated size of the cached data in bytes
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("MetricDataCache days=%d size=%dMB hits=%d misses=%d evictions=%d",
+        entries.size(), size >> 20, hits, misses, evictions);
+  }
+}
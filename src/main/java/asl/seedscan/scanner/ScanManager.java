@@ -4,7 +4,11 @@ import asl.metadata.MetaGenerator;
 import asl.seedscan.database.MetricDatabase;
 import asl.seedscan.scanner.scanworker.RetrieveScan;
 import asl.seedscan.scanner.scanworker.ScanWorker;
+import asl.seedsplitter.DirectBlockPool;
+import asl.timeseries.PSD;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -19,6 +23,11 @@ public class ScanManager {
   public final MetricDatabase database;
   public final MetaGenerator metaGenerator;
 
+  /**
+   * Decoded station-days shared by every scan.
+   */
+  public final MetricDataCache dataCache;
+
   private long queryWaitTime = 300000;
   private Boolean running = false;
   private Thread scanThread;
@@ -32,9 +41,39 @@ public class ScanManager {
 
   private final BlockingQueue<Runnable> workQueue;
 
+  /**
+   * Pool of threads running the metrics of station-days, null if metrics run on the scanning
+   * thread. Separate from the scanning pool, since scanning threads wait for their metrics.
+   */
+  private final ExecutorService metricPool;
+
+  /**
+   * Off-heap blocks holding the samples of loaded station-days, null if samples are kept on the
+   * heap.
+   */
+  private final DirectBlockPool directBlockPool;
+
   public ScanManager(MetricDatabase database, MetaGenerator metaGenerator) {
+    this(database, metaGenerator, 1);
+  }
+
+  public ScanManager(MetricDatabase database, MetaGenerator metaGenerator,
+      int metricThreadCount) {
+    this(database, metaGenerator, metricThreadCount, false);
+  }
+
+  /**
+   * @param database the database results are stored in
+   * @param metaGenerator the station metadata
+   * @param metricThreadCount number of threads running the metrics of station-days, metrics run
+   * on the scanning thread if 1 or less
+   * @param offHeapSamples true to keep the samples of loaded station-days off the heap
+   */
+  public ScanManager(MetricDatabase database, MetaGenerator metaGenerator,
+      int metricThreadCount, boolean offHeapSamples) {
     this.database = database;
     this.metaGenerator = metaGenerator;
+    this.dataCache = new MetricDataCache();
 
     int threadCount = Runtime.getRuntime().availableProcessors();
     logger.info("Number of Threads to Use = [{}]", threadCount);
@@ -43,6 +82,22 @@ public class ScanManager {
 
     this.threadPool = new ThreadPoolExecutor(threadCount, threadCount, 10, TimeUnit.MINUTES,
         workQueue);
+
+    if (metricThreadCount > 1) {
+      logger.info("Number of Metric Threads to Use = [{}]", metricThreadCount);
+      this.metricPool = Executors.newFixedThreadPool(metricThreadCount);
+    } else {
+      this.metricPool = null;
+    }
+    // High rate PSDs of concurrent metrics share the processors
+    PSD.setSegmentThreads(threadCount / Math.max(metricThreadCount, 1));
+
+    if (offHeapSamples) {
+      logger.info("Keeping samples off the heap");
+      this.directBlockPool = new DirectBlockPool();
+    } else {
+      this.directBlockPool = null;
+    }
   }
 
   /**
@@ -101,6 +156,32 @@ public class ScanManager {
     threadPool.execute(task);
   }
 
+  /**
+   * Estimates how many threads of the pool have nothing to do. Long running tasks use this to
+   * decide whether to split off part of their work.
+   *
+   * @return the number of threads neither running a task nor about to take a queued one
+   */
+  public int getIdleThreadCount() {
+    return threadPool.getCorePoolSize() - threadPool.getActiveCount() - workQueue.size();
+  }
+
+  /**
+   * @return the pool running the metrics of station-days, null if metrics run on the scanning
+   * thread
+   */
+  public ExecutorService getMetricPool() {
+    return metricPool;
+  }
+
+  /**
+   * @return the pool of off-heap blocks for the samples of loaded station-days, null if samples
+   * are kept on the heap
+   */
+  public DirectBlockPool getDirectBlockPool() {
+    return directBlockPool;
+  }
+
   /**
    * Used for testing
    *
@@ -112,11 +193,18 @@ public class ScanManager {
 
   public void halt() {
     logger.info("ScanManager halting");
+    logger.info(dataCache.toString());
+    if (directBlockPool != null) {
+      logger.info(directBlockPool.toString());
+    }
     this.running = false;
     //Kill the Thread.sleep
     if (scanThread != null) {
       scanThread.interrupt();
     }
     threadPool.shutdownNow();
+    if (metricPool != null) {
+      metricPool.shutdownNow();
+    }
   }
 }
@@ -1,5 +1,6 @@
 package asl.seedscan.scanner.scanworker;
 
+import asl.metadata.Channel;
 import asl.metadata.Station;
 import asl.metadata.meta_new.StationMeta;
 import asl.seedscan.Global;
@@ -12,18 +13,32 @@ import asl.seedscan.metrics.MetricResult;
 import asl.seedscan.metrics.MetricWrapper;
 import asl.seedscan.scanner.DataLoader;
 import asl.seedscan.scanner.ScanManager;
-import asl.timeseries.CrossPower;
-import asl.timeseries.CrossPowerKey;
 import asl.util.Logging;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sac.SacTimeSeries;
 
 /**
- * The Class Scan.
+ * Scans a range of days of a station, one day per task.
+ *
+ * Each task scans its first day, then queues the next day of its range with the already loaded
+ * data of that day. While the manager has idle threads, a task splits the rest of its range in
+ * half and queues the second half as a separate task, so the days of a scan spread across the
+ * pool. The scan is finished once every day of it has been scanned.
  */
 public class StationScan extends ScanWorker {
 
@@ -35,6 +50,16 @@ public class StationScan extends ScanWorker {
 
   final LocalDate currentDate;
 
+  /**
+   * Last day of the range this task covers.
+   */
+  final LocalDate lastDate;
+
+  /**
+   * Days of the whole scan not yet scanned, shared by every task of the scan.
+   */
+  private final AtomicLong remainingDays;
+
   /**
    * Data for the day being scanned.
    */
@@ -52,14 +77,11 @@ public class StationScan extends ScanWorker {
    * @param databaseScan The correct database for results.
    */
   StationScan(ScanManager manager, DatabaseScan databaseScan) {
-    super(manager);
-    this.station = new Station(databaseScan.network, databaseScan.station);
-    this.databaseScan = databaseScan;
-    this.currentDate = databaseScan.startDate;
+    this(manager, databaseScan, databaseScan.startDate, null);
   }
 
   /**
-   * Scan a specified day with provided metricData
+   * Scan from a specified day to the end of the scan with provided metricData
    *
    * @param manager The managing object
    * @param databaseScan The correct database for results.
@@ -68,15 +90,35 @@ public class StationScan extends ScanWorker {
    */
   StationScan(ScanManager manager, DatabaseScan databaseScan, LocalDate date,
       MetricData metricData) {
+    this(manager, databaseScan, date, databaseScan.endDate, metricData,
+        new AtomicLong(ChronoUnit.DAYS.between(date, databaseScan.endDate) + 1));
+  }
+
+  /**
+   * Scan a range of days of a scan
+   *
+   * @param manager The managing object
+   * @param databaseScan The correct database for results.
+   * @param date The first day to scan
+   * @param lastDate The last day to scan
+   * @param metricData The first days preloaded MetricData. Can be null
+   * @param remainingDays Days of the scan not yet scanned
+   */
+  private StationScan(ScanManager manager, DatabaseScan databaseScan, LocalDate date,
+      LocalDate lastDate, MetricData metricData, AtomicLong remainingDays) {
     super(manager);
     this.station = new Station(databaseScan.network, databaseScan.station);
     this.databaseScan = databaseScan;
     this.currentDate = date;
+    this.lastDate = lastDate;
     this.currentMetricData = metricData;
+    this.remainingDays = remainingDays;
   }
 
   @Override
   public void run() {
+    LocalDate rangeEnd = lastDate;
+    boolean nextDayQueued = false;
     try {
       logger.debug("Scan Station={} Day={} Thread id=[{}]", station,
           currentDate.format(DateTimeFormatter.ISO_ORDINAL_DATE), Thread.currentThread().getId());
@@ -85,6 +127,7 @@ public class StationScan extends ScanWorker {
       EventLoader eventLoader = new EventLoader(Global.getEventsDir());
 
       LocalDate nextDayTimestamp = currentDate.plusDays(1);
+      rangeEnd = splitRange();
 
       // Get all the channel metadata for this station, for this day
       StationMeta stnMeta = manager.metaGenerator
@@ -97,11 +140,16 @@ public class StationScan extends ScanWorker {
         eventSynthetics = eventLoader.getDaySynthetics(currentDate, station);
       }
 
+      Pattern channelFilter = getChannelFilter(databaseScan.channel);
+      boolean summary = !needSamples();
+
       // May have been passed from previous day
       if (currentMetricData == null) {
-        currentMetricData = DataLoader.getMetricData(currentDate, station, manager);
+        currentMetricData = DataLoader
+            .getMetricData(currentDate, station, manager, channelFilter, summary);
       }
-      nextMetricData = DataLoader.getMetricData(nextDayTimestamp, station, manager);
+      nextMetricData = DataLoader
+          .getMetricData(nextDayTimestamp, station, manager, channelFilter, summary);
 
       if (currentMetricData != null) {
         // This doesn't mean nextMetricData isn't null!
@@ -116,13 +164,8 @@ public class StationScan extends ScanWorker {
       } else {
         stnMeta.printStationInfo();
 
-        // Loop over Metrics to compute, for this station, for this day
-        Hashtable<CrossPowerKey, CrossPower> crossPowerMap = null;
-
-				/*
-         * TODO: The contents of this for loop should be extracted out into a task and run in the pool.
-				 * Skipping adding tests for it now.
-				 */
+        // Create the Metrics to compute, for this station, for this day
+        List<Metric> metrics = new ArrayList<>();
         for (MetricWrapper wrapper : Global.getMetrics()) {
           Metric metric = wrapper.getNewInstance();
           metric.setBaseOutputDir(Global.getPlotsDir());
@@ -138,32 +181,26 @@ public class StationScan extends ScanWorker {
               metric.setEventSynthetics(eventSynthetics);
             }
           }
+          metrics.add(metric);
+        }
 
-          // Hand off the crossPowerMap from metric to metric,
-          // adding to it each time
-          if (crossPowerMap != null) {
-            metric.setCrossPowerMap(crossPowerMap);
-          }
-          metric.process();
-          // Save the current crossPowerMap for the next metric:
-          crossPowerMap = metric.getCrossPowerMap();
-
-          MetricResult results = metric.getMetricResult();
-          if (results != null) {
-            if (manager.database.isConnected()) {
-              manager.database.insertMetricData(results);
-            }
+        ExecutorService metricPool = manager.getMetricPool();
+        if (metricPool == null) {
+          for (Metric metric : metrics) {
+            processMetric(metric, channelFilter);
           }
-        } // end loop over metrics
+        } else {
+          processMetrics(metrics, channelFilter, metricPool);
+        }
       }
       // Insert Next Day task
-      if (nextDayTimestamp.compareTo(databaseScan.endDate) <= 0) {
+      if (nextDayTimestamp.compareTo(rangeEnd) <= 0) {
         manager.addTask(
-            new StationScan(this.manager, this.databaseScan, nextDayTimestamp,
-                this.nextMetricData));
-      } else {
-        // We have finished this station
-        manager.database.finishScan(databaseScan.scanID);
+            new StationScan(this.manager, this.databaseScan, nextDayTimestamp, rangeEnd,
+                this.nextMetricData, this.remainingDays));
+        // The next day's scan releases it
+        nextMetricData = null;
+        nextDayQueued = true;
       }
 
     } catch (Exception e) {
@@ -174,8 +211,166 @@ public class StationScan extends ScanWorker {
               null, null, null, message);
     } finally {
       // Cleanup
+      if (currentMetricData != null) {
+        currentMetricData.releaseDetrendedDayData();
+        currentMetricData.release();
+      }
+      if (nextMetricData != null) {
+        nextMetricData.release();
+      }
       currentMetricData = null;
       nextMetricData = null;
+      manager.database.releaseStationDayDigests(currentDate, station);
+
+      // Days of this range left unscanned after a failure count as done, so the scan is still
+      // finished once the other ranges are.
+      long doneDays = 1;
+      if (!nextDayQueued) {
+        doneDays += ChronoUnit.DAYS.between(currentDate, rangeEnd);
+      }
+      if (remainingDays.addAndGet(-doneDays) == 0) {
+        // We have finished this station
+        manager.database.finishScan(databaseScan.scanID);
+      }
+    }
+  }
+
+  /**
+   * @return true if any configured metric reads samples, otherwise days are loaded as summaries
+   */
+  private static boolean needSamples() {
+    for (MetricWrapper wrapper : Global.getMetrics()) {
+      if (wrapper.needsSamples()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Computes a metric and queues its results.
+   *
+   * @param metric the metric
+   * @param channelFilter pattern of the channel codes that were loaded, null if all were
+   */
+  private void processMetric(Metric metric, Pattern channelFilter) {
+    metric.process();
+
+    MetricResult results = metric.getMetricResult();
+    if (results != null && channelFilter != null) {
+      removeUnscannedResults(results, channelFilter);
+    }
+    if (results != null) {
+      if (manager.database.isConnected()) {
+        manager.database.queueMetricData(results);
+      }
+    }
+  }
+
+  /**
+   * Computes metrics concurrently and waits for all of them. A metric starts once the metrics it
+   * depends on have finished. Only dependencies listed before a metric are waited for, the same
+   * results it would read if the metrics ran one after another.
+   *
+   * @param metrics the metrics in configured order
+   * @param channelFilter pattern of the channel codes that were loaded, null if all were
+   * @param metricPool the pool running the metrics
+   * @throws ExecutionException if a metric failed, after every metric has finished
+   * @throws InterruptedException if interrupted while waiting for the metrics
+   */
+  private void processMetrics(List<Metric> metrics, Pattern channelFilter,
+      ExecutorService metricPool) throws ExecutionException, InterruptedException {
+    Map<String, CompletableFuture<Void>> tasksByName = new HashMap<>();
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    for (Metric metric : metrics) {
+      List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+      for (String name : metric.getDependencies()) {
+        CompletableFuture<Void> dependency = tasksByName.get(name);
+        if (dependency != null) {
+          dependencies.add(dependency);
+        }
+      }
+      // A failed dependency leaves its old stored value, as if the metric had been skipped.
+      CompletableFuture<Void> task = CompletableFuture
+          .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+          .exceptionally(e -> null)
+          .thenRunAsync(() -> processMetric(metric, channelFilter), metricPool);
+      tasksByName.merge(metric.getName(), task, CompletableFuture::allOf);
+      tasks.add(task);
+    }
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).get();
+  }
+
+  /**
+   * Hands the second half of the days after the current day to a new task if the manager has idle
+   * threads.
+   *
+   * @return the last day left to this task
+   */
+  private LocalDate splitRange() {
+    long laterDays = ChronoUnit.DAYS.between(currentDate, lastDate);
+    if (laterDays < 2 || manager.getIdleThreadCount() <= 0) {
+      return lastDate;
+    }
+    LocalDate rangeEnd = currentDate.plusDays(laterDays / 2);
+    LocalDate splitDate = rangeEnd.plusDays(1);
+    logger.debug("Splitting scan of Station={} at Day={}", station,
+        splitDate.format(DateTimeFormatter.ISO_ORDINAL_DATE));
+    manager.addTask(
+        new StationScan(this.manager, this.databaseScan, splitDate, this.lastDate, null,
+            this.remainingDays));
+    return rangeEnd;
+  }
+
+  /**
+   * Builds the pattern of channel codes whose data is loaded for a scan restricted to channels.
+   * Rotated channels and the coherence and difference metrics are computed from the other
+   * components and locations of the same band and instrument, so the whole band and instrument
+   * is loaded for every location.
+   *
+   * @param channels comma separated channel codes the scan is restricted to, may be null
+   * @return the pattern, null if the scan is not restricted to specific channels
+   */
+  static Pattern getChannelFilter(String channels) {
+    if (channels == null || channels.trim().isEmpty()) {
+      return null;
+    }
+    StringJoiner bands = new StringJoiner("|", "(?:", ").*");
+    for (String channel : channels.split(",")) {
+      String band = channel.trim();
+      if (band.length() < 2 || !band.substring(0, 2).matches("[A-Z0-9]{2}")) {
+        // Wildcards or partial codes, load everything.
+        return null;
+      }
+      bands.add(Pattern.quote(band.substring(0, 2)));
+    }
+    return Pattern.compile(bands.toString());
+  }
+
+  /**
+   * Removes results for channels whose data was not loaded. Results covering several channels are
+   * removed if any of them was not loaded.
+   *
+   * @param results the metric's results
+   * @param channelFilter pattern of the channel codes that were loaded
+   */
+  static void removeUnscannedResults(MetricResult results, Pattern channelFilter) {
+    for (String id : new ArrayList<>(results.getIdSet())) {
+      Channel channel;
+      try {
+        channel = MetricResult.createChannel(id);
+      } catch (RuntimeException e) {
+        continue;
+      }
+      if (channel == null) {
+        continue;
+      }
+      for (String code : channel.getChannel().split("-")) {
+        if (!channelFilter.matcher(code).matches()) {
+          results.removeResult(id);
+          break;
+        }
+      }
     }
   }
 
@@ -19,13 +19,17 @@
 
 package asl.seedsplitter;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Joel Edwards
  * 
- *         The ByteBlock class wraps blocks of data read from a stream.
+ *         The ByteBlock class wraps blocks of data read from a stream, or a
+ *         view of a record within a memory mapped file.
  */
 public class ByteBlock {
 	private byte[] m_data = null;
+	private ByteBuffer m_view = null;
 	private int m_skippedBytes = 0;
 	private boolean m_fileEnd = false;
 	private boolean m_lastBlock = false;
@@ -91,6 +95,19 @@ public class ByteBlock {
 		init(data, length, skipped, fileEnd, isLast);
 	}
 
+	/**
+	 * Constructor. The view is kept as is rather than copied.
+	 * 
+	 * @param view
+	 *            The record, between the view's position and limit.
+	 * @param skipped
+	 *            Number of bytes skipped when reading data.
+	 */
+	public ByteBlock(ByteBuffer view, int skipped) {
+		m_view = view.slice();
+		m_skippedBytes = skipped;
+	}
+
 	/**
 	 * Hidden initializer called by all constructors.
 	 * 
@@ -117,20 +134,40 @@ public class ByteBlock {
 	}
 
 	/**
-	 * Returns the data buffer.
+	 * Returns the data buffer. Blocks that wrap a view copy it the first time
+	 * this is called; use {@link #getBuffer()} to avoid the copy.
 	 * 
 	 * @return The data buffer.
 	 */
 	public byte[] getData() {
+		if (m_data == null && m_view != null) {
+			m_data = new byte[m_view.remaining()];
+			m_view.duplicate().get(m_data);
+		}
 		return m_data;
 	}
 
+	/**
+	 * Returns the data as a buffer starting at index zero, without copying.
+	 * 
+	 * @return A view of the data, or null if this block holds no data.
+	 */
+	public ByteBuffer getBuffer() {
+		if (m_view != null) {
+			return m_view.duplicate();
+		}
+		return (m_data == null) ? null : ByteBuffer.wrap(m_data);
+	}
+
 	/**
 	 * Returns the length of the buffer.
 	 * 
 	 * @return The length of the buffer.
 	 */
 	public int getLength() {
+		if (m_view != null) {
+			return m_view.remaining();
+		}
 		return (m_data == null) ? 0 : m_data.length;
 
 	}
@@ -0,0 +1,486 @@
+package asl.seedsplitter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.util.Time;
+import seed.BlockSizeException;
+import seed.IllegalSeednameException;
+import seed.MiniSeed;
+
+/**
+ * Header only index of the channels contained in the MiniSEED files of a day
+ * directory. For every file the index records which channels it holds, and
+ * for each channel the byte ranges of its records, the record count and the
+ * time span covered.
+ *
+ * The index is kept in a sidecar file inside the day directory. Entries are
+ * tied to the size and modification time of the file they describe, and
+ * files that changed since they were indexed are indexed again. If the
+ * sidecar cannot be written (e.g. a read only archive) the index is still
+ * built and used for the current load.
+ *
+ * The index lets the {@link SeedSplitter} skip files, and records within
+ * files, that hold none of the channels being loaded.
+ */
+public class ChannelIndex {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedsplitter.ChannelIndex.class);
+
+	/** Name of the sidecar file kept in each day directory. */
+	public static final String INDEX_FILE_NAME = ".seedscan_channels.idx";
+
+	private static final String HEADER = "# seedscan channel index v1";
+
+	private static final int BLOCK_SIZE = 256;
+
+	/**
+	 * A contiguous range of bytes within a file.
+	 */
+	public static class Range {
+		private long m_offset;
+		private long m_length;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param offset
+		 *            offset of the first byte of the range
+		 * @param length
+		 *            number of bytes in the range
+		 */
+		public Range(long offset, long length) {
+			m_offset = offset;
+			m_length = length;
+		}
+
+		/**
+		 * @return offset of the first byte of the range
+		 */
+		public long getOffset() {
+			return m_offset;
+		}
+
+		/**
+		 * @return number of bytes in the range
+		 */
+		public long getLength() {
+			return m_length;
+		}
+
+		/**
+		 * @return offset of the byte following the range
+		 */
+		public long getEnd() {
+			return m_offset + m_length;
+		}
+	}
+
+	/**
+	 * The records of one channel within one file.
+	 */
+	public static class Entry {
+		private String m_seedname;
+		private int m_recordCount = 0;
+		private long m_startTime = Long.MAX_VALUE;
+		private long m_endTime = Long.MIN_VALUE;
+		private ArrayList<Range> m_ranges = new ArrayList<>();
+
+		private Entry(String seedname) {
+			m_seedname = seedname;
+		}
+
+		/**
+		 * @return the raw seedname in NSCL order, as returned by
+		 *         {@link MiniSeed#crackSeedname(ByteBuffer)}
+		 */
+		public String getSeedname() {
+			return m_seedname;
+		}
+
+		/**
+		 * @return the number of records of this channel in the file
+		 */
+		public int getRecordCount() {
+			return m_recordCount;
+		}
+
+		/**
+		 * @return start time of the earliest record, in microseconds since
+		 *         the epoch
+		 */
+		public long getStartTime() {
+			return m_startTime;
+		}
+
+		/**
+		 * @return time of the last sample of the latest record, in
+		 *         microseconds since the epoch
+		 */
+		public long getEndTime() {
+			return m_endTime;
+		}
+
+		/**
+		 * @return the byte ranges holding this channel's records, in file
+		 *         order
+		 */
+		public List<Range> getRanges() {
+			return Collections.unmodifiableList(m_ranges);
+		}
+
+		/**
+		 * Adds a record to the entry, extending the last range if the record
+		 * directly follows it.
+		 */
+		private void addRecord(long offset, int length, long startTime,
+				long endTime) {
+			m_recordCount++;
+			m_startTime = Math.min(m_startTime, startTime);
+			m_endTime = Math.max(m_endTime, endTime);
+			Range last = m_ranges.isEmpty() ? null : m_ranges.get(m_ranges
+					.size() - 1);
+			if (last != null && last.getEnd() == offset) {
+				last.m_length += length;
+			} else {
+				m_ranges.add(new Range(offset, length));
+			}
+		}
+	}
+
+	/**
+	 * Everything indexed for a single file.
+	 */
+	private static class FileEntry {
+		private long m_size;
+		private long m_modified;
+		private LinkedHashMap<String, Entry> m_channels = new LinkedHashMap<>();
+
+		private FileEntry(long size, long modified) {
+			m_size = size;
+			m_modified = modified;
+		}
+
+		private boolean isCurrent(File file) {
+			return m_size == file.length() && m_modified == file.lastModified();
+		}
+	}
+
+	private File m_directory;
+	private Hashtable<String, FileEntry> m_files = new Hashtable<>();
+
+	private ChannelIndex(File directory) {
+		m_directory = directory;
+	}
+
+	/**
+	 * Loads the index of a day directory, indexing any of the given files
+	 * that are missing from the sidecar or changed since they were indexed.
+	 * The sidecar is rewritten if anything changed.
+	 *
+	 * @param directory
+	 *            the day directory
+	 * @param files
+	 *            the MiniSEED files of the day directory
+	 * @return the index. Files that could not be indexed are left out of it.
+	 */
+	public static ChannelIndex load(File directory, File[] files) {
+		ChannelIndex index = new ChannelIndex(directory);
+		boolean changed = !index.read();
+
+		HashSet<String> names = new HashSet<>();
+		for (File file : files) {
+			names.add(file.getName());
+			FileEntry entry = index.m_files.get(file.getName());
+			if (entry == null || !entry.isCurrent(file)) {
+				index.m_files.remove(file.getName());
+				entry = indexFile(file);
+				if (entry != null) {
+					index.m_files.put(file.getName(), entry);
+				}
+				changed = true;
+			}
+		}
+		changed |= index.m_files.keySet().retainAll(names);
+
+		if (changed) {
+			index.write();
+		}
+		return index;
+	}
+
+	/**
+	 * Determines whether the index holds an up to date entry for a file.
+	 *
+	 * @param file
+	 *            a file of the day directory
+	 * @return true if the file's channels are known
+	 */
+	public boolean contains(File file) {
+		FileEntry entry = m_files.get(file.getName());
+		return entry != null && entry.isCurrent(file);
+	}
+
+	/**
+	 * Returns the channels held by a file.
+	 *
+	 * @param file
+	 *            a file of the day directory
+	 * @return the channel entries of the file, empty if it is not indexed
+	 */
+	public List<Entry> getEntries(File file) {
+		FileEntry entry = m_files.get(file.getName());
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<>(entry.m_channels.values());
+	}
+
+	/**
+	 * Returns the byte ranges of a file holding records that match the
+	 * filters. The filters are applied to the trimmed header fields, the same
+	 * way {@link SeedSplitProcessor} applies them.
+	 *
+	 * @param file
+	 *            a file of the day directory
+	 * @param network
+	 *            network filter, null matches every network
+	 * @param station
+	 *            station filter, null matches every station
+	 * @param location
+	 *            location filter, null matches every location
+	 * @param channel
+	 *            channel filter, null matches every channel
+	 * @return the matching ranges in file order, with adjacent ranges merged
+	 */
+	public List<Range> getRanges(File file, Pattern network, Pattern station,
+			Pattern location, Pattern channel) {
+		ArrayList<Range> ranges = new ArrayList<>();
+		for (Entry entry : getEntries(file)) {
+			String seedname = entry.getSeedname();
+			if (matches(network, seedname.substring(0, 2))
+					&& matches(station, seedname.substring(2, 7))
+					&& matches(location, seedname.substring(10, 12))
+					&& matches(channel, seedname.substring(7, 10))) {
+				ranges.addAll(entry.m_ranges);
+			}
+		}
+		ranges.sort(Comparator.comparingLong(Range::getOffset));
+
+		ArrayList<Range> merged = new ArrayList<>(ranges.size());
+		for (Range range : ranges) {
+			Range last = merged.isEmpty() ? null : merged
+					.get(merged.size() - 1);
+			if (last != null && last.getEnd() == range.getOffset()) {
+				merged.set(merged.size() - 1, new Range(last.getOffset(),
+						last.getLength() + range.getLength()));
+			} else {
+				merged.add(range);
+			}
+		}
+		return merged;
+	}
+
+	private static boolean matches(Pattern pattern, String field) {
+		return pattern == null || pattern.matcher(field.trim()).matches();
+	}
+
+	/**
+	 * Indexes a single file by reading only the fixed header of each record.
+	 * Records are located the same way {@link MappedSeedReader} locates them.
+	 *
+	 * @param file
+	 *            the file to index
+	 * @return the file's entry, or null if the file could not be read
+	 */
+	private static FileEntry indexFile(File file) {
+		long modified = file.lastModified();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			long size = channel.size();
+			FileEntry fileEntry = new FileEntry(size, modified);
+			ByteBuffer chunk = ByteBuffer.allocate(BLOCK_SIZE);
+			long position = 0;
+
+			while (position + BLOCK_SIZE <= size) {
+				chunk.clear();
+				while (chunk.hasRemaining()) {
+					if (channel.read(chunk, position + chunk.position()) < 0) {
+						break;
+					}
+				}
+				if (chunk.hasRemaining()) {
+					break;
+				}
+
+				int recordLength;
+				try {
+					recordLength = MiniSeed.crackBlockSize(chunk);
+				} catch (IllegalSeednameException | BlockSizeException e) {
+					position += BLOCK_SIZE;
+					continue;
+				}
+				if (position + recordLength > size) {
+					break;
+				}
+
+				if (!MiniSeed.crackIsHeartBeat(chunk)) {
+					String seedname = MiniSeed.crackSeedname(chunk);
+					Entry entry = fileEntry.m_channels.get(seedname);
+					if (entry == null) {
+						entry = new Entry(seedname);
+						fileEntry.m_channels.put(seedname, entry);
+					}
+					long startTime = Long.MAX_VALUE;
+					long endTime = Long.MIN_VALUE;
+					try {
+						int[] btime = MiniSeed.crackTime(chunk);
+						startTime = Time.calculateEpochMicroSeconds(Time
+								.btimeToLocalDateTime(
+										MiniSeed.crackYear(chunk),
+										MiniSeed.crackDOY(chunk), btime[0],
+										btime[1], btime[2], btime[3]));
+						endTime = startTime;
+						int nsamp = MiniSeed.crackNsamp(chunk);
+						if (nsamp > 0) {
+							endTime += (nsamp - 1)
+									* DataSet.sampleRateToInterval(MiniSeed
+											.crackRate(chunk));
+						}
+					} catch (IllegalSeednameException | DateTimeException
+							| IllegalSampleRateException e) {
+						// Still indexed, the time span is just not widened.
+					}
+					entry.addRecord(position, recordLength, startTime, endTime);
+				}
+				position += recordLength;
+			}
+			return fileEntry;
+		} catch (IOException e) {
+			logger.error("Unable to index " + file.getPath() + ":", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the sidecar file, if present.
+	 *
+	 * @return true if the sidecar was read, false if it is missing or could
+	 *         not be parsed, in which case the index is left empty.
+	 */
+	private boolean read() {
+		File indexFile = new File(m_directory, INDEX_FILE_NAME);
+		if (!indexFile.isFile()) {
+			return false;
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(indexFile), StandardCharsets.US_ASCII))) {
+			if (!HEADER.equals(reader.readLine())) {
+				return false;
+			}
+			FileEntry fileEntry = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+				if (fields[0].equals("F") && fields.length == 4) {
+					fileEntry = new FileEntry(Long.parseLong(fields[2]),
+							Long.parseLong(fields[3]));
+					m_files.put(fields[1], fileEntry);
+				} else if (fields[0].equals("C") && fields.length == 6
+						&& fileEntry != null && fields[1].length() == 12) {
+					Entry entry = new Entry(fields[1]);
+					entry.m_recordCount = Integer.parseInt(fields[2]);
+					entry.m_startTime = Long.parseLong(fields[3]);
+					entry.m_endTime = Long.parseLong(fields[4]);
+					for (String range : fields[5].split(",")) {
+						String[] bounds = range.split("\\+");
+						entry.m_ranges.add(new Range(Long.parseLong(bounds[0]),
+								Long.parseLong(bounds[1])));
+					}
+					fileEntry.m_channels.put(entry.getSeedname(), entry);
+				} else {
+					throw new IOException("Malformed line: " + line);
+				}
+			}
+			return true;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Discarding channel index {}: {}", indexFile.getPath(),
+					e.getMessage());
+			m_files.clear();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the sidecar file. The index is written to a temporary file which
+	 * then replaces the sidecar, so concurrent readers never see a partial
+	 * index.
+	 */
+	private void write() {
+		File tempFile = null;
+		try {
+			tempFile = File.createTempFile(INDEX_FILE_NAME, ".tmp", m_directory);
+			try (BufferedWriter writer = new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(tempFile),
+							StandardCharsets.US_ASCII))) {
+				writer.write(HEADER);
+				writer.newLine();
+				for (String name : m_files.keySet()) {
+					FileEntry fileEntry = m_files.get(name);
+					writer.write("F\t" + name + "\t" + fileEntry.m_size + "\t"
+							+ fileEntry.m_modified);
+					writer.newLine();
+					for (Entry entry : fileEntry.m_channels.values()) {
+						StringBuilder ranges = new StringBuilder();
+						for (Range range : entry.m_ranges) {
+							if (ranges.length() > 0) {
+								ranges.append(',');
+							}
+							ranges.append(range.getOffset()).append('+')
+									.append(range.getLength());
+						}
+						writer.write("C\t" + entry.getSeedname() + "\t"
+								+ entry.getRecordCount() + "\t"
+								+ entry.getStartTime() + "\t"
+								+ entry.getEndTime() + "\t" + ranges);
+						writer.newLine();
+					}
+				}
+			}
+			Files.move(tempFile.toPath(), new File(m_directory,
+					INDEX_FILE_NAME).toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.debug("Unable to write channel index for {}: {}",
+					m_directory.getPath(), e.getMessage());
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+}
@@ -40,7 +40,32 @@ public class DataSet extends Sequence implements Serializable {
 	 * Constructor.
 	 */
 	public DataSet() {
-		super();
+		this(false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param summary
+	 *            true to only count the data points, see
+	 *            {@link Sequence#extendSummary(int)}
+	 */
+	public DataSet(boolean summary) {
+		this(summary, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param summary
+	 *            true to only count the data points, see
+	 *            {@link Sequence#extendSummary(int)}
+	 * @param directPool
+	 *            the pool of off-heap blocks to keep the data points in, null
+	 *            to keep them on the heap
+	 */
+	public DataSet(boolean summary, DirectBlockPool directPool) {
+		super(summary, directPool);
 		m_network = null;
 		m_station = null;
 		m_location = null;
@@ -0,0 +1,113 @@
+package asl.seedsplitter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a pool of off-heap integer blocks, used by Sequences created with one
+ * instead of integer arrays on the heap. Blocks are carved out of direct
+ * buffers holding many blocks each, and are returned to the pool by
+ * {@link Sequence#release()} so that the off-heap memory is reused rather
+ * than left to the garbage collector.
+ *
+ * Unlike {@link BlockPool}, a DirectBlockPool is shared by every Sequence of
+ * a scan and is thread safe.
+ */
+public class DirectBlockPool {
+	/** The number of blocks allocated at once. */
+	private static final int BLOCKS_PER_BUFFER = 64;
+
+	private final int m_blockSize;
+
+	private final ConcurrentLinkedQueue<IntBuffer> m_pool = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong m_blockCount = new AtomicLong();
+
+	/**
+	 * Constructor for blocks of {@link Sequence#getBlockSize()} data points.
+	 */
+	public DirectBlockPool() {
+		this(Sequence.getBlockSize());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param blockSize
+	 *            The size of each block within the pool.
+	 */
+	DirectBlockPool(int blockSize) {
+		m_blockSize = blockSize;
+	}
+
+	/**
+	 * Returns the block size.
+	 *
+	 * @return An integer value representing the block size.
+	 */
+	public int getBlockSize() {
+		return m_blockSize;
+	}
+
+	/**
+	 * Returns a block to the pool.
+	 *
+	 * @param block
+	 *            The block, previously returned by {@link #getNewBlock()}.
+	 * @throws BlockSizeMismatchException
+	 *             If the size of the added block does not match this pool's
+	 *             block size.
+	 */
+	void addBlock(IntBuffer block) throws BlockSizeMismatchException {
+		if (block.capacity() != m_blockSize) {
+			throw new BlockSizeMismatchException(
+					"BlockSizeMismatchException: block.capacity() != m_blockSize");
+		}
+		m_pool.add(block);
+	}
+
+	/**
+	 * Returns a block from the pool if it contains any blocks, otherwise
+	 * allocates another direct buffer and returns its first block.
+	 *
+	 * @return A block of m_blockSize data points, its contents are undefined.
+	 */
+	IntBuffer getNewBlock() {
+		IntBuffer block = m_pool.poll();
+		if (block == null) {
+			int blockBytes = m_blockSize * Integer.BYTES;
+			ByteBuffer buffer = ByteBuffer.allocateDirect(blockBytes * BLOCKS_PER_BUFFER);
+			for (int i = 0; i < BLOCKS_PER_BUFFER; i++) {
+				buffer.limit((i + 1) * blockBytes);
+				buffer.position(i * blockBytes);
+				IntBuffer slice = buffer.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+				if (block == null) {
+					block = slice;
+				} else {
+					m_pool.add(slice);
+				}
+			}
+			m_blockCount.addAndGet(BLOCKS_PER_BUFFER);
+		}
+		return block;
+	}
+
+	/**
+	 * Returns the off-heap memory allocated by this pool, whether its blocks
+	 * are in use or not.
+	 *
+	 * @return The allocated size in bytes.
+	 */
+	public long getAllocatedBytes() {
+		return m_blockCount.get() * m_blockSize * Integer.BYTES;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DirectBlockPool: [%d MB] allocated, [%d] of [%d] blocks free",
+				getAllocatedBytes() >> 20, m_pool.size(), m_blockCount.get());
+	}
+}
@@ -0,0 +1,117 @@
+package asl.seedsplitter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A growable series of primitive int values, one per record, such as the
+ * timing quality of each MiniSEED record of a channel. Values are kept in a
+ * single int[] rather than boxed in a list.
+ */
+public class IntSeries implements Serializable {
+	/**
+	 * Serial Version UID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] m_values;
+	private int m_size = 0;
+
+	/**
+	 * Constructor.
+	 */
+	public IntSeries() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            The number of values to allocate room for up front.
+	 */
+	public IntSeries(int capacity) {
+		m_values = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Appends a value to the end of the series, growing the backing array if
+	 * it is full.
+	 *
+	 * @param value
+	 *            The value to append.
+	 */
+	public void add(int value) {
+		if (m_size == m_values.length) {
+			m_values = Arrays.copyOf(m_values, m_values.length * 2);
+		}
+		m_values[m_size++] = value;
+	}
+
+	/**
+	 * Returns the value at the given index.
+	 *
+	 * @param index
+	 *            The index of the value.
+	 * @return The value at the index.
+	 * @throws IndexOutOfBoundsException
+	 *             If the index is outside of the series.
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= m_size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+		}
+		return m_values[index];
+	}
+
+	/**
+	 * Returns the number of values in the series.
+	 *
+	 * @return The number of values.
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Returns true if the series contains no values.
+	 *
+	 * @return True if the series is empty.
+	 */
+	public boolean isEmpty() {
+		return m_size == 0;
+	}
+
+	/**
+	 * Returns the sum of all values in the series.
+	 *
+	 * @return The sum as a long so that it does not overflow.
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < m_size; i++) {
+			sum += m_values[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns a copy of the values trimmed to the size of the series.
+	 *
+	 * @return A new int array holding the values.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(m_values, m_size);
+	}
+
+	/**
+	 * Shrinks the backing array to the size of the series.
+	 */
+	public void trimToSize() {
+		if (m_values.length > m_size) {
+			m_values = Arrays.copyOf(m_values, Math.max(m_size, 1));
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package asl.seedsplitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.seedscan.Global;
+import seed.BlockSizeException;
+import seed.IllegalSeednameException;
+import seed.MiniSeed;
+
+/**
+ * Reads MiniSEED records from a memory mapped file and pushes views of them
+ * into one or more queues to be processed by a {@link SeedSplitProcessor}.
+ * Unlike {@link SeedInputStream}, records are never copied onto the heap; each
+ * {@link ByteBlock} is a view over the mapped region, so header cracking works
+ * directly on the file's pages.
+ *
+ * Records are located the same way as in {@link SeedInputStream}: the file is
+ * walked in 256 byte chunks until a chunk with a valid header and blockette
+ * 1000 is found, which gives the length of the record. If byte ranges are
+ * given, only records within those ranges are read.
+ */
+public class MappedSeedReader implements Runnable {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedsplitter.MappedSeedReader.class);
+
+	private static final int BLOCK_SIZE = 256;
+
+	/**
+	 * Largest region mapped at once. Files larger than this are mapped in
+	 * consecutive windows.
+	 */
+	private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+	private File m_file = null;
+	private List<ChannelIndex.Range> m_ranges = null;
+	private List<LinkedBlockingQueue<ByteBlock>> m_queues = null;
+	private boolean m_indicateLast = true;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            The file from which to read MiniSEED records.
+	 * @param queues
+	 *            The processing queues into which the MiniSEED records are
+	 *            placed. See {@link SeedSplitProcessor#getShard(byte[], int)}.
+	 * @param indicateLast
+	 *            An indicator of whether this is the last record for this
+	 *            stream.
+	 */
+	public MappedSeedReader(File file,
+			List<LinkedBlockingQueue<ByteBlock>> queues, boolean indicateLast) {
+		m_file = file;
+		m_queues = queues;
+		m_indicateLast = indicateLast;
+	}
+
+	/**
+	 * Constructor for reading only part of a file.
+	 *
+	 * @param file
+	 *            The file from which to read MiniSEED records.
+	 * @param ranges
+	 *            The byte ranges of the file to read, in file order. Each
+	 *            range must start and end on record boundaries. See
+	 *            {@link ChannelIndex#getRanges}.
+	 * @param queues
+	 *            The processing queues into which the MiniSEED records are
+	 *            placed.
+	 * @param indicateLast
+	 *            An indicator of whether this is the last record for this
+	 *            stream.
+	 */
+	public MappedSeedReader(File file, List<ChannelIndex.Range> ranges,
+			List<LinkedBlockingQueue<ByteBlock>> queues, boolean indicateLast) {
+		this(file, queues, indicateLast);
+		m_ranges = ranges;
+	}
+
+	/**
+	 * Maps the file, walks its records and pushes them into the queues for
+	 * processing. An end of stream marker is always placed into every queue,
+	 * even if the file could not be read.
+	 */
+	@Override
+	public void run() {
+		List<String> qualityFlags = Arrays.asList(Global.getQualityflags()
+				.split(","));
+		boolean allQualities = qualityFlags.contains("All");
+
+		try (RandomAccessFile raf = new RandomAccessFile(m_file, "r");
+				FileChannel channel = raf.getChannel()) {
+			long fileSize = channel.size();
+			List<ChannelIndex.Range> ranges = m_ranges;
+			if (ranges == null) {
+				ranges = Collections.singletonList(new ChannelIndex.Range(0,
+						fileSize));
+			}
+			long windowStart = 0;
+			MappedByteBuffer window = null;
+			int skippedBytes = 0;
+
+			ranges: for (ChannelIndex.Range range : ranges) {
+				long position = range.getOffset();
+				long end = Math.min(range.getEnd(), fileSize);
+				while (position < end && position + BLOCK_SIZE <= fileSize) {
+					if (window == null || position < windowStart
+							|| position + BLOCK_SIZE > windowStart
+									+ window.capacity()) {
+						windowStart = position;
+						window = map(channel, windowStart, fileSize);
+					}
+					int offset = (int) (position - windowStart);
+					ByteBuffer chunk = view(window, offset, BLOCK_SIZE);
+
+					// Restrict the data to the allowed quality flags. Typically
+					// 'D' 'M' 'Q' 'R'
+					int indicator = chunk.get(6) & 0xFF;
+					if (!allQualities
+							&& !qualityFlags.contains(String
+									.valueOf((char) indicator))) {
+						logger.error(String.format(
+								"Skipping bad indicator: 0x%x", indicator));
+						skippedBytes += BLOCK_SIZE;
+						position += BLOCK_SIZE;
+						continue;
+					}
+
+					int recordLength;
+					try {
+						recordLength = MiniSeed.crackBlockSize(chunk);
+					} catch (IllegalSeednameException | BlockSizeException e) {
+						logger.debug("Invalid Format, Skipping Chunk.");
+						logger.error(e.getMessage());
+						skippedBytes += BLOCK_SIZE;
+						position += BLOCK_SIZE;
+						continue;
+					}
+
+					if (position + recordLength > fileSize) {
+						logger.error("Truncated record at byte {} of {}",
+								position, m_file.getName());
+						break ranges;
+					}
+					if (offset + recordLength > window.capacity()) {
+						windowStart = position;
+						window = map(channel, windowStart, fileSize);
+						offset = 0;
+					}
+
+					ByteBuffer record = view(window, offset, recordLength);
+					int shard = SeedSplitProcessor.getShard(record,
+							m_queues.size());
+					m_queues.get(shard).put(new ByteBlock(record, skippedBytes));
+					skippedBytes = 0;
+					position += recordLength;
+				}
+			}
+		} catch (IOException e) {
+			logger.error("IOException:", e);
+		} catch (InterruptedException e) {
+			logger.error("InterruptedException:", e);
+			return;
+		}
+
+		logger.debug("MappedSeedReader Thread> I think we're done here...");
+		ByteBlock marker = m_indicateLast ? new ByteBlock(null, 0, true, true)
+				: new ByteBlock(null, 0, true, false);
+		try {
+			for (LinkedBlockingQueue<ByteBlock> queue : m_queues) {
+				queue.put(marker);
+			}
+		} catch (InterruptedException e) {
+			logger.error("InterruptedException:", e);
+		}
+	}
+
+	/**
+	 * Maps a window of the file starting at the given position. The mapping
+	 * is read only, archives are never modified.
+	 *
+	 * @param channel
+	 *            channel of the file being read
+	 * @param start
+	 *            file position at which the window starts
+	 * @param fileSize
+	 *            size of the file
+	 * @return the mapped window
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	private static MappedByteBuffer map(FileChannel channel, long start,
+			long fileSize) throws IOException {
+		long size = Math.min(MAX_WINDOW_SIZE, fileSize - start);
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+	}
+
+	/**
+	 * Returns a view of length bytes of the window, starting at offset.
+	 *
+	 * @param window
+	 *            the mapped window
+	 * @param offset
+	 *            offset of the view within the window
+	 * @param length
+	 *            length of the view
+	 * @return the view, with index zero at offset
+	 */
+	private static ByteBuffer view(ByteBuffer window, int offset, int length) {
+		ByteBuffer view = window.duplicate();
+		view.limit(offset + length);
+		view.position(offset);
+		return view.slice();
+	}
+}
@@ -5,7 +5,7 @@ import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Formatter;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -27,13 +27,12 @@ import seed.MiniSeed;
 public class SeedInputStream implements Runnable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.seedsplitter.SeedInputStream.class);
-	private static final Formatter formatter = new Formatter();
 
 	private static final int MAX_RECORD_SIZE = 16384;
 	private static final int BLOCK_SIZE = 256;
 
 	private DataInputStream m_inputStream = null;
-	private LinkedBlockingQueue<ByteBlock> m_queue = null;
+	private List<LinkedBlockingQueue<ByteBlock>> m_queues = null;
 	private boolean m_running = false;
 	private byte[] m_buffer = null;
 	private int m_bufferBytes = 0;
@@ -60,8 +59,35 @@ public class SeedInputStream implements Runnable {
 	public SeedInputStream(DataInputStream inStream,
 			LinkedBlockingQueue<ByteBlock> queue, boolean indicateLast,
 			boolean disableDigest) {
+		this(inStream, Collections.singletonList(queue), indicateLast,
+				disableDigest);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * Records are routed to one of the supplied queues based on their channel
+	 * (see {@link SeedSplitProcessor#getShard(byte[], int)}), so that all
+	 * records for a channel are handled by the same processor. End of stream
+	 * markers are placed into every queue.
+	 * 
+	 * @param inStream
+	 *            The stream from which to read MiniSEED records.
+	 * @param queues
+	 *            The processing queues into which the MiniSEED records are
+	 *            placed.
+	 * @param indicateLast
+	 *            An indicator of whether this is the last record for this
+	 *            stream.
+	 * @param disableDigest
+	 *            A flag to disable assembling a digest of this stream's
+	 *            contents.
+	 */
+	public SeedInputStream(DataInputStream inStream,
+			List<LinkedBlockingQueue<ByteBlock>> queues, boolean indicateLast,
+			boolean disableDigest) {
 		m_inputStream = inStream;
-		m_queue = queue;
+		m_queues = queues;
 		m_buffer = new byte[MAX_RECORD_SIZE];
 		m_indicateLast = indicateLast;
 		if (!disableDigest) {
@@ -130,10 +156,8 @@ public class SeedInputStream implements Runnable {
 							BLOCK_SIZE - m_bufferBytes);
 					if (bytesRead < 0) {
 						logger.debug("SeedInputStream Thread> I think we're done here...");
-						if (m_indicateLast) {
-							m_queue.put(last);
-						} else {
-							m_queue.put(end);
+						for (LinkedBlockingQueue<ByteBlock> queue : m_queues) {
+							queue.put(m_indicateLast ? last : end);
 						}
 						m_running = false;
 						continue;
@@ -189,17 +213,18 @@ public class SeedInputStream implements Runnable {
 						{
 							m_skippedBytes += m_bufferBytes;
 							m_bufferBytes = 0;
-							logger.error(formatter
-									.format("Skipping bad indicator: 0x%x\n",
-											indicator).toString());
+							logger.error(String.format(
+									"Skipping bad indicator: 0x%x", indicator));
 						}
 					}
 				} else {
 					m_bufferBytes += m_inputStream.read(m_buffer,
 							m_bufferBytes, recordLength - m_bufferBytes);
 					if (m_bufferBytes == recordLength) {
-						m_queue.put(new ByteBlock(m_buffer, recordLength,
-								m_skippedBytes));
+						int shard = SeedSplitProcessor.getShard(m_buffer,
+								m_queues.size());
+						m_queues.get(shard).put(new ByteBlock(m_buffer,
+								recordLength, m_skippedBytes));
 						m_bufferBytes = 0;
 						m_skippedBytes = 0;
 					}
@@ -208,6 +233,7 @@ public class SeedInputStream implements Runnable {
 				logger.error("IOException:", e);
 			} catch (InterruptedException e) {
 				logger.error("InterruptedException:", e);
+				m_running = false;
 			}
 		}
 	}
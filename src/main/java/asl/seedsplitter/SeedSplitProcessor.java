@@ -2,13 +2,15 @@ package asl.seedsplitter;
 
 import asl.util.Time;
 import edu.iris.dmc.seedcodec.SteimException;
-import java.time.LocalDateTime;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,13 +33,14 @@ public class SeedSplitProcessor implements Runnable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.seedsplitter.SeedSplitProcessor.class);
 
-	private LinkedBlockingQueue<ByteBlock> m_queue;
+	private List<LinkedBlockingQueue<ByteBlock>> m_queues;
+	private int m_currentQueue;
 	private boolean m_running;
 	private Hashtable<String, TreeSet<DataSet>> m_trees = null;
 	private Hashtable<String, ArrayList<DataSet>> m_table = null;
 
 	// MTH:
-	private Hashtable<String, ArrayList<Integer>> m_qualityTable = new Hashtable<>();
+	private Hashtable<String, IntSeries> m_qualityTable = new Hashtable<>();
 	private Hashtable<String, ArrayList<Blockette320>> m_calTable = new Hashtable<>();
 
 	private Pattern m_patternNetwork = null;
@@ -45,6 +48,10 @@ public class SeedSplitProcessor implements Runnable {
 	private Pattern m_patternLocation = null;
 	private Pattern m_patternChannel = null;
 
+	private boolean m_summary = false;
+
+	private DirectBlockPool m_directPool = null;
+
 	/**
 	 * Constructor.
 	 * 
@@ -52,20 +59,36 @@ public class SeedSplitProcessor implements Runnable {
 	 *            The queue from which MiniSEED records are received.
 	 */
 	public SeedSplitProcessor(LinkedBlockingQueue<ByteBlock> queue) {
-		_construct(queue, new Hashtable<>());
+		_construct(Collections.singletonList(queue), new Hashtable<>());
+	}
+
+	/**
+	 * Constructor for records arriving on several queues, one per file read
+	 * in parallel. The queues are drained one after another, moving to the
+	 * next one at a file end marker, so the records of a channel are
+	 * processed in the same order as if the files had been read one at a
+	 * time.
+	 * 
+	 * @param queues
+	 *            The queues from which MiniSEED records are received, in
+	 *            file order. The last one receives the last block marker.
+	 */
+	public SeedSplitProcessor(List<LinkedBlockingQueue<ByteBlock>> queues) {
+		_construct(queues, new Hashtable<>());
 	}
 
 	/**
 	 * Hidden initializer called by every constructor.
 	 * 
-	 * @param queue
-	 *            The queue from which MiniSEED records are received.
+	 * @param queues
+	 *            The queues from which MiniSEED records are received.
 	 * @param table
 	 *            An initial hash table to which new data should be added.
 	 */
-	private void _construct(LinkedBlockingQueue<ByteBlock> queue,
+	private void _construct(List<LinkedBlockingQueue<ByteBlock>> queues,
 			Hashtable<String, ArrayList<DataSet>> table) {
-		m_queue = queue;
+		m_queues = queues;
+		m_currentQueue = 0;
 		m_running = false;
 		m_table = table;
 		m_trees = new Hashtable<>();
@@ -112,6 +135,28 @@ public class SeedSplitProcessor implements Runnable {
 		m_patternChannel = pattern;
 	}
 
+	/**
+	 * Only counts the samples of each record, from its header, instead of
+	 * decompressing them into the DataSets.
+	 * 
+	 * @param summary
+	 *            true to build summary DataSets
+	 */
+	public void setSummary(boolean summary) {
+		m_summary = summary;
+	}
+
+	/**
+	 * Keeps the samples of the DataSets off the heap.
+	 * 
+	 * @param directPool
+	 *            the pool of off-heap blocks, null to keep the samples on the
+	 *            heap
+	 */
+	public void setDirectBlockPool(DirectBlockPool directPool) {
+		m_directPool = directPool;
+	}
+
 	/**
 	 * Returns the populated hash table.
 	 * 
@@ -121,7 +166,7 @@ public class SeedSplitProcessor implements Runnable {
 		return m_table;
 	}
 
-	public Hashtable<String, ArrayList<Integer>> getQualityTable() {
+	public Hashtable<String, IntSeries> getQualityTable() {
 		return m_qualityTable;
 	}
 
@@ -129,11 +174,215 @@ public class SeedSplitProcessor implements Runnable {
 		return m_calTable;
 	}
 
+	/**
+	 * Determines which of several processors a raw MiniSEED record belongs
+	 * to. The shard is derived from the station, channel and network fields
+	 * of the fixed header. The location code is deliberately left out, since
+	 * several raw location codes are normalized into the same channel key
+	 * (e.g. "--" and "" both become "00"), and every record for a given key
+	 * must reach the same processor.
+	 * 
+	 * @param record
+	 *            A raw MiniSEED record.
+	 * @param shardCount
+	 *            The number of processors records are split between.
+	 * @return The shard index, in the range [0, shardCount).
+	 */
+	public static int getShard(byte[] record, int shardCount) {
+		return getShard(ByteBuffer.wrap(record), shardCount);
+	}
+
+	/**
+	 * Determines which of several processors a MiniSEED record view belongs
+	 * to. See {@link #getShard(byte[], int)}.
+	 * 
+	 * @param record
+	 *            A MiniSEED record, starting at index zero of the buffer.
+	 * @param shardCount
+	 *            The number of processors records are split between.
+	 * @return The shard index, in the range [0, shardCount).
+	 */
+	public static int getShard(ByteBuffer record, int shardCount) {
+		if (shardCount <= 1) {
+			return 0;
+		}
+		int hash = 17;
+		// Station (8-12)
+		for (int i = 8; i < 13; i++) {
+			hash = 31 * hash + record.get(i);
+		}
+		// Channel (15-17) and Network (18-19)
+		for (int i = 15; i < 20; i++) {
+			hash = 31 * hash + record.get(i);
+		}
+		return Math.floorMod(hash, shardCount);
+	}
+
 	private volatile int lastSequenceNumber = 0;
 
 	/**
-	 * Pulls {@link ByteBlock}s from the queue and converts the contained SEED
+	 * The network, station, location and channel fields of a record's fixed
+	 * header (bytes 8-19), read without decoding them. Used to look up the
+	 * {@link ChannelName} of a record, one instance is reused as the probe.
+	 */
+	private static final class SeedName {
+		private long head;
+		private int tail;
+
+		private SeedName set(ByteBuffer record) {
+			head = record.getLong(8);
+			tail = record.getInt(16);
+			return this;
+		}
+
+		private SeedName copy() {
+			SeedName copy = new SeedName();
+			copy.head = head;
+			copy.tail = tail;
+			return copy;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(head) + tail;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SeedName)) {
+				return false;
+			}
+			SeedName other = (SeedName) obj;
+			return head == other.head && tail == other.tail;
+		}
+	}
+
+	/**
+	 * The decoded and filtered codes of a {@link SeedName}.
+	 */
+	private static final class ChannelName {
+		private final String network;
+		private final String station;
+		private final String location;
+		private final String channel;
+		private final boolean accepted;
+
+		/** Rate fields and channel of the last record with this name. */
+		private int lastRate;
+		private ChannelState lastState = null;
+
+		private ChannelName(String network, String station, String location, String channel, boolean accepted) {
+			this.network = network;
+			this.station = station;
+			this.location = location;
+			this.channel = channel;
+			this.accepted = accepted;
+		}
+	}
+
+	/**
+	 * Everything collected for one channel key, e.g.
+	 * "IU_ANMO 00-LHZ (1.0 Hz)".
+	 */
+	private static final class ChannelState {
+		private final String key;
+		private final double sampleRate;
+		private final long interval;
+		private final TreeSet<DataSet> tree;
+		private DataSet temp = null;
+		private IntSeries qualities = null;
+		private int recordCount = 0;
+
+		private ChannelState(String key, double sampleRate, long interval, TreeSet<DataSet> tree) {
+			this.key = key;
+			this.sampleRate = sampleRate;
+			this.interval = interval;
+			this.tree = tree;
+		}
+	}
+
+	/**
+	 * Reads a 16 bit field of the fixed header in the record's byte order.
+	 */
+	private static short getShort(ByteBuffer record, int index, boolean swap) {
+		short value = (short) (((record.get(index) & 0xff) << 8) | (record.get(index + 1) & 0xff));
+		return swap ? Short.reverseBytes(value) : value;
+	}
+
+	/**
+	 * Reads the sequence number of a record, the first six bytes of the fixed
+	 * header, without creating a String.
+	 */
+	private static int getSequence(ByteBuffer record) {
+		int sequence = 0;
+		for (int i = 0; i < 6; i++) {
+			int digit = record.get(i) - '0';
+			if (digit >= 0 && digit <= 9) {
+				sequence = 10 * sequence + digit;
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * Decodes the channel codes of a record and checks them against the
+	 * filter patterns.
+	 * 
+	 * @param record
+	 *            A MiniSEED record, starting at index zero of the buffer.
+	 * @return The record's channel name.
+	 */
+	private ChannelName createChannelName(ByteBuffer record) {
+		String seedstring = MiniSeed.crackSeedname(record);
+		String network = seedstring.substring(0, 2).trim();
+		String station = seedstring.substring(2, 7).trim();
+		String location = seedstring.substring(10, 12).trim();
+		String channel = seedstring.substring(7, 10).trim();
+		boolean accepted = matches(m_patternNetwork, network) && matches(m_patternStation, station)
+				&& matches(m_patternLocation, location) && matches(m_patternChannel, channel);
+
+		// Set the default location codes
+		if (location.equals("--") || location.equals("")) {
+			logger.debug("miniseed channel=[{}] location=[{}] was changed to [00]",
+							channel, location);
+			location = "00";
+		}
+		if (location.equals("HR")) {
+			logger.debug("miniseed channel=[{}] location=[{}] was changed to [10]",
+							channel, location);
+			location = "10";
+		}
+		return new ChannelName(network, station, location, channel, accepted);
+	}
+
+	private static boolean matches(Pattern pattern, String code) {
+		return pattern == null || pattern.matcher(code).matches();
+	}
+
+	/**
+	 * Takes the next block from the current queue, moving on to the next
+	 * queue once a file end marker has been taken.
+	 * 
+	 * @return the block
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a block
+	 */
+	private ByteBlock takeBlock() throws InterruptedException {
+		ByteBlock block = m_queues.get(m_currentQueue).take();
+		if (block.isEnd() && !block.isLast() && m_currentQueue < m_queues.size() - 1) {
+			m_currentQueue++;
+		}
+		return block;
+	}
+
+	/**
+	 * Pulls {@link ByteBlock}s from the queues and converts the contained SEED
 	 * records into one or more {@link DataSet} object.
+	 * 
+	 * Records are matched to their channel by the raw name and rate fields
+	 * of the fixed header. The channel codes, filters, key and sample
+	 * interval are only worked out the first time a name and rate are seen,
+	 * and each record's header is parsed once.
 	 */
 	@Override
 	public void run() {
@@ -142,28 +391,18 @@ public class SeedSplitProcessor implements Runnable {
 		MiniSeed record = null;
 		DataSet tempData = null;
 
-		String network = null;
-		String station = null;
-		String location = null;
-		String channel = null;
-		double sampleRate = 0.0;
-		long interval = 0;
-
 		long startTime = 0;
 
-		byte[] recordBytes = null;
-		int[] samples = null;
+		ByteBuffer recordBuffer = null;
 
-		String seedstring = null;
 		// total number of bytes that have been received from the queue
 		long byteTotal = 0;
 		SeedSplitProgress progress = null;
-		String key = null;
 		TreeSet<DataSet> tree = null;
-		Hashtable<String, DataSet> temps = new Hashtable<>();
-		Hashtable<String, Integer> recordCounts = new Hashtable<>();
 
-		Matcher matcher = null;
+		SeedName seedName = new SeedName();
+		HashMap<SeedName, ChannelName> names = new HashMap<>();
+		HashMap<String, ChannelState> states = new HashMap<>();
 
 		int kept = 0;
 		int discarded = 0;
@@ -172,106 +411,71 @@ public class SeedSplitProcessor implements Runnable {
 		while (m_running) {
 			progress: {
 				try {
-					block = m_queue.take();
+					block = takeBlock();
 					// even if we don't end up using this data, it counts toward
 					// our progress
 					byteTotal += block.getLength();
 					byteTotal += block.getSkippedBytes();
 					progress = new SeedSplitProgress(byteTotal);
-					recordBytes = block.getData();
+					recordBuffer = block.getBuffer();
 					if (block.isLast()) {
 						m_running = false;
 					} else if (block.isEnd()) {
 						progress.setFileDone(true);
-					} else if (MiniSeed.crackIsHeartBeat(recordBytes)) {
+					} else if (MiniSeed.crackIsHeartBeat(recordBuffer)) {
 						logger.debug("Found HEARTBEAT record!");
 					} else { // MTH
-						seedstring = MiniSeed.crackSeedname(recordBytes);
-						network = seedstring.substring(0, 2).trim();
-						if (m_patternNetwork != null) {
-							matcher = m_patternNetwork.matcher(network);
-							if (!matcher.matches()) {
-								discarded++;
-								break progress;
-							}
+						ChannelName name = names.get(seedName.set(recordBuffer));
+						if (name == null) {
+							name = createChannelName(recordBuffer);
+							names.put(seedName.copy(), name);
 						}
-						station = seedstring.substring(2, 7).trim();
-						if (m_patternStation != null) {
-							matcher = m_patternStation.matcher(station);
-							if (!matcher.matches()) {
-								discarded++;
-								break progress;
-							}
+						if (!name.accepted) {
+							discarded++;
+							break progress;
 						}
-						location = seedstring.substring(10, 12).trim();
-						if (m_patternLocation != null) {
-							matcher = m_patternLocation.matcher(location);
-							if (!matcher.matches()) {
+
+						record = new MiniSeed(recordBuffer);
+						boolean swap = record.isSwapBytes();
+
+						int rate = (record.getRateFactor() << 16) | (record.getRateMultiplier() & 0xffff);
+						ChannelState state = name.lastState;
+						if (state == null || name.lastRate != rate) {
+							double sampleRate = record.getRate();
+							long interval;
+							try {
+								interval = DataSet.sampleRateToInterval(sampleRate);
+							} catch (IllegalSampleRateException e) {
+								logger.error("Illegal Sample Rate: sequence #{}, rate = {}", record.getSequence(),
+										sampleRate);
 								discarded++;
 								break progress;
 							}
-						}
-						channel = seedstring.substring(7, 10).trim();
-						if (m_patternChannel != null) {
-							matcher = m_patternChannel.matcher(channel);
-							if (!matcher.matches()) {
-								discarded++;
-								break progress;
+							String key = String.format("%s_%s %s-%s (%.1f Hz)", name.network, name.station,
+									name.location, name.channel, sampleRate);
+							state = states.get(key);
+							if (state == null) {
+								logger.debug(key);
+								tree = new TreeSet<>();
+								m_trees.put(key, tree);
+								state = new ChannelState(key, sampleRate, interval, tree);
+								states.put(key, state);
 							}
-						}
-
-						// Set the default location codes
-						if (location.equals("--") || location.equals("")
-								|| location == null) {
-							logger.debug("miniseed channel=[{}] location=[{}] was changed to [00]",
-											channel, location);
-							location = "00";
-						}
-						if (location.equals("HR")) {
-							logger.debug("miniseed channel=[{}] location=[{}] was changed to [10]",
-											channel, location);
-							location = "10";
-						}
-
-						sampleRate = MiniSeed.crackRate(recordBytes);
-						try {
-							interval = DataSet.sampleRateToInterval(sampleRate);
-						} catch (IllegalSampleRateException e) {
-							MiniSeed ms = new MiniSeed(recordBytes);
-							logger.error("Illegal Sample Rate: sequence #{}, rate = {}", ms.getSequence(), sampleRate);
-							discarded++;
-							break progress;
+							name.lastRate = rate;
+							name.lastState = state;
 						}
 						kept++;
-						logger.debug(String.format("%s_%s %s-%s", network,
-								station, location, channel));
-						key = String.format("%s_%s %s-%s (%.1f Hz)", network,
-								station, location, channel, sampleRate);
-
-						if (!recordCounts.containsKey(key)) {
-							recordCounts.put(key, 1);
-						} else {
-							recordCounts.put(key, recordCounts.get(key) + 1);
-						}
-
-						int year = MiniSeed.crackYear(recordBytes);
-						int doy = MiniSeed.crackDOY(recordBytes);
+						state.recordCount++;
 
 						/*See SEED manual Chapter 3*/
-						int[] btime = MiniSeed.crackTime(recordBytes);
-
-						LocalDateTime dateTime = Time.btimeToLocalDateTime(year, doy, btime[0], btime[1], btime[2], btime[3]);
-
-						startTime = Time.calculateEpochMicroSeconds(dateTime);
+						startTime = Time.btimeToEpochMicroSeconds(getShort(recordBuffer, 20, swap),
+								getShort(recordBuffer, 22, swap), recordBuffer.get(24) & 0xff,
+								recordBuffer.get(25) & 0xff, recordBuffer.get(26) & 0xff,
+								getShort(recordBuffer, 28, swap) & 0xffff);
 
-						tempData = temps.getOrDefault(key, null);
-
-						if (!m_trees.containsKey(key)) {
-							tree = new TreeSet<>();
-							m_trees.put(key, tree);
-						} else {
-							tree = m_trees.get(key);
-						}
+						tempData = state.temp;
+						tree = state.tree;
+						long interval = state.interval;
 
 						// Allow for a fudge factor of 1 millisecond if sample
 						// rate is less than 100 Hz.
@@ -293,23 +497,23 @@ public class SeedSplitProcessor implements Runnable {
 							// (VIM-HACK) }
 							replaceDataSet = true;
 						} else {
-							MiniSeed ms = new MiniSeed(recordBytes);
 							if ((startTime - tempData.getEndTime()) < (interval - intervalAdjustment)) {
 								// if ((startTime - tempData.getEndTime()) <
 								// interval) {
 								// (VIM-HACK) }
 								replaceDataSet = true;
+								int sequence = getSequence(recordBuffer);
 								logger
 										.error("Found data overlap <{}] - [{}> sequence #{}.!\n",
 														DataSet.timestampToString(tempData
 																.getEndTime()),
 														DataSet.timestampToString(startTime),
-														ms.getSequence());
-								if (ms.getSequence() <= lastSequenceNumber) {
+														sequence);
+								if (sequence <= lastSequenceNumber) {
 									logger
 											.error("Out of sequence last={} current={}",
 															lastSequenceNumber,
-															ms.getSequence());
+															sequence);
 								}
 								// throw new SeedRecordOverlapException();
 							}
@@ -330,62 +534,72 @@ public class SeedSplitProcessor implements Runnable {
 																	.getInterval() + 1),
 													tempData.getLength());
 									tempData = null;
-									temps.remove(key);
+									state.temp = null;
 								}
 								logger.debug("Creating new DataSet");
-								tempData = new DataSet();
-								tempData.setNetwork(network);
-								tempData.setStation(station);
-								tempData.setLocation(location);
-								tempData.setChannel(channel);
+								tempData = new DataSet(m_summary, m_directPool);
+								tempData.setNetwork(name.network);
+								tempData.setStation(name.station);
+								tempData.setLocation(name.location);
+								tempData.setChannel(name.channel);
 								tempData.setStartTime(startTime);
 								try {
-									tempData.setSampleRate(sampleRate);
+									tempData.setSampleRate(state.sampleRate);
 								} catch (RuntimeException e) {
-									MiniSeed ms = new MiniSeed(recordBytes);
 									logger.error(String.format(
 											"Invalid Start Time: sequence #%d",
-											ms.getSequence()), e.getMessage());
+											record.getSequence()), e.getMessage());
 									tempData = null;
 									break progress;
 								} catch (IllegalSampleRateException e) {
-									MiniSeed ms = new MiniSeed(recordBytes);
 									logger
 											.error(String
 													.format("Invalid Sample Rate: sequence #%d, rate = %f",
-															ms.getSequence(),
-															ms.getRate()), e.getMessage());
+															record.getSequence(),
+															record.getRate()), e.getMessage());
 									tempData = null;
 									break progress;
 								}
-								temps.put(key, tempData);
+								state.temp = tempData;
 							} // replaceDataSet
 						} catch (RuntimeException e) {
 							logger.error("RuntimeException:", e.getMessage());
 						}
 
-						record = new MiniSeed(recordBytes);
-
-						samples = record.decomp();
+						if (m_summary) {
+							// Frames are checked so that the same records are
+							// dropped as when decompressing them
+							int length = record.checkDecomp();
+							if (length < 0) {
+								logger.error("Unsupported encoding [{}]: sequence #{}",
+										record.getEncoding(), record.getSequence());
+								break progress;
+							}
+							lastSequenceNumber = getSequence(recordBuffer);
+							tempData.extendSummary(length);
+						} else {
+							// Decompress straight into the DataSet's blocks
+							if (record.decomp(tempData) < 0) {
+								logger.error("Unsupported encoding [{}]: sequence #{}",
+										record.getEncoding(), record.getSequence());
+								break progress;
+							}
 
-						// blockettes = record.getBlockettes();
-						lastSequenceNumber = record.getSequence();
-						tempData.extend(samples, 0, samples.length);
+							// blockettes = record.getBlockettes();
+							lastSequenceNumber = getSequence(recordBuffer);
+						}
 
 						// MTH: Get timing quality from the current miniseed
 						// block and store it for this key
 						int quality = record.getTimingQuality();
 
-						ArrayList<Integer> qualityArray = null;
-						if (m_qualityTable.get(key) == null) {
-							qualityArray = new ArrayList<>();
-							m_qualityTable.put(key, qualityArray);
-						} else {
-							qualityArray = m_qualityTable.get(key);
+						if (state.qualities == null) {
+							state.qualities = new IntSeries();
+							m_qualityTable.put(state.key, state.qualities);
 						}
 						if (quality >= 0) { // getTimingQuality() return -1
 							// if no B1001 block found
-							qualityArray.add(quality);
+							state.qualities.add(quality);
 						}
 
 						// MTH: Get calibration block from the current
@@ -397,20 +611,13 @@ public class SeedSplitProcessor implements Runnable {
 						// 64-bytes
 						byte[] byteBuf320 = record.getBlockette320();
 						if (byteBuf320 != null) {
-							// System.out.format("== SeedSplitProcessor: Blockette320 found for key=%s kept=[%d] discarded=[%d]\n",
-							// key, kept, discarded);
 							Blockette320 blockette320 = new Blockette320(
 									byteBuf320);
-							// System.out.format("== blockette320: epoch secs=[%d]\n",
-							// blockette320.getCalibrationEpoch() );
-
 
-							ArrayList<Blockette320> calBlock = null;
-							if (m_calTable.get(key) == null) {
+							ArrayList<Blockette320> calBlock = m_calTable.get(state.key);
+							if (calBlock == null) {
 								calBlock = new ArrayList<>();
-								m_calTable.put(key, calBlock);
-							} else {
-								calBlock = m_calTable.get(key);
+								m_calTable.put(state.key, calBlock);
 							}
 							calBlock.add(blockette320);
 						}
@@ -422,24 +629,18 @@ public class SeedSplitProcessor implements Runnable {
 					logger.error("BlockSizeException:", e.getMessage());
 				} catch (InterruptedException e) {
 					logger.error("InterruptedException:", e.getMessage());
+					m_running = false;
 				} catch (IllegalSeednameException e) {
 					logger.error("IllegalSeednameException:", e.getMessage());
 				}
 			}
 		}
-		for (String tempKey : temps.keySet()) {
-			tempData = null;
-			tree = null;
-			if (temps.containsKey(tempKey)) {
-				tempData = temps.get(tempKey);
-			}
-			if (m_trees.containsKey(tempKey)) {
-				tree = m_trees.get(tempKey);
-			}
-			if ((tempData != null) && (tree != null)) {
+		for (ChannelState state : states.values()) {
+			tempData = state.temp;
+			tree = state.tree;
+			if (tempData != null) {
 				tree.add(tempData);
-				tree.size();
-				
+
 				logger.debug("Adding DataSet to TreeSet.");
 				logger.debug(String.format(
 						"  Range: %s - %s (%d data points {CHECK: %d})",
@@ -491,6 +692,8 @@ public class SeedSplitProcessor implements Runnable {
 					try {
 						logger.debug("Merging DataSets...");
 						currDataSet.mergeInto(lastDataSet);
+						// Emptied by the merge, return its off-heap block
+						currDataSet.release();
 						logger.debug("Done.");
 					} catch (SequenceIntervalMismatchException e) {
 						throw new RuntimeException(
@@ -514,8 +717,8 @@ public class SeedSplitProcessor implements Runnable {
 		logger.debug("<SeedSplitProcessor Thread> Yeah, we're done.");
 		logger.debug("Kept " + kept + " records");
 		logger.debug("Discarded " + discarded + " records");
-		for (String countKey : recordCounts.keySet()) {
-			logger.debug("  " + countKey + ": " + recordCounts.get(key)
+		for (ChannelState state : states.values()) {
+			logger.debug("  " + state.key + ": " + state.recordCount
 					+ " records");
 		}
 	}
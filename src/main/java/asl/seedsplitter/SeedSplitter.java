@@ -18,13 +18,14 @@
  */
 package asl.seedsplitter;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Pattern;
 
@@ -49,13 +50,16 @@ public class SeedSplitter extends
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.seedsplitter.SeedSplitter.class);
 
+	/** Capacity of each queue of records from one file to one processor. */
+	private static final int QUEUE_CAPACITY = 1024;
+
 	// Consider changing the T,V types
 	// T may be alright, but V should be some sort of progress indicator
 	// along the lines of (file # out of total, byte count out of total, percent
 	// complete)
 	private File[] m_files;
+	private int m_processorCount;
 	private Hashtable<String, ArrayList<DataSet>> m_table;
-	private LinkedBlockingQueue<ByteBlock> m_recordQueue;
 	private SeedSplitProgress m_lastProgress = null;
 
 	private Pattern m_patternNetwork = null;
@@ -63,8 +67,14 @@ public class SeedSplitter extends
 	private Pattern m_patternLocation = null;
 	private Pattern m_patternChannel = null;
 
+	private ChannelIndex m_channelIndex = null;
+
+	private boolean m_summary = false;
+
+	private DirectBlockPool m_directPool = null;
+
 	// MTH
-	private Hashtable<String, ArrayList<Integer>> m_qualityTable;
+	private Hashtable<String, IntSeries> m_qualityTable;
 	private Hashtable<String, ArrayList<Blockette320>> m_calTable;
 
 	/**
@@ -72,14 +82,13 @@ public class SeedSplitter extends
 	 * 
 	 * @param fileList
 	 *            List of files from which to read in the MiniSEED data.
+	 * @param processorCount
+	 *            Number of processor threads records are split between.
 	 */
-	private void _construct(File[] fileList) {
+	private void _construct(File[] fileList, int processorCount) {
 		m_files = fileList;
+		m_processorCount = processorCount;
 		m_table = null;
-
-		m_recordQueue = new LinkedBlockingQueue<>(1024);
-		// m_dataQueue = new LinkedBlockingQueue<DataSet>(64);
-
 	}
 
 	/**
@@ -90,7 +99,103 @@ public class SeedSplitter extends
 	 */
 	public SeedSplitter(File[] fileList) {
 		super();
-		_construct(fileList);
+		_construct(fileList, 1);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * Records are partitioned by channel across processorCount processor
+	 * threads, each owning the trees for its own channels. Up to the same
+	 * number of files are read concurrently.
+	 * 
+	 * @param fileList
+	 *            List of files from which to read in the MiniSEED data.
+	 * @param processorCount
+	 *            Number of processor threads records are split between.
+	 */
+	public SeedSplitter(File[] fileList, int processorCount) {
+		super();
+		_construct(fileList, processorCount);
+	}
+
+	/**
+	 * Filter pattern for the MiniSEED record's Network field.
+	 * 
+	 * @param pattern
+	 *            Filter pattern for the MiniSEED record's Network field.
+	 */
+	public void setNetworkPattern(Pattern pattern) {
+		m_patternNetwork = pattern;
+	}
+
+	/**
+	 * Filter pattern for the MiniSEED record's Station field.
+	 * 
+	 * @param pattern
+	 *            Filter pattern for the MiniSEED record's Station field.
+	 */
+	public void setStationPattern(Pattern pattern) {
+		m_patternStation = pattern;
+	}
+
+	/**
+	 * Filter pattern for the MiniSEED record's Location field.
+	 * 
+	 * @param pattern
+	 *            Filter pattern for the MiniSEED record's Location field.
+	 */
+	public void setLocationPattern(Pattern pattern) {
+		m_patternLocation = pattern;
+	}
+
+	/**
+	 * Filter pattern for the MiniSEED record's Channel field.
+	 * 
+	 * @param pattern
+	 *            Filter pattern for the MiniSEED record's Channel field.
+	 */
+	public void setChannelPattern(Pattern pattern) {
+		m_patternChannel = pattern;
+	}
+
+	/**
+	 * Index of the channels held by the files. When set, only the records of
+	 * indexed files that pass the filter patterns are read, and indexed files
+	 * holding no such records are not opened at all. Files missing from the
+	 * index are read in full.
+	 * 
+	 * @param index
+	 *            Channel index of the directory holding the files.
+	 */
+	public void setChannelIndex(ChannelIndex index) {
+		m_channelIndex = index;
+	}
+
+	/**
+	 * Only reads the record headers, without decompressing the samples. The
+	 * resulting DataSets are summaries holding the time ranges and number of
+	 * samples, see {@link Sequence#isSummary()}. Timing quality and
+	 * calibration blockettes are read as usual.
+	 * 
+	 * @param summary
+	 *            true to build summaries
+	 */
+	public void setSummary(boolean summary) {
+		m_summary = summary;
+	}
+
+	/**
+	 * Keeps the samples of the resulting DataSets off the heap, in blocks of
+	 * directPool. The DataSets must be released with
+	 * {@link Sequence#release()} to return their blocks to the pool.
+	 * 
+	 * @param directPool
+	 *            the pool of off-heap blocks, null to keep the samples on the
+	 *            heap
+	 */
+	public void setDirectBlockPool(DirectBlockPool directPool) {
+		m_directPool = directPool;
 	}
 
 	/**
@@ -103,7 +208,7 @@ public class SeedSplitter extends
 		return m_table;
 	}
 
-	public Hashtable<String, ArrayList<Integer>> getQualityTable() {
+	public Hashtable<String, IntSeries> getQualityTable() {
 		return m_qualityTable;
 	}
 
@@ -122,93 +227,149 @@ public class SeedSplitter extends
 	}
 
 	/**
-	 * Overrides the doInBackground method of SwingWorker, launching and
-	 * monitoring two threads which read the files and process MiniSEED Data.
+	 * Overrides the doInBackground method of SwingWorker. Each file is memory
+	 * mapped and read by its own {@link MappedSeedReader}, running on a pool
+	 * of reader threads.
+	 * Records are partitioned by channel between one or more
+	 * {@link SeedSplitProcessor} threads, whose results are merged once all
+	 * files have been read. Each reader has its own queue to each processor,
+	 * and processors drain them in file order, so the records of a channel
+	 * are processed in file order even when several files hold it.
 	 * 
 	 * @return A hash table containing all of the data acquired from the file
 	 *         list.
 	 */
 	@Override
 	public Hashtable<String, ArrayList<DataSet>> doInBackground() {
-		int progressPercent = 0; // 0 - 100
-		int lastPercent = 0;
-		long totalBytes = 0;
-		long progressBytes = 0;
-		long stageBytes = 0;
-		boolean finalFile = false;
-		for (File file : m_files) {
-			totalBytes += file.length();
-		}
+		int processorCount = Math.max(1, m_processorCount);
 
-		// Initialize new logging for data errors
-		/*
-		 * String errorLogFile = appender.getFile(); String[] logsplit =
-		 * errorLogFile.split("ERROR"); String dataLogFile = logsplit[0] +
-		 * "DATA" + logsplit[1]; appender.setFile(dataLogFile);
-		 * appender.activateOptions();
-		 */
-
-		SeedSplitProcessor processor = new SeedSplitProcessor(m_recordQueue);
-		processor.setNetworkPattern(m_patternNetwork);
-		processor.setStationPattern(m_patternStation);
-		processor.setLocationPattern(m_patternLocation);
-		processor.setChannelPattern(m_patternChannel);
-		Thread processorThread = new Thread(processor);
-		processorThread.start();
-		for (int i = 0; i < m_files.length; i++) {
-			if (i == (m_files.length - 1)) {
-				finalFile = true;
-			}
-			File file = m_files[i];
-			// MTH: SeedSplitProcessor hangs if seed filesize = 0 --> Handled in
-			// Scanner.java instead
-			// MTH: Skip this file if size = 0:
-			// if (file.length() == 0) {
-			// continue;
-			// }
-			DataInputStream inputStream;
-			Thread inputThread = null;
-			try {
-				inputStream = new DataInputStream(new BufferedInputStream(
-						new FileInputStream(file)));
-				SeedInputStream stream = new SeedInputStream(inputStream,
-						m_recordQueue, finalFile);
-				inputThread = new Thread(stream);
-				logger.debug("Processing file " + file.getName() + "...");
-				inputThread.start();
-			} catch (FileNotFoundException e) {
-				// logger.debug("File '" +file.getName()+ "' not found\n");
+		ArrayList<File> files = new ArrayList<>(m_files.length);
+		ArrayList<List<ChannelIndex.Range>> fileRanges = new ArrayList<>(m_files.length);
+		for (File file : m_files) {
+			// MTH: SeedSplitProcessor hangs if seed filesize = 0 -->
+			// Handled in Scanner.java instead
+			if (!file.isFile()) {
 				String message = "FileNotFoundException: File '"
 						+ file.getName() + "' not found\n";
-				datalogger.error(message, e);
+				datalogger.error(message);
 				// Should we do something more? Throw an exception?
+				continue;
 			}
-			m_table = processor.getTable();
-			// MTH:
-			m_qualityTable = processor.getQualityTable();
-			m_calTable = processor.getCalTable();
-			if (this.isCancelled()) {
-				m_table = null;
-				return null;
-			}
-			if (inputThread != null) {
-				try {
-					inputThread.join();
-				} catch (InterruptedException e) {
-					datalogger.error("InterruptedException:", e);
+			List<ChannelIndex.Range> ranges = null;
+			if (m_channelIndex != null && m_channelIndex.contains(file)) {
+				ranges = m_channelIndex.getRanges(file, m_patternNetwork,
+						m_patternStation, m_patternLocation,
+						m_patternChannel);
+				if (ranges.isEmpty()) {
+					logger.debug("Skipping file " + file.getName()
+							+ ", no matching channels.");
+					continue;
 				}
 			}
-			if (finalFile) {
+			files.add(file);
+			fileRanges.add(ranges);
+		}
+		int readerCount = Math.max(1, Math.min(processorCount, files.size()));
+
+		// fileQueues.get(f).get(p) carries the records of file f to processor
+		// p, lastQueues.get(p) the last block marker.
+		ArrayList<List<LinkedBlockingQueue<ByteBlock>>> fileQueues = new ArrayList<>(
+				files.size());
+		for (int f = 0; f < files.size(); f++) {
+			ArrayList<LinkedBlockingQueue<ByteBlock>> queues = new ArrayList<>(
+					processorCount);
+			for (int p = 0; p < processorCount; p++) {
+				queues.add(new LinkedBlockingQueue<>(QUEUE_CAPACITY));
+			}
+			fileQueues.add(queues);
+		}
+		ArrayList<LinkedBlockingQueue<ByteBlock>> lastQueues = new ArrayList<>(
+				processorCount);
+		ArrayList<SeedSplitProcessor> processors = new ArrayList<>(
+				processorCount);
+		ArrayList<Thread> processorThreads = new ArrayList<>(processorCount);
+		for (int p = 0; p < processorCount; p++) {
+			ArrayList<LinkedBlockingQueue<ByteBlock>> queues = new ArrayList<>(
+					files.size() + 1);
+			for (List<LinkedBlockingQueue<ByteBlock>> readerQueues : fileQueues) {
+				queues.add(readerQueues.get(p));
+			}
+			LinkedBlockingQueue<ByteBlock> lastQueue = new LinkedBlockingQueue<>(1);
+			queues.add(lastQueue);
+			SeedSplitProcessor processor = new SeedSplitProcessor(queues);
+			processor.setNetworkPattern(m_patternNetwork);
+			processor.setStationPattern(m_patternStation);
+			processor.setLocationPattern(m_patternLocation);
+			processor.setChannelPattern(m_patternChannel);
+			processor.setSummary(m_summary);
+			processor.setDirectBlockPool(m_directPool);
+			Thread processorThread = new Thread(processor);
+			processorThread.start();
+			lastQueues.add(lastQueue);
+			processors.add(processor);
+			processorThreads.add(processorThread);
+		}
+
+		ExecutorService readers = Executors.newFixedThreadPool(readerCount);
+		ArrayList<Future<?>> readerTasks = new ArrayList<>(files.size());
+		try {
+			for (int f = 0; f < files.size(); f++) {
+				// End of stream is signaled below, once every file is read.
+				MappedSeedReader reader = new MappedSeedReader(files.get(f),
+						fileRanges.get(f), fileQueues.get(f), false);
+				logger.debug("Processing file " + files.get(f).getName() + "...");
+				readerTasks.add(readers.submit(reader));
+			}
+
+			for (int f = 0; f < readerTasks.size(); f++) {
 				try {
-					processorThread.join();
-				} catch (InterruptedException e) {
-					datalogger.error("InterruptedException:", e);
+					readerTasks.get(f).get();
+				} catch (ExecutionException e) {
+					datalogger.error("ExecutionException:", e);
+					// The reader did not get to end its file, processors
+					// would wait on its queues forever.
+					ByteBlock end = new ByteBlock(null, 0, true, false);
+					for (LinkedBlockingQueue<ByteBlock> queue : fileQueues.get(f)) {
+						queue.put(end);
+					}
 				}
 			}
-			logger.debug("Finished processing file " + file.getName() + "  "
-					+ progressPercent + "% complete");
-			stageBytes += file.length();
+
+			ByteBlock last = new ByteBlock(null, 0, true, true);
+			for (LinkedBlockingQueue<ByteBlock> queue : lastQueues) {
+				queue.put(last);
+			}
+			for (Thread processorThread : processorThreads) {
+				processorThread.join();
+			}
+		} catch (InterruptedException e) {
+			datalogger.error("InterruptedException:", e);
+			readers.shutdownNow();
+			for (Thread processorThread : processorThreads) {
+				processorThread.interrupt();
+			}
+			m_table = null;
+			return null;
+		} finally {
+			readers.shutdown();
 		}
+
+		if (this.isCancelled()) {
+			m_table = null;
+			return null;
+		}
+
+		// Channel keys never span processors, so the tables can simply be
+		// combined.
+		m_table = new Hashtable<>();
+		m_qualityTable = new Hashtable<>();
+		m_calTable = new Hashtable<>();
+		for (SeedSplitProcessor processor : processors) {
+			m_table.putAll(processor.getTable());
+			m_qualityTable.putAll(processor.getQualityTable());
+			m_calTable.putAll(processor.getCalTable());
+		}
+
 		logger.debug("All done. Setting progress to 100%");
 		this.setProgress(100);
 		return m_table;
@@ -1,6 +1,12 @@
 package asl.seedsplitter;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
@@ -10,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import asl.security.MemberDigest;
+import seed.SampleSink;
 
 /**
  * The Class Sequence. Extends MemberDigest
@@ -19,13 +26,28 @@ import asl.security.MemberDigest;
  * @author James Holland - USGS jholland@usgs.gov
  * @author Joel D. Edwards - USGS
  */
-public class Sequence extends MemberDigest implements Comparable<Sequence>, Serializable {
+public class Sequence extends MemberDigest implements Comparable<Sequence>, SampleSink, Serializable {
 
 	/**
 	 * Serial Version UID
 	 */
 	private static final long serialVersionUID = 2L;
 
+	/**
+	 * The serialized fields. m_blocks is serialized as a list of integer
+	 * arrays, as before blocks were kept in IntBuffers, so existing serialized
+	 * Sequences still load. See {@link #writeObject(ObjectOutputStream)}.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("m_pool", BlockPool.class),
+			new ObjectStreamField("m_blocks", ArrayList.class),
+			new ObjectStreamField("m_length", Integer.TYPE),
+			new ObjectStreamField("m_remainder", Integer.TYPE),
+			new ObjectStreamField("m_startTime", Long.TYPE),
+			new ObjectStreamField("m_sampleRate", Double.TYPE),
+			new ObjectStreamField("m_interval", Long.TYPE),
+			new ObjectStreamField("m_summary", Boolean.TYPE) };
+
 	/** The Constant logger. */
 	private static final Logger logger = LoggerFactory.getLogger(asl.seedsplitter.Sequence.class);
 
@@ -35,17 +57,45 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	/** The m_tz. */
 	private static TimeZone m_tz = TimeZone.getTimeZone("GMT");
 
+	/**
+	 * Receives the data points of a Sequence one block at a time, see
+	 * {@link Sequence#forEachBlock(BlockConsumer)}.
+	 */
+	public interface BlockConsumer {
+		/**
+		 * Accepts the next data points of the Sequence.
+		 * 
+		 * @param block
+		 *            the Sequence's own block, must not be modified or kept
+		 * @param offset
+		 *            the index of the first data point within block
+		 * @param length
+		 *            the number of data points
+		 */
+		void accept(int[] block, int offset, int length);
+	}
+
 	/** The m_pool. */
 	private BlockPool m_pool = null;
 
-	/** The m_blocks. */
-	private ArrayList<int[]> m_blocks = null;
+	/**
+	 * The off-heap block pool, null if the data points are kept in integer
+	 * arrays on the heap.
+	 */
+	private transient DirectBlockPool m_directPool = null;
 
 	/**
-	 * The m_block. This appears to be used as a temporary hold member and is
-	 * thus transient.
+	 * The m_blocks. Either heap blocks wrapping integer arrays from m_pool or
+	 * off-heap blocks from m_directPool. Serialized as a list of integer
+	 * arrays, see {@link #writeObject(ObjectOutputStream)}.
 	 */
-	private transient int[] m_block = null;
+	private transient ArrayList<IntBuffer> m_blocks = null;
+
+	/**
+	 * The m_block. The last block of m_blocks, into which data points are
+	 * added.
+	 */
+	private transient IntBuffer m_block = null;
 
 	/** The m_length. */
 	private int m_length = 0;
@@ -62,13 +112,47 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	/** The m_interval. */
 	private long m_interval = 0;
 
+	/**
+	 * True if only the number of data points is kept, not the data points
+	 * themselves.
+	 */
+	private boolean m_summary = false;
+
 	/**
 	 * Creates a new instance of this object.
 	 */
 	public Sequence() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new instance of this object.
+	 * 
+	 * @param summary
+	 *            true to only count the data points added with
+	 *            {@link #extendSummary(int)}, without keeping them
+	 */
+	public Sequence(boolean summary) {
+		this(summary, null);
+	}
+
+	/**
+	 * Creates a new instance of this object.
+	 * 
+	 * @param summary
+	 *            true to only count the data points added with
+	 *            {@link #extendSummary(int)}, without keeping them
+	 * @param directPool
+	 *            the pool of off-heap blocks to keep the data points in, null
+	 *            to keep them on the heap. Blocks are returned to the pool by
+	 *            {@link #release()}.
+	 */
+	public Sequence(boolean summary, DirectBlockPool directPool) {
 		super();
 		TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+		m_summary = summary;
 		m_pool = new BlockPool(BLOCK_SIZE);
+		m_directPool = directPool;
 		_reset();
 	}
 
@@ -78,36 +162,151 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	private void _reset() {
 		m_length = 0;
 		m_blocks = new ArrayList<>(8);
-		this._addBlock();
+		if (!m_summary) {
+			this._addBlock();
+		}
 	}
 
 	/**
 	 * Creates a new empty data block and adds it to the block list.
 	 */
 	private void _addBlock() {
-		m_block = m_pool.getNewBlock();
+		if (m_directPool != null) {
+			m_block = m_directPool.getNewBlock();
+		} else {
+			m_block = IntBuffer.wrap(m_pool.getNewBlock());
+		}
 		m_blocks.add(m_block);
 		m_remainder = BLOCK_SIZE;
 	}
 
+	/**
+	 * Returns the off-heap blocks of this Sequence to the pool they came from.
+	 * Heap blocks are left to the garbage collector.
+	 */
+	private void _recycleBlocks() {
+		if (m_directPool == null) {
+			return;
+		}
+		try {
+			for (IntBuffer block : m_blocks) {
+				recycleBlock(block, null);
+			}
+		} catch (BlockSizeMismatchException e) {
+			logger.error("BlockSizeMismatchException:", e);
+		}
+		m_blocks.clear();
+		m_block = null;
+	}
+
+	/**
+	 * Returns a block no longer in use to its pool.
+	 * 
+	 * @param block
+	 *            the block
+	 * @param pool
+	 *            the pool for heap blocks, null to leave heap blocks to the
+	 *            garbage collector
+	 * @throws BlockSizeMismatchException
+	 *             if the block does not fit the pool
+	 */
+	private void recycleBlock(IntBuffer block, BlockPool pool) throws BlockSizeMismatchException {
+		if (!block.hasArray()) {
+			m_directPool.addBlock(block);
+		} else if (pool != null) {
+			pool.addBlock(block.array());
+		}
+	}
+
+	/**
+	 * Releases the data points of this Sequence, returning its off-heap blocks
+	 * to their pool for other Sequences to reuse. Does nothing if the data
+	 * points are kept on the heap. An off-heap Sequence is empty afterwards
+	 * and must no longer be used.
+	 */
+	public synchronized void release() {
+		if (m_directPool == null) {
+			return;
+		}
+		_recycleBlocks();
+		m_length = 0;
+		m_remainder = 0;
+	}
+
+	/**
+	 * Reports whether the data points are kept off the heap.
+	 * 
+	 * @return true if the blocks come from a {@link DirectBlockPool}
+	 */
+	public boolean isDirect() {
+		return m_directPool != null;
+	}
+
 	/**
 	 * Adds start time of first data point and sample rate to digest. It then
-	 * loops through blocks and adds them.
+	 * loops through blocks and adds them. A summary adds the number of data
+	 * points instead, see {@link #getSummaryDigestBytes()}.
 	 * 
 	 */
 	@Override
 	protected void addDigestMembers() {
 		addToDigest(m_startTime);
 		addToDigest(m_sampleRate);
+		if (m_summary) {
+			// The data points are not known, only their number.
+			addToDigest(m_length);
+			return;
+		}
 		int remaining = m_blocks.size();
-		for (int[] block : m_blocks) {
+		for (IntBuffer block : m_blocks) {
 			int numSamples = (--remaining > 0) ? BLOCK_SIZE : (BLOCK_SIZE - m_remainder);
 			for (int i = 0; i < numSamples; i++) {
-				addToDigest(block[i]);
+				addToDigest(block.get(i));
 			}
 		}
 	}
 
+	/**
+	 * Gets a digest of the start time, sample rate and number of data points,
+	 * leaving out the data points themselves. It is the same for a summary and
+	 * for the same data decompressed, and equals {@link #getDigestBytes()} of
+	 * a summary.
+	 * 
+	 * @return the digest ByteBuffer
+	 */
+	public ByteBuffer getSummaryDigestBytes() {
+		if (m_summary) {
+			return getDigestBytes();
+		}
+		return new SummaryDigest(m_startTime, m_sampleRate, m_length).getDigestBytes();
+	}
+
+	/**
+	 * The members a summary adds to its digest, for digesting a Sequence
+	 * keeping its data points the same way.
+	 */
+	private static class SummaryDigest extends MemberDigest {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long startTime;
+		private final double sampleRate;
+		private final int length;
+
+		private SummaryDigest(long startTime, double sampleRate, int length) {
+			this.startTime = startTime;
+			this.sampleRate = sampleRate;
+			this.length = length;
+		}
+
+		@Override
+		protected void addDigestMembers() {
+			addToDigest(startTime);
+			addToDigest(sampleRate);
+			addToDigest(length);
+		}
+	}
+
 	/**
 	 * Sets the timestamp of the first data point.
 	 * 
@@ -135,6 +334,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	 * Resets the time-series, flushing all data.
 	 */
 	private void clear() {
+		_recycleBlocks();
 		_reset();
 		m_startTime = 0;
 		m_sampleRate = 0.0;
@@ -161,10 +361,11 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	 *             - if offset is null.
 	 */
 	public void extend(int[] buffer, int offset, int length) {
+		checkNotSummary();
 		int copySize = 0;
 		while (length > 0) {
 			copySize = (m_remainder > length) ? length : m_remainder;
-			System.arraycopy(buffer, offset, m_block, BLOCK_SIZE - m_remainder, copySize);
+			write(buffer, offset, m_block, BLOCK_SIZE - m_remainder, copySize);
 			if (m_remainder <= length) {
 				this._addBlock();
 			} else {
@@ -176,6 +377,97 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		}
 	}
 
+	/**
+	 * Extends the time-series by the data points of a block of another
+	 * Sequence.
+	 * 
+	 * @param source
+	 *            The block from which the data points should be copied.
+	 * @param offset
+	 *            Offset within source at which copying should begin.
+	 * @param length
+	 *            The number of data points to copy.
+	 */
+	private void extend(IntBuffer source, int offset, int length) {
+		if (source.hasArray()) {
+			extend(source.array(), source.arrayOffset() + offset, length);
+			return;
+		}
+		checkNotSummary();
+		IntBuffer from = source.duplicate();
+		from.position(offset);
+		int copySize = 0;
+		while (length > 0) {
+			copySize = (m_remainder > length) ? length : m_remainder;
+			from.limit(from.position() + copySize);
+			IntBuffer to = m_block.duplicate();
+			to.position(BLOCK_SIZE - m_remainder);
+			to.put(from);
+			if (m_remainder <= length) {
+				this._addBlock();
+			} else {
+				m_remainder -= copySize;
+			}
+			m_length += copySize;
+			length -= copySize;
+		}
+	}
+
+	/**
+	 * Extends the time-series by a single data point, written straight into
+	 * the current block. Lets a decoder fill the Sequence without an
+	 * intermediate array, see {@link seed.MiniSeed#decomp(SampleSink)}.
+	 * 
+	 * @param sample
+	 *            The data point.
+	 * @throws IllegalStateException
+	 *             if this Sequence is a summary.
+	 */
+	@Override
+	public void put(int sample) {
+		checkNotSummary();
+		m_block.put(BLOCK_SIZE - m_remainder, sample);
+		m_length++;
+		if (--m_remainder == 0) {
+			this._addBlock();
+		}
+	}
+
+	/**
+	 * Extends a summary time-series by the specified number of data points.
+	 * 
+	 * @param length
+	 *            The number of data points.
+	 * @throws IllegalStateException
+	 *             if this Sequence is not a summary.
+	 */
+	public void extendSummary(int length) {
+		if (!m_summary) {
+			throw new IllegalStateException("Sequence keeps its data points");
+		}
+		m_length += length;
+	}
+
+	/**
+	 * Reports whether this Sequence only counts its data points.
+	 * 
+	 * @return true if the data points are not kept
+	 */
+	public boolean isSummary() {
+		return m_summary;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if this Sequence is a summary, which has no data points to
+	 *             access.
+	 */
+	private void checkNotSummary() {
+		if (m_summary) {
+			throw new IllegalStateException("Sequence is a summary without data points");
+		}
+	}
+
 	/**
 	 * Trims the sequence such that its data is within the specified time range.
 	 * 
@@ -198,8 +490,13 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 			if (endTime > this.getEndTime()) {
 				endTime = this.getEndTime();
 			}
+			if (m_summary) {
+				// Same number of data points getSeries(startTime, endTime) returns.
+				m_length = (int) ((endTime - startTime) / m_interval);
+				return;
+			}
 			try {
-				Sequence newSequence = new Sequence();
+				Sequence newSequence = new Sequence(false, m_directPool);
 				newSequence.m_startTime = m_startTime;
 				newSequence.m_interval = m_interval;
 				newSequence.m_sampleRate = m_sampleRate;
@@ -207,6 +504,8 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 				int[] series = this.getSeries(startTime, endTime);
 				newSequence.extend(series, 0, series.length);
 				this.swapData(newSequence);
+				// newSequence now holds the untrimmed blocks
+				newSequence.release();
 			} catch (SequenceRangeException e) {
 				logger.error("SequenceRangeException: Sequence Range Error in trim(). This should never happen!", e);
 			} catch (RuntimeException e) {
@@ -236,14 +535,17 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	 *            The Sequence with which this Sequence's data will be swapped.
 	 */
 	private void swapData(Sequence seq) {
-		ArrayList<int[]> tempBlocks = m_blocks;
-		int[] tempBlock = m_block;
+		DirectBlockPool tempDirectPool = m_directPool;
+		ArrayList<IntBuffer> tempBlocks = m_blocks;
+		IntBuffer tempBlock = m_block;
 		int tempLength = m_length;
 		int tempRemainder = m_remainder;
 		long tempStartTime = m_startTime;
 		double tempSampleRate = m_sampleRate;
 		long tempInterval = m_interval;
+		boolean tempSummary = m_summary;
 
+		m_directPool = seq.m_directPool;
 		m_blocks = seq.m_blocks;
 		m_block = seq.m_block;
 		m_length = seq.m_length;
@@ -251,7 +553,9 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		m_startTime = seq.m_startTime;
 		m_sampleRate = seq.m_sampleRate;
 		m_interval = seq.m_interval;
+		m_summary = seq.m_summary;
 
+		seq.m_directPool = tempDirectPool;
 		seq.m_blocks = tempBlocks;
 		seq.m_block = tempBlock;
 		seq.m_length = tempLength;
@@ -259,6 +563,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		seq.m_startTime = tempStartTime;
 		seq.m_sampleRate = tempSampleRate;
 		seq.m_interval = tempInterval;
+		seq.m_summary = tempSummary;
 	}
 
 	/**
@@ -352,6 +657,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 			 * Sequence.timestampToString(seq.getStartTime()),
 			 * Sequence.timestampToString(seq.getEndTime()));
 			 */
+			this._recycleBlocks();
 			this._reset();
 			return;
 		}
@@ -368,15 +674,16 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		}
 
 		BlockPool pool = seq.m_pool;
-		int[] block = null;
+		IntBuffer block = null;
 
 		// We are going to flush the old data away through this process,
 		// so let's do it now, and keep the old data around. This should
 		// prevent others from messing with it while we are working.
-		ArrayList<int[]> blocks = m_blocks;
+		ArrayList<IntBuffer> blocks = m_blocks;
 		long startTime = m_startTime;
 		long interval = m_interval;
 		int remainder = m_remainder;
+		int length = m_length;
 		this._reset();
 
 		// skipCount is the number of data points we need to skip in order
@@ -386,6 +693,15 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 			skipCount = (int) ((seq.getEndTime() - startTime) / interval + 1);
 		}
 
+		if (m_summary || seq.m_summary) {
+			if (m_summary != seq.m_summary) {
+				throw new IllegalStateException("Unable to merge a summary with a Sequence keeping its data points");
+			}
+			// Only count the data points the copy below would append.
+			seq.m_length += Math.max(0, length - skipCount);
+			return;
+		}
+
 		// In order to ensure no data overlaps, we need to burn of full
 		// blocks that are in the overlapping range. Any remaining part
 		// of a block that remains will be handled in the copy logic
@@ -393,6 +709,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		while (skipCount >= BLOCK_SIZE) {
 			skipCount -= BLOCK_SIZE;
 			block = blocks.remove(0);
+			recycleBlock(block, null);
 		}
 
 		int blockCount = blocks.size();
@@ -425,7 +742,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 			}
 			// Add the block to the target Sequence's BlockPool after its
 			// contents have been copied.
-			pool.addBlock(block);
+			recycleBlock(block, pool);
 		}
 	}
 
@@ -483,6 +800,15 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		return m_blocks.size();
 	}
 
+	/**
+	 * Returns the number of data points held by each block.
+	 * 
+	 * @return Returns the number of data points held by each block.
+	 */
+	public static int getBlockSize() {
+		return BLOCK_SIZE;
+	}
+
 	/**
 	 * Returns the number of data points.
 	 * 
@@ -508,6 +834,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 	 *             the sequence range exception
 	 */
 	private int[] getSeries(int index, int count) throws IndexOutOfBoundsException, SequenceRangeException {
+		checkNotSummary();
 		if (index >= m_length) {
 			throw new IndexOutOfBoundsException();
 		}
@@ -519,7 +846,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		}
 
 		int[] series = new int[count];
-		int[] block = null;
+		IntBuffer block = null;
 		int numBlocks = m_blocks.size();
 		int finalBlock = numBlocks - 1;
 		int seriesLength = 0;
@@ -539,7 +866,7 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 			if (blockLength > count) {
 				blockLength = count;
 			}
-			System.arraycopy(block, jump, series, seriesLength, blockLength);
+			read(block, jump, series, seriesLength, blockLength);
 			seriesLength += blockLength;
 			count -= blockLength;
 			jump = 0;
@@ -565,6 +892,149 @@ public class Sequence extends MemberDigest implements Comparable<Sequence>, Seri
 		return null;
 	}
 
+	/**
+	 * Passes all of the data points in this sequence to consumer, in order.
+	 * Heap blocks are passed without copying them, off-heap blocks are copied
+	 * one at a time into a reused array.
+	 * 
+	 * @param consumer
+	 *            receives the data points of each non empty block
+	 */
+	public void forEachBlock(BlockConsumer consumer) {
+		checkNotSummary();
+		int[] copy = null;
+		int remaining = m_length;
+		for (int i = 0; (i < m_blocks.size()) && (remaining > 0); i++) {
+			int blockLength = (remaining > BLOCK_SIZE) ? BLOCK_SIZE : remaining;
+			IntBuffer block = m_blocks.get(i);
+			if (block.hasArray()) {
+				consumer.accept(block.array(), block.arrayOffset(), blockLength);
+			} else {
+				if (copy == null) {
+					copy = new int[BLOCK_SIZE];
+				}
+				read(block, 0, copy, 0, blockLength);
+				consumer.accept(copy, 0, blockLength);
+			}
+			remaining -= blockLength;
+		}
+	}
+
+	/**
+	 * Copies data points out of a block.
+	 * 
+	 * @param block
+	 *            the block
+	 * @param offset
+	 *            the index of the first data point within block
+	 * @param dest
+	 *            the array to copy to
+	 * @param destOffset
+	 *            the index within dest of the first data point
+	 * @param length
+	 *            the number of data points
+	 */
+	private static void read(IntBuffer block, int offset, int[] dest, int destOffset, int length) {
+		if (block.hasArray()) {
+			System.arraycopy(block.array(), block.arrayOffset() + offset, dest, destOffset, length);
+		} else {
+			IntBuffer source = block.duplicate();
+			source.position(offset);
+			source.get(dest, destOffset, length);
+		}
+	}
+
+	/**
+	 * Copies data points into a block.
+	 * 
+	 * @param source
+	 *            the array to copy from
+	 * @param sourceOffset
+	 *            the index within source of the first data point
+	 * @param block
+	 *            the block
+	 * @param offset
+	 *            the index within block of the first data point
+	 * @param length
+	 *            the number of data points
+	 */
+	private static void write(int[] source, int sourceOffset, IntBuffer block, int offset, int length) {
+		if (block.hasArray()) {
+			System.arraycopy(source, sourceOffset, block.array(), block.arrayOffset() + offset, length);
+		} else {
+			IntBuffer dest = block.duplicate();
+			dest.position(offset);
+			dest.put(source, sourceOffset, length);
+		}
+	}
+
+	/**
+	 * Writes the blocks as a list of integer arrays, so a Sequence keeping its
+	 * data points off the heap is read back as one keeping them on the heap.
+	 * 
+	 * @param out
+	 *            the stream
+	 * @throws IOException
+	 *             if the stream can not be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ArrayList<int[]> blocks = new ArrayList<>(m_blocks.size());
+		for (IntBuffer block : m_blocks) {
+			if (block.hasArray() && block.arrayOffset() == 0
+					&& block.array().length == BLOCK_SIZE) {
+				blocks.add(block.array());
+			} else {
+				int[] copy = new int[BLOCK_SIZE];
+				read(block, 0, copy, 0, BLOCK_SIZE);
+				blocks.add(copy);
+			}
+		}
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("m_pool", m_pool);
+		fields.put("m_blocks", blocks);
+		fields.put("m_length", m_length);
+		fields.put("m_remainder", m_remainder);
+		fields.put("m_startTime", m_startTime);
+		fields.put("m_sampleRate", m_sampleRate);
+		fields.put("m_interval", m_interval);
+		fields.put("m_summary", m_summary);
+		out.writeFields();
+	}
+
+	/**
+	 * Reads the blocks written by {@link #writeObject(ObjectOutputStream)}
+	 * into heap blocks.
+	 * 
+	 * @param in
+	 *            the stream
+	 * @throws IOException
+	 *             if the stream can not be read
+	 * @throws ClassNotFoundException
+	 *             if a class of the stream is unknown
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		m_pool = (BlockPool) fields.get("m_pool", null);
+		m_length = fields.get("m_length", 0);
+		m_remainder = fields.get("m_remainder", 0);
+		m_startTime = fields.get("m_startTime", 0L);
+		m_sampleRate = fields.get("m_sampleRate", 0.0);
+		m_interval = fields.get("m_interval", 0L);
+		m_summary = fields.get("m_summary", false);
+		if (m_pool == null) {
+			m_pool = new BlockPool(BLOCK_SIZE);
+		}
+		ArrayList<int[]> blocks = (ArrayList<int[]>) fields.get("m_blocks", null);
+		m_blocks = new ArrayList<>(8);
+		if (blocks != null) {
+			for (int[] block : blocks) {
+				m_block = IntBuffer.wrap(block);
+				m_blocks.add(m_block);
+			}
+		}
+	}
+
 	/**
 	 * Returns an array of integer values that falls within the specified range.
 	 * The specified start and end times must be within the range of the actual
@@ -48,7 +48,7 @@ public class CrossPower {
 
 		PSD psdRaw = new PSD(metricData.getDetrendedPaddedDayData(channelX), metricData.getDetrendedPaddedDayData(channelY),
 				(1. / sampleRate));
-		Complex[] spectrumRaw = psdRaw.getSpectrum();
+		double[] spectrumRaw = psdRaw.getInterleavedSpectrum();
 		double[] frequencyRaw = psdRaw.getFreq();
 
 		this.spectrumDeltaF = psdRaw.getDeltaF();
@@ -74,8 +74,9 @@ public class CrossPower {
                 throw new MetricPSDException("responseMagC[k]=0 --> divide by zero!\n");
             }
             // Divide out (squared)instrument response & Convert to dB:
-            spectrumRaw[k] = spectrumRaw[k].divide(responseMagnitude);
-            this.powerSpectrum[k] = spectrumRaw[k].abs();
+            Complex spectrum = new Complex(spectrumRaw[2 * k], spectrumRaw[2 * k + 1])
+                .divide(responseMagnitude);
+            this.powerSpectrum[k] = spectrum.abs();
         }
 	}
 
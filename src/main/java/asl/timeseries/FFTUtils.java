@@ -1,5 +1,8 @@
 package asl.timeseries;
 
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.transform.DftNormalization;
 import org.apache.commons.math3.transform.FastFourierTransformer;
@@ -8,11 +11,276 @@ import org.apache.commons.math3.transform.TransformType;
 /**
  * FFTUtils is a wrapper for the Apache FFT library.
  * 
+ * It also provides a real to complex FFT, {@link #realFFT(double[], double[])}
+ * and its inverse, which transform real data of length n as a complex FFT of
+ * length n/2. Their twiddle factors are computed once per size and cached.
+ * 
  * @author James Holland - USGS
  *
  */
 public class FFTUtils {
 
+	/**
+	 * Plans by the number of real points they transform. Plans for whole days
+	 * of high rate data are large, so they are only softly held.
+	 */
+	private static final ConcurrentHashMap<Integer, SoftReference<RealFFTPlan>> plans = new ConcurrentHashMap<>();
+
+	/**
+	 * Twiddle factors for transforming n real points as n/2 complex points.
+	 */
+	private static final class RealFFTPlan {
+
+		/** Number of complex points, half the number of real points. */
+		private final int complexSize;
+
+		/** cos(pi k / complexSize) for k = 0 .. complexSize / 2 */
+		private final double[] cos;
+
+		/** sin(pi k / complexSize) for k = 0 .. complexSize / 2 */
+		private final double[] sin;
+
+		private RealFFTPlan(int size) {
+			complexSize = size / 2;
+			int quarter = complexSize / 2;
+			cos = new double[quarter + 1];
+			sin = new double[quarter + 1];
+			for (int k = 0; k <= quarter; k++) {
+				double angle = Math.PI * k / complexSize;
+				cos[k] = Math.cos(angle);
+				sin[k] = Math.sin(angle);
+			}
+		}
+
+		/**
+		 * Performs an in place, unnormalized complex FFT of complexSize
+		 * points with interleaved real and imaginary parts.
+		 * 
+		 * @param data
+		 *            the interleaved points
+		 * @param inverse
+		 *            true for the inverse transform
+		 */
+		private void transform(double[] data, boolean inverse) {
+			int n = complexSize;
+
+			// Bit reversal permutation
+			for (int i = 1, j = 0; i < n; i++) {
+				int bit = n >> 1;
+				for (; (j & bit) != 0; bit >>= 1) {
+					j ^= bit;
+				}
+				j ^= bit;
+				if (i < j) {
+					double temp = data[2 * i];
+					data[2 * i] = data[2 * j];
+					data[2 * j] = temp;
+					temp = data[2 * i + 1];
+					data[2 * i + 1] = data[2 * j + 1];
+					data[2 * j + 1] = temp;
+				}
+			}
+
+			// Butterflies. The twiddle angle 2 pi j / length is table entry
+			// k = j * 2n / length, mirrored for entries past the quarter wave.
+			int quarter = n / 2;
+			for (int length = 2; length <= n; length <<= 1) {
+				int halfLength = length >> 1;
+				int stride = 2 * n / length;
+				for (int start = 0; start < n; start += length) {
+					for (int j = 0; j < halfLength; j++) {
+						int k = j * stride;
+						double wr;
+						double wi;
+						if (k <= quarter) {
+							wr = cos[k];
+							wi = sin[k];
+						} else {
+							wr = -cos[n - k];
+							wi = sin[n - k];
+						}
+						if (!inverse) {
+							wi = -wi;
+						}
+						int a = 2 * (start + j);
+						int b = a + length;
+						double tr = wr * data[b] - wi * data[b + 1];
+						double ti = wr * data[b + 1] + wi * data[b];
+						data[b] = data[a] - tr;
+						data[b + 1] = data[a + 1] - ti;
+						data[a] += tr;
+						data[a + 1] += ti;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the cached plan for a number of real points, creating it if
+	 * needed.
+	 * 
+	 * @param size
+	 *            the number of real points, a power of 2
+	 * @return the plan
+	 */
+	private static RealFFTPlan getPlan(int size) {
+		SoftReference<RealFFTPlan> reference = plans.get(size);
+		RealFFTPlan plan = reference == null ? null : reference.get();
+		if (plan == null) {
+			plan = new RealFFTPlan(size);
+			plans.put(size, new SoftReference<>(plan));
+		}
+		return plan;
+	}
+
+	/**
+	 * Performs a forward FFT of real data. Gives the same values as
+	 * {@link #singleSidedFFT(double[])} for data that is already padded, but
+	 * transforms only half as many points and creates no objects once the
+	 * size's plan is cached.
+	 * 
+	 * @param data
+	 *            the real data, its length n must be a power of 2. Not
+	 *            modified.
+	 * @param spectrum
+	 *            receives the n/2 + 1 frequencies from DC to Nyquist as
+	 *            interleaved real and imaginary parts, so its length must be
+	 *            at least n + 2
+	 * @throws IllegalArgumentException
+	 *             if n is not a power of 2 or spectrum is too short
+	 */
+	public static void realFFT(double[] data, double[] spectrum)
+			throws IllegalArgumentException {
+		int n = data.length;
+		checkSizes(n, spectrum.length);
+		if (n == 1) {
+			spectrum[0] = data[0];
+			spectrum[1] = 0.;
+			return;
+		}
+
+		// The even and odd points form the real and imaginary parts of n/2
+		// complex points.
+		System.arraycopy(data, 0, spectrum, 0, n);
+		RealFFTPlan plan = getPlan(n);
+		plan.transform(spectrum, false);
+
+		int half = n / 2;
+		double zr = spectrum[0];
+		double zi = spectrum[1];
+		spectrum[0] = zr + zi;
+		spectrum[1] = 0.;
+		spectrum[2 * half] = zr - zi;
+		spectrum[2 * half + 1] = 0.;
+
+		// Separate the transforms of the even and odd points and combine them.
+		// Frequencies k and half - k are computed from the same two points.
+		for (int k = 1, j = half - 1; k < j; k++, j--) {
+			zr = spectrum[2 * k];
+			zi = spectrum[2 * k + 1];
+			double yr = spectrum[2 * j];
+			double yi = spectrum[2 * j + 1];
+
+			double evenR = (zr + yr) / 2;
+			double evenI = (zi - yi) / 2;
+			double oddR = (zi + yi) / 2;
+			double oddI = -(zr - yr) / 2;
+
+			double c = plan.cos[k];
+			double s = plan.sin[k];
+			double twiddledR = c * oddR + s * oddI;
+			double twiddledI = c * oddI - s * oddR;
+
+			spectrum[2 * k] = evenR + twiddledR;
+			spectrum[2 * k + 1] = evenI + twiddledI;
+			spectrum[2 * j] = evenR - twiddledR;
+			spectrum[2 * j + 1] = -(evenI - twiddledI);
+		}
+		if (half > 1) {
+			spectrum[half + 1] = -spectrum[half + 1];
+		}
+	}
+
+	/**
+	 * Performs an inverse FFT of the positive frequencies of real data, the
+	 * inverse of {@link #realFFT(double[], double[])}. Gives the real part of
+	 * {@link #inverseFFT(Complex[])} applied to the full spectrum mirrored
+	 * about the Nyquist frequency. The imaginary parts of DC and Nyquist are
+	 * ignored.
+	 * 
+	 * @param spectrum
+	 *            the n/2 + 1 frequencies from DC to Nyquist as interleaved
+	 *            real and imaginary parts. Not modified.
+	 * @param data
+	 *            receives the n real points, its length n must be a power of
+	 *            2
+	 * @throws IllegalArgumentException
+	 *             if n is not a power of 2 or spectrum is too short
+	 */
+	public static void inverseRealFFT(double[] spectrum, double[] data)
+			throws IllegalArgumentException {
+		int n = data.length;
+		checkSizes(n, spectrum.length);
+		if (n == 1) {
+			data[0] = spectrum[0];
+			return;
+		}
+
+		RealFFTPlan plan = getPlan(n);
+		int half = n / 2;
+
+		double dc = spectrum[0];
+		double nyquist = spectrum[2 * half];
+		data[0] = (dc + nyquist) / 2;
+		data[1] = (dc - nyquist) / 2;
+
+		// Rebuild the transform of the n/2 complex points from the transforms
+		// of the even and odd points.
+		for (int k = 1, j = half - 1; k < j; k++, j--) {
+			double xr = spectrum[2 * k];
+			double xi = spectrum[2 * k + 1];
+			double yr = spectrum[2 * j];
+			double yi = spectrum[2 * j + 1];
+
+			double evenR = (xr + yr) / 2;
+			double evenI = (xi - yi) / 2;
+			double differenceR = (xr - yr) / 2;
+			double differenceI = (xi + yi) / 2;
+
+			double c = plan.cos[k];
+			double s = plan.sin[k];
+			double oddR = differenceR * c - differenceI * s;
+			double oddI = differenceR * s + differenceI * c;
+
+			data[2 * k] = evenR - oddI;
+			data[2 * k + 1] = evenI + oddR;
+			data[2 * j] = evenR + oddI;
+			data[2 * j + 1] = -evenI + oddR;
+		}
+		if (half > 1) {
+			data[half] = spectrum[half];
+			data[half + 1] = -spectrum[half + 1];
+		}
+
+		plan.transform(data, true);
+		for (int i = 0; i < n; i++) {
+			data[i] /= half;
+		}
+	}
+
+	private static void checkSizes(int size, int spectrumLength)
+			throws IllegalArgumentException {
+		if (size == 0 || (size & (size - 1)) != 0) {
+			throw new IllegalArgumentException("FFT size " + size
+					+ " is not a power of 2");
+		}
+		if (spectrumLength < size + 2) {
+			throw new IllegalArgumentException("Spectrum length "
+					+ spectrumLength + " < " + (size + 2));
+		}
+	}
+
 	/**
 	 * Returns the first half + 1 of the FFT.
 	 *
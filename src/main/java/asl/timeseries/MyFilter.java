@@ -1,6 +1,5 @@
 package asl.timeseries;
 
-import org.apache.commons.math3.complex.Complex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,11 +14,19 @@ public class MyFilter {
 			double f3, double f4) {
 		SacHeader hdr = sacSeries.getHeader();
 		double delta = (double) hdr.getDelta();
-		float[] fdata = sacSeries.getY();
+		sacSeries.setY(bandpass(sacSeries.getY(), delta, f1, f2, f3, f4));
+	}
+
+	/**
+	 * Bandpasses samples without modifying them.
+	 *
+	 * @return a new array holding the bandpassed samples
+	 */
+	public static float[] bandpass(float[] fdata, double delta, double f1,
+			double f2, double f3, double f4) {
 		double[] data = convertFloatsToDoubles(fdata);
 		bandpass(data, delta, f1, f2, f3, f4);
-		fdata = convertDoublesToFloats(data);
-		sacSeries.setY(fdata);
+		return convertDoublesToFloats(data);
 	}
 
 	private static void bandpass(double[] timeseries, double delta, double f1,
@@ -52,14 +59,16 @@ public class MyFilter {
 		// nfft/2+1 +ve frequencies (including DC + Nyq)
 		int nf = nfft / 2 + 1;
 
-		double[] data = new double[ndata];
+		// Zero padded to nfft
+		double[] data = new double[nfft];
 		System.arraycopy(timeseries, 0, data, 0, ndata);
-		TimeseriesUtils.detrend(data);
-		TimeseriesUtils.demean(data);
-		TimeseriesUtils.costaper(data, .01);
+		TimeseriesUtils.detrend(data, ndata);
+		TimeseriesUtils.demean(data, ndata);
+		TimeseriesUtils.costaper(data, ndata, .01);
 
-		// fft2 returns just the (nf = nfft/2 + 1) positive frequencies
-		Complex[] xfft = FFTUtils.singleSidedFFT(data);
+		// realFFT returns just the (nf = nfft/2 + 1) positive frequencies
+		double[] xfft = new double[2 * nf];
+		FFTUtils.realFFT(data, xfft);
 
 		double fNyq = (double) (nf - 1) * df;
 
@@ -73,23 +82,16 @@ public class MyFilter {
 
 		for (int k = 0; k < nf; k++) {
 			double taper = bpass(k, k1, k2, k3, k4);
-			xfft[k] = xfft[k].multiply(taper); // Bandpass
-		}
-
-		Complex[] cfft = new Complex[nfft];
-		cfft[0] = Complex.ZERO; // DC
-		cfft[nf - 1] = xfft[nf - 1]; // Nyq
-		for (int k = 1; k < nf - 1; k++) { // Reflect spec about the Nyquist to
-											// get -ve freqs
-			cfft[k] = xfft[k];
-			cfft[2 * nf - 2 - k] = xfft[k].conjugate();
-		}
-		Complex[] inverted = FFTUtils.inverseFFT(cfft);
-		//Needed to do this outside of FFTUtils because it modifies the array in place.
-		for (int i = 0; i < ndata; i++) {
-			timeseries[i] = inverted[i].getReal();
+			xfft[2 * k] *= taper; // Bandpass
+			xfft[2 * k + 1] *= taper;
 		}
+		xfft[0] = 0.; // DC
+		xfft[1] = 0.;
 
+		// The inverse of the positive frequencies is the inverse of the
+		// spectrum reflected about the Nyquist
+		FFTUtils.inverseRealFFT(xfft, data);
+		System.arraycopy(data, 0, timeseries, 0, ndata);
 	}
 
 	/**
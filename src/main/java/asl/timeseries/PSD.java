@@ -1,6 +1,13 @@
 package asl.timeseries;
 
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.math3.complex.Complex;
 
@@ -12,9 +19,74 @@ import org.apache.commons.math3.complex.Complex;
  * @author James Holland - USGS
  */
 public class PSD {
-	
-	/** The powers of the PSD. */
-	private Complex[] psd = null;
+
+	/**
+	 * Padded segment size from which segments are transformed in parallel.
+	 * Below it (under 40 sps for a day) the segments are small enough that
+	 * forking costs more than it saves.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+	/**
+	 * Segment buffers reused by every PSD computed on a thread. The buffers of
+	 * high rate channels are large, so they are only softly held.
+	 */
+	private static final ThreadLocal<SoftReference<Workspace>> workspaces = new ThreadLocal<>();
+
+	/**
+	 * Number of threads transforming the segments of one PSD, including the
+	 * thread computing it. Guarded by PSD.class.
+	 */
+	private static int segmentThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Threads helping the thread computing a PSD transform its segments,
+	 * created when first needed. Guarded by PSD.class.
+	 */
+	private static ExecutorService segmentPool = null;
+
+	/**
+	 * The buffers the segments of x and y are padded and transformed in.
+	 */
+	private static class Workspace {
+		private final double[] xSegment;
+		private final double[] xSpectrum;
+		private double[] ySegment;
+		private double[] ySpectrum;
+
+		private Workspace(int paddedSize) {
+			xSegment = new double[paddedSize];
+			xSpectrum = new double[paddedSize + 2];
+		}
+
+		/**
+		 * Gets the workspace of the current thread, replacing it if its
+		 * buffers do not match the padded size.
+		 *
+		 * @param paddedSize the padded segment size
+		 * @param crossSpectrum true if buffers for y are needed
+		 * @return the workspace
+		 */
+		private static Workspace get(int paddedSize, boolean crossSpectrum) {
+			SoftReference<Workspace> reference = workspaces.get();
+			Workspace workspace = reference == null ? null : reference.get();
+			if (workspace == null || workspace.xSegment.length != paddedSize) {
+				workspace = new Workspace(paddedSize);
+				workspaces.set(new SoftReference<>(workspace));
+			}
+			if (crossSpectrum && workspace.ySegment == null) {
+				workspace.ySegment = new double[paddedSize];
+				workspace.ySpectrum = new double[paddedSize + 2];
+			}
+			return workspace;
+		}
+	}
+
+	/**
+	 * The powers of the PSD. Real and imaginary parts are interleaved, the
+	 * power of frequency k is (psd[2k], psd[2k+1]).
+	 */
+	private double[] psd = null;
 	
 	/** The frequencies that correspond with psd. */
 	private double[] frequencies = null;
@@ -34,6 +106,9 @@ public class PSD {
 	/** The size of the data passed in. */
 	private int dataSize;
 
+	/** Padded segment size from which segments are transformed in parallel. */
+	private int parallelThreshold;
+
 	/**
 	 * Instantiates a new PSD.
 	 * Also computes the PSD based on the passed data.
@@ -44,6 +119,21 @@ public class PSD {
 	 * @throws RuntimeException if dataX.length != dataY.length or period <= 0
 	 */
 	public PSD(double[] dataX, double[] dataY, double period) throws RuntimeException {
+		this(dataX, dataY, period, PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Instantiates a new PSD, choosing when its segments are transformed in
+	 * parallel.
+	 *
+	 * @param dataX the x data array
+	 * @param dataY the y data array, if this is identical to dataX it is not stored.
+	 * @param period the period, must be greater than 0.
+	 * @param parallelThreshold padded segment size from which segments are transformed in parallel
+	 * @throws RuntimeException if dataX.length != dataY.length or period <= 0
+	 */
+	PSD(double[] dataX, double[] dataY, double period, int parallelThreshold)
+			throws RuntimeException {
 		if (dataX.length != dataY.length) {
 			throw new RuntimeException("== ndataX != ndataY --> Can't create new PSD");
 		}
@@ -61,6 +151,7 @@ public class PSD {
 		}
 		this.dataSize = dataX.length;
 		this.period = period;
+		this.parallelThreshold = parallelThreshold;
 		computePSD();
 	}
 
@@ -70,6 +161,20 @@ public class PSD {
 	 * @return the spectrum
 	 */
 	public final Complex[] getSpectrum() {
+		Complex[] spectrum = new Complex[frequencies.length];
+		for (int k = 0; k < frequencies.length; k++) {
+			spectrum[k] = new Complex(psd[2 * k], psd[2 * k + 1]);
+		}
+		return spectrum;
+	}
+
+	/**
+	 * Gets the spectrum with real and imaginary parts interleaved. The power
+	 * of frequency k is (spectrum[2k], spectrum[2k+1]).
+	 *
+	 * @return the interleaved spectrum
+	 */
+	public final double[] getInterleavedSpectrum() {
 		return psd;
 	}
 
@@ -100,11 +205,207 @@ public class PSD {
 	public double[] getMagnitude() {
 		double[] specMag = new double[frequencies.length];
 		for (int k = 0; k < frequencies.length; k++) {
-			specMag[k] = psd[k].abs();
+			specMag[k] = abs(psd[2 * k], psd[2 * k + 1]);
 		}
 		return specMag;
 	}
 
+	/**
+	 * Computes the absolute value of a complex number the same way
+	 * {@link Complex#abs()} does, avoiding overflow.
+	 *
+	 * @param real the real part
+	 * @param imaginary the imaginary part
+	 * @return the absolute value
+	 */
+	static double abs(double real, double imaginary) {
+		if (Double.isNaN(real) || Double.isNaN(imaginary)) {
+			return Double.NaN;
+		}
+		if (Double.isInfinite(real) || Double.isInfinite(imaginary)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (Math.abs(real) < Math.abs(imaginary)) {
+			if (imaginary == 0.0) {
+				return Math.abs(real);
+			}
+			double q = real / imaginary;
+			return Math.abs(imaginary) * Math.sqrt(1 + q * q);
+		} else {
+			if (real == 0.0) {
+				return Math.abs(imaginary);
+			}
+			double q = imaginary / real;
+			return Math.abs(real) * Math.sqrt(1 + q * q);
+		}
+	}
+
+	/**
+	 * Copies a segment into the start of the buffer, clears the rest of it,
+	 * then detrends, demeans and tapers it.
+	 *
+	 * @return the taper's power correction, see
+	 *         {@link TimeseriesUtils#costaper(double[], int, double)}
+	 */
+	private static double prepareSegment(double[] data, int offset, int segmentSize,
+			double[] segment) {
+		System.arraycopy(data, offset, segment, 0, segmentSize);
+		Arrays.fill(segment, segmentSize, segment.length, 0.);
+		TimeseriesUtils.detrend(segment, segmentSize);
+		TimeseriesUtils.demean(segment, segmentSize);
+		return TimeseriesUtils.costaper(segment, segmentSize, .10);
+	}
+
+	/**
+	 * Transforms the segment starting at offset and adds its cross spectrum
+	 * to the accumulated psd, using the thread's workspace.
+	 *
+	 * @param offset index of the segment's first point
+	 * @param segmentSize number of points in the segment
+	 * @param paddedSegmentSize the segment size padded to a power of 2
+	 * @param psd the interleaved spectrum added to
+	 * @return the taper's power correction
+	 */
+	private double addSegment(int offset, int segmentSize, int paddedSegmentSize, double[] psd) {
+		Workspace workspace = Workspace.get(paddedSegmentSize, dataY != null);
+		double[] xfft = workspace.xSpectrum;
+		double[] yfft = xfft;
+
+		double wss = prepareSegment(dataX, offset, segmentSize, workspace.xSegment);
+		FFTUtils.realFFT(workspace.xSegment, xfft);
+
+		//Only use yseg if dataY actually exists. Cuts computation time in half.
+		if(dataY != null){
+			yfft = workspace.ySpectrum;
+			wss = prepareSegment(dataY, offset, segmentSize, workspace.ySegment);
+			FFTUtils.realFFT(workspace.ySegment, yfft);
+		}
+		//Otherwise dataY must have been equal to dataX and yfft is xfft.
+
+		// Load up the 1-sided PSD: psd[k] += xfft[k] * conj(yfft[k])
+		for (int k = 0; k < psd.length; k += 2) {
+			psd[k] += xfft[k] * yfft[k] - xfft[k + 1] * -yfft[k + 1];
+			psd[k + 1] += xfft[k] * -yfft[k + 1] + xfft[k + 1] * yfft[k];
+		}
+		return wss;
+	}
+
+	/**
+	 * Sets the number of threads transforming the segments of one high rate
+	 * PSD, including the thread computing it. Metrics computing PSDs already
+	 * run concurrently when metric_threads is above 1, so scans size this
+	 * against it rather than against every processor.
+	 *
+	 * @param threads the number of threads, segments are transformed on the
+	 *                thread computing the PSD if 1 or less
+	 */
+	public static synchronized void setSegmentThreads(int threads) {
+		segmentThreads = Math.max(threads, 1);
+		if (segmentPool != null) {
+			segmentPool.shutdown();
+			segmentPool = null;
+		}
+	}
+
+	/**
+	 * Gets the pool helping to transform segments, creating it if needed.
+	 *
+	 * @return the pool, null if segments are transformed on the calling thread
+	 */
+	private static synchronized ExecutorService getSegmentPool() {
+		if (segmentPool == null && segmentThreads > 1) {
+			segmentPool = Executors.newFixedThreadPool(segmentThreads - 1, runnable -> {
+				Thread thread = new Thread(runnable, "PSD segments");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return segmentPool;
+	}
+
+	/**
+	 * Sums the cross spectra of a run of consecutive segments into one
+	 * accumulator. The segments are split into one run per segment thread,
+	 * and the runs are added in order, so the result does not depend on which
+	 * threads run them.
+	 */
+	private class SegmentRun {
+		private final int firstSegment;
+		private final int segmentCount;
+		private final int segmentSize;
+		private final int segmentOffsetSize;
+		private final int paddedSegmentSize;
+
+		/** Receives the summed interleaved spectrum. */
+		private final double[] spectrum;
+
+		/** The taper's power correction */
+		private double wss;
+
+		private SegmentRun(int firstSegment, int segmentCount, int segmentSize,
+				int segmentOffsetSize, int paddedSegmentSize, double[] spectrum) {
+			this.firstSegment = firstSegment;
+			this.segmentCount = segmentCount;
+			this.segmentSize = segmentSize;
+			this.segmentOffsetSize = segmentOffsetSize;
+			this.paddedSegmentSize = paddedSegmentSize;
+			this.spectrum = spectrum;
+		}
+
+		private void run() {
+			for (int segment = firstSegment; segment < firstSegment + segmentCount; segment++) {
+				wss = addSegment(segment * segmentOffsetSize, segmentSize, paddedSegmentSize,
+						spectrum);
+			}
+		}
+	}
+
+	/**
+	 * Sums the cross spectra of the segments into psd, transforming them in
+	 * one run per segment thread. The first run is summed straight into psd
+	 * on the calling thread.
+	 *
+	 * @return the taper's power correction
+	 */
+	private double addSegments(ExecutorService pool, int segmentCount, int segmentSize,
+			int segmentOffsetSize, int paddedSegmentSize) {
+		int runCount;
+		synchronized (PSD.class) {
+			runCount = Math.min(segmentThreads, segmentCount);
+		}
+		List<SegmentRun> runs = new ArrayList<>(runCount);
+		List<Future<?>> futures = new ArrayList<>(runCount);
+		int firstSegment = 0;
+		for (int i = 0; i < runCount; i++) {
+			int count = (segmentCount - firstSegment) / (runCount - i);
+			SegmentRun run = new SegmentRun(firstSegment, count, segmentSize, segmentOffsetSize,
+					paddedSegmentSize, i == 0 ? psd : new double[psd.length]);
+			runs.add(run);
+			if (i > 0) {
+				futures.add(pool.submit(run::run));
+			}
+			firstSegment += count;
+		}
+		runs.get(0).run();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("== Interrupted --> Can't create new PSD", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("== Segment failed --> Can't create new PSD", e.getCause());
+		}
+		for (int i = 1; i < runCount; i++) {
+			double[] spectrum = runs.get(i).spectrum;
+			for (int k = 0; k < psd.length; k++) {
+				psd[k] += spectrum[k];
+			}
+		}
+		return runs.get(runCount - 1).wss;
+	}
+
 	/**
 	 * computePSD
 	 * 
@@ -119,6 +420,11 @@ public class PSD {
 	 * psd[f] - Contains smoothed crosspower-spectral density computed for nf =
 	 * nfft/2 + 1 frequencies (+ve freqs + DC + Nyq)
 	 * 
+	 * The spectra are kept as interleaved real and imaginary parts, and the
+	 * segments are transformed with {@link FFTUtils#realFFT(double[], double[])}
+	 * in the thread's reusable workspace, so no object is created per
+	 * frequency. Segments of high rate data are transformed in parallel, see
+	 * {@link #setSegmentThreads(int)}.
 	 */
 	private void computePSD() {
 
@@ -144,50 +450,31 @@ public class PSD {
 		int singleSideSize = paddedSegmentSize / 2 + 1;
 		deltaFrequency = 1. / (paddedSegmentSize * period);
 
-		psd = new Complex[singleSideSize];
+		psd = new double[2 * singleSideSize];
 		double wss = 0.;
 
 		int numberSegmentsProcessed = 0;
 		int segmentLastIndex = segmentSize;
 		int offset = 0;
 
-		for (int k = 0; k < singleSideSize; k++) {
-			psd[k] = Complex.ZERO;
-		}
-
-		while (segmentLastIndex <= dataSize)
-		{
-			Complex[] xfft = null;
-			Complex[] yfft = null;
-			
-			//Using Arrays.copyOfRange() is better than a loop when dealing with HH data.
-			double[] xseg = Arrays.copyOfRange(dataX, offset, segmentLastIndex);
-			TimeseriesUtils.detrend(xseg);
-			TimeseriesUtils.demean(xseg);
-			wss = TimeseriesUtils.costaper(xseg, .10);
-			xfft = FFTUtils.singleSidedFFT(xseg);
-			
-			//Only use yseg if dataY actually exists. Cuts computation time in half.
-			if(dataY != null){
-				double[] yseg = Arrays.copyOfRange(dataY, offset, segmentLastIndex);
-				TimeseriesUtils.detrend(yseg);
-				TimeseriesUtils.demean(yseg);
-				wss = TimeseriesUtils.costaper(yseg, .10);
-				yfft = FFTUtils.singleSidedFFT(yseg);
-			}
-			else{
-				//Since dataY is null, dataY must have been equal to dataX
-				yfft = xfft;
-			}
+		ExecutorService pool = null;
+		if (paddedSegmentSize >= parallelThreshold && segmentOffsetSize > 0) {
+			pool = getSegmentPool();
+		}
+		if (pool != null) {
+			// Segments are transformed in parallel and summed into psd[]
+			numberSegmentsProcessed = (dataSize - segmentSize) / segmentOffsetSize + 1;
+			wss = addSegments(pool, numberSegmentsProcessed, segmentSize, segmentOffsetSize,
+					paddedSegmentSize);
+		} else {
+			while (segmentLastIndex <= dataSize)
+			{
+				wss = addSegment(offset, segmentSize, paddedSegmentSize, psd);
 
-			// Load up the 1-sided PSD:
-			for (int k = 0; k < singleSideSize; k++) {
-				psd[k] = psd[k].add(xfft[k].multiply(yfft[k].conjugate()));
+				numberSegmentsProcessed++;
+				offset += segmentOffsetSize;
+				segmentLastIndex += segmentOffsetSize;
 			}
-
-			numberSegmentsProcessed++;
-			offset += segmentOffsetSize;
-			segmentLastIndex += segmentOffsetSize;
 		}
 
 		// Divide the summed psd[]'s by the number of windows (=13) AND
@@ -205,7 +492,8 @@ public class PSD {
 		frequencies = new double[singleSideSize];
 
 		for (int k = 0; k < singleSideSize; k++) {
-			psd[k] = psd[k].multiply(psdNormalization);
+			psd[2 * k] *= psdNormalization;
+			psd[2 * k + 1] *= psdNormalization;
 			frequencies[k] = (double) k * deltaFrequency;
 		}
 
@@ -213,12 +501,13 @@ public class PSD {
 		// neighboring frequencies:
 		int nsmooth = 11;
 		int nhalf = 5;
-		Complex[] psdCFsmooth = new Complex[singleSideSize];
+		double[] psdCFsmooth = new double[2 * singleSideSize];
 
 		int iw = 0;
 
 		for (iw = 0; iw < nhalf; iw++) {
-			psdCFsmooth[iw] = psd[iw];
+			psdCFsmooth[2 * iw] = psd[2 * iw];
+			psdCFsmooth[2 * iw + 1] = psd[2 * iw + 1];
 		}
 
 		// iw is really icenter of nsmooth point window
@@ -226,20 +515,23 @@ public class PSD {
 			int k1 = iw - nhalf;
 			int k2 = iw + nhalf;
 
-			Complex sumC = Complex.ZERO;
+			double sumReal = 0.;
+			double sumImaginary = 0.;
 			for (int k = k1; k < k2; k++) {
-				sumC = sumC.add(psd[k]);
+				sumReal += psd[2 * k];
+				sumImaginary += psd[2 * k + 1];
 			}
-			psdCFsmooth[iw] = sumC.divide((double) nsmooth);
+			psdCFsmooth[2 * iw] = sumReal / (double) nsmooth;
+			psdCFsmooth[2 * iw + 1] = sumImaginary / (double) nsmooth;
 		}
 
 		// Copy the remaining point into the smoothed array
 		for (; iw < singleSideSize; iw++) {
-			psdCFsmooth[iw] = psd[iw];
+			psdCFsmooth[2 * iw] = psd[2 * iw];
+			psdCFsmooth[2 * iw + 1] = psd[2 * iw + 1];
 		}
 
-		// Copy Frequency smoothed spectrum back into psd[f] and proceed as
-		// before
-		System.arraycopy(psdCFsmooth, 0, psd, 0, singleSideSize);
+		// The frequency smoothed spectrum replaces psd[f]
+		psd = psdCFsmooth;
 	}
 }
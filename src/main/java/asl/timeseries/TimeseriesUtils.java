@@ -13,7 +13,20 @@ public class TimeseriesUtils {
 	 *            array to detrend.
 	 */
 	public static void detrend(double[] timeseries) {
-		int ndata = timeseries.length;
+		detrend(timeseries, timeseries.length);
+	}
+
+	/**
+	 * Performs an in place detrend on the first values of an array of
+	 * timeseries data.
+	 * 
+	 * @param timeseries
+	 *            array to detrend.
+	 * @param length
+	 *            number of values at the start of the array to detrend.
+	 */
+	public static void detrend(double[] timeseries, int length) {
+		int ndata = length;
 		double sumx = 0.0;
 		double sumxx = 0.0;
 		double sumy = 0.0;
@@ -46,15 +59,30 @@ public class TimeseriesUtils {
 	 *             if timeseries.length == 0
 	 */
 	public static void demean(double[] timeseries) throws RuntimeException {
+		demean(timeseries, timeseries.length);
+	}
+
+	/**
+	 * Performs an in place demean on the first values of an array of
+	 * timeseries data.
+	 * 
+	 * @param timeseries
+	 *            demeaned in place.
+	 * @param length
+	 *            number of values at the start of the array to demean.
+	 * @throws RuntimeException
+	 *             if length == 0
+	 */
+	public static void demean(double[] timeseries, int length) throws RuntimeException {
 		double mean = 0;
-		for (int i = 0; i < timeseries.length; i++) {
+		for (int i = 0; i < length; i++) {
 			mean += timeseries[i];
 		}
-		if (timeseries.length == 0) {
+		if (length == 0) {
 			throw new RuntimeException("debias: timeseries.length=0 --> No data!");
 		} else {
-			mean /= (double) timeseries.length;
-			for (int i = 0; i < timeseries.length; i++) {
+			mean /= (double) length;
+			for (int i = 0; i < length; i++) {
 				timeseries[i] -= mean;
 			}
 		}
@@ -68,7 +96,20 @@ public class TimeseriesUtils {
 	 * @return double related to power loss from taper.
 	 */
 	public static double costaper(double[] timeseries, double width) {
-		int n = timeseries.length;
+		return costaper(timeseries, timeseries.length, width);
+	}
+
+	/**
+	 * Performs an in place cosine taper on the first values of passed array
+	 * of data.
+	 * 
+	 * @param timeseries time series
+	 * @param length number of values at the start of the array to taper
+	 * @param width width of cosine taper
+	 * @return double related to power loss from taper.
+	 */
+	public static double costaper(double[] timeseries, int length, double width) {
+		int n = length;
 		double ramp = width * (double) n;
 		double taper;
 		double Wss = 0;
@@ -7,6 +7,8 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.time.chrono.IsoChronology;
+import java.time.temporal.ChronoField;
 
 /**
  * This class contains basic utility functions when using Java 8 Time classes.
@@ -15,6 +17,11 @@ import java.time.ZoneOffset;
  */
 public class Time {
 
+  /**
+   * Days from 0000-01-01 to 1970-01-01.
+   */
+  private static final long DAYS_0000_TO_1970 = 719528L;
+
   /**
    * Converts LocalDateTime to epoch microseconds, assuming it is UTC
    *
@@ -86,4 +93,53 @@ public class Time {
     }
 
   }
+
+  /**
+   * Converts the values of a BTIME field to epoch microseconds without creating any objects. The
+   * result and the handling of leap seconds are the same as converting
+   * {@link #btimeToLocalDateTime(int, int, int, int, int, int)} with
+   * {@link #calculateEpochMicroSeconds(LocalDateTime)}.
+   *
+   * @param year Year (e.g., 1987)
+   * @param dayOfYear Day of Year (Jan 1 is 1)
+   * @param hour Hours of day (0-23)
+   * @param minute Minutes of day (0-59)
+   * @param second Seconds of day (0-59, 60 for leap seconds)
+   * @param dmSecond 0.0001 seconds (0-9999)
+   * @return microseconds since 1970-01-01:00:00:00.0
+   * @throws DateTimeException if a value is out of range
+   */
+  public static long btimeToEpochMicroSeconds(int year, int dayOfYear, int hour, int minute,
+      int second, int dmSecond) {
+    ChronoField.YEAR.checkValidValue(year);
+    ChronoField.DAY_OF_YEAR.checkValidValue(dayOfYear);
+    if (dayOfYear == 366 && !IsoChronology.INSTANCE.isLeapYear(year)) {
+      throw new DateTimeException(
+          "Invalid date 'DayOfYear 366' as '" + year + "' is not a leap year");
+    }
+    ChronoField.HOUR_OF_DAY.checkValidValue(hour);
+    ChronoField.MINUTE_OF_HOUR.checkValidValue(minute);
+    int nanoSecond;
+    if (second == 60 || second == 61) {
+      second = 59;
+      nanoSecond = 999999999;
+    } else {
+      ChronoField.SECOND_OF_MINUTE.checkValidValue(second);
+      nanoSecond = decimillisecondsToNanoSeconds(dmSecond);
+      ChronoField.NANO_OF_SECOND.checkValidValue(nanoSecond);
+    }
+
+    // Days to January 1st as LocalDate.toEpochDay() counts them
+    long y = year;
+    long days = 365 * y;
+    if (y >= 0) {
+      days += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+    } else {
+      days -= y / -4 - y / -100 + y / -400;
+    }
+    long epochDay = days + dayOfYear - 1 - DAYS_0000_TO_1970;
+
+    long epochSecond = epochDay * 86400 + hour * 3600 + minute * 60 + second;
+    return epochSecond * 1000000 + nanoSecond / 1000;
+  }
 }
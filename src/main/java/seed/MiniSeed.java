@@ -103,12 +103,12 @@ public class MiniSeed {
 	/** The Constant QUALITY_QUESTIONABLE_TIME. */
 	private final static int QUALITY_QUESTIONABLE_TIME = 1;
 	
-	/** The ms. */
+	/**
+	 * The record, starting at index zero. This is either our copy of the input
+	 * data or a view supplied by the caller.
+	 */
 	private ByteBuffer ms;
 	
-	/** Our copy of the input data wrapped by ms */
-	private byte[] buf;
-	
 	/** The cracked. */
 	private boolean cracked;
 	
@@ -382,7 +382,7 @@ public class MiniSeed {
 	 * @throws IllegalSeednameException             if the name does not pass muster
 	 */
 	public MiniSeed(byte[] inbuf) throws IllegalSeednameException {
-		buf = new byte[inbuf.length];
+		byte[] buf = new byte[inbuf.length];
 		System.arraycopy(inbuf, 0, buf, 0, inbuf.length);
 		ms = ByteBuffer.wrap(buf);
 		blockettes = new ByteBuffer[4];
@@ -392,17 +392,37 @@ public class MiniSeed {
 		recordNumber = recordCount++;
 	}
 
+	/**
+	 * Creates a new instance of MiniSeed directly on top of a record view, such
+	 * as a slice of a memory mapped file. The record is the content between
+	 * the buffer's position and limit and is not copied, so the buffer must
+	 * not be reused while this object is in use. Changes made through the
+	 * setters are written through to the buffer, so they are not available
+	 * for read only views.
+	 *
+	 * @param record            A view of one binary miniseed record
+	 * @throws IllegalSeednameException             if the name does not pass muster
+	 */
+	public MiniSeed(ByteBuffer record) throws IllegalSeednameException {
+		ms = record.slice();
+		blockettes = new ByteBuffer[4];
+		blocketteList = new short[4];
+		blocketteOffsets = new int[4];
+		init(); // init will set swapping of ms
+		recordNumber = recordCount++;
+	}
+
 	/**
 	 * Inits the.
 	 *
 	 * @throws IllegalSeednameException the illegal seedname exception
 	 */
 	private void init() throws IllegalSeednameException {
-		length = buf.length;
+		length = ms.capacity();
 		cracked = false;
 		cleared = false;
 		encoding = 0;
-		recLength = buf.length; // this will be overridden by blockette 1000 if
+		recLength = ms.capacity(); // this will be overridden by blockette 1000 if
 								// present
 		order = -100;
 		nframes = 0;
@@ -418,7 +438,7 @@ public class MiniSeed {
 			startTime = new byte[10];
 		if (isHeartBeat())
 			return;
-		swap = swapNeeded(buf, ms);
+		swap = swapNeeded(ms);
 		if (swap)
 			ms.order(ByteOrder.LITTLE_ENDIAN);
 
@@ -452,9 +472,20 @@ public class MiniSeed {
 	 * @return true, if successful
 	 */
 	public static boolean crackIsHeartBeat(byte[] buf) {
+		return crackIsHeartBeat(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * Crack is heart beat.
+	 *
+	 * @param record the record, starting at index zero of the buffer
+	 * @return true, if successful
+	 */
+	public static boolean crackIsHeartBeat(ByteBuffer record) {
 		boolean is = true;
 		for (int i = 0; i < 6; i++)
-			if (buf[i] != 48 || buf[i + 6] != 32 || buf[i + 12] != 32) {
+			if (record.get(i) != 48 || record.get(i + 6) != 32
+					|| record.get(i + 12) != 32) {
 				is = false;
 				break;
 			}
@@ -468,13 +499,7 @@ public class MiniSeed {
 	 * @return true if sequences is all zero and first 12 chars are blanks
 	 */
 	public boolean isHeartBeat() {
-		boolean is = true;
-		for (int i = 0; i < 6; i++)
-			if (buf[i] != 48 || buf[i + 6] != 32 || buf[i + 12] != 32) {
-				is = false;
-				break;
-			}
-		return is;
+		return crackIsHeartBeat(ms);
 	}
 
 	/**
@@ -490,18 +515,27 @@ public class MiniSeed {
 	 *             if the buf is clearly not miniseed
 	 */
 	public static int[] crackTime(byte[] buf) throws IllegalSeednameException {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		if (swapNeeded(buf))
-			bb.order(ByteOrder.LITTLE_ENDIAN);
-		bb.position(24);
-		// short year = bb.getShort();
-		// short day = bb.getShort();
+		return crackTime(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * This returns the time data as a 4 element array with hour,minute, sec,
+	 * and hsec from a raw miniseed record.
+	 * 
+	 * @param record
+	 *            A miniseed record, starting at index zero of the buffer
+	 * @return The time in a 4 integer array
+	 * @throws IllegalSeednameException
+	 *             if the record is clearly not miniseed
+	 */
+	public static int[] crackTime(ByteBuffer record)
+			throws IllegalSeednameException {
+		ByteBuffer bb = orderedView(record);
 		int[] time = new int[4];
-		time[0] = bb.get() & 0x000000ff; // hour
-		time[1] = bb.get() & 0x000000ff; // minute
-		time[2] = bb.get() & 0x000000ff;
-		bb.get();
-		time[3] = bb.getShort() & 0x0000ffff;
+		time[0] = bb.get(24) & 0x000000ff; // hour
+		time[1] = bb.get(25) & 0x000000ff; // minute
+		time[2] = bb.get(26) & 0x000000ff;
+		time[3] = bb.getShort(28) & 0x0000ffff;
 		return time;
 	}
 
@@ -513,11 +547,19 @@ public class MiniSeed {
 	 * @throws IllegalSeednameException             if the buffer clearly is not mini-seed
 	 */
 	public static int crackYear(byte[] buf) throws IllegalSeednameException {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		if (swapNeeded(buf))
-			bb.order(ByteOrder.LITTLE_ENDIAN);
-		bb.position(20);
-		return (int) bb.getShort();
+		return crackYear(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * Return the year from an uncracked miniseed record.
+	 *
+	 * @param record            Miniseed record, starting at index zero of the buffer
+	 * @return The year
+	 * @throws IllegalSeednameException             if the record clearly is not mini-seed
+	 */
+	public static int crackYear(ByteBuffer record)
+			throws IllegalSeednameException {
+		return (int) orderedView(record).getShort(20);
 	}
 
 	/**
@@ -528,11 +570,19 @@ public class MiniSeed {
 	 * @throws IllegalSeednameException             if the buffer clearly is not mini-seed
 	 */
 	public static int crackDOY(byte[] buf) throws IllegalSeednameException {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		if (swapNeeded(buf))
-			bb.order(ByteOrder.LITTLE_ENDIAN);
-		bb.position(22);
-		return (int) bb.getShort();
+		return crackDOY(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * Return the day of year from an uncracked miniseed record.
+	 *
+	 * @param record            Miniseed record, starting at index zero of the buffer
+	 * @return The day of year
+	 * @throws IllegalSeednameException             if the record clearly is not mini-seed
+	 */
+	public static int crackDOY(ByteBuffer record)
+			throws IllegalSeednameException {
+		return (int) orderedView(record).getShort(22);
 	}
 
 	/**
@@ -548,12 +598,24 @@ public class MiniSeed {
 	 *             if the buffer clearly is not mini-seed
 	 */
 	public static double crackRate(byte[] buf) throws IllegalSeednameException {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		if (swapNeeded(buf))
-			bb.order(ByteOrder.LITTLE_ENDIAN);
-		bb.position(32);
-		short rateFactor = bb.getShort();
-		short rateMultiplier = bb.getShort();
+		return crackRate(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * This returns the digitizing rate from a raw miniseed record.
+	 * 
+	 * @param record
+	 *            A miniseed record, starting at index zero of the buffer
+	 * @return The digitizing rate as a double. 0. if the block factor and
+	 *         multipler are invalid.
+	 * @throws IllegalSeednameException
+	 *             if the record clearly is not mini-seed
+	 */
+	public static double crackRate(ByteBuffer record)
+			throws IllegalSeednameException {
+		ByteBuffer bb = orderedView(record);
+		short rateFactor = bb.getShort(32);
+		short rateMultiplier = bb.getShort(34);
 		double rate = rateFactor;
 		// if rate > 0 its in hz, < 0 its period.
 		// if multiplier > 0 it multiplies, if < 0 it divides.
@@ -573,6 +635,20 @@ public class MiniSeed {
 		return rate;
 	}
 
+	/**
+	 * This returns the number of samples from a raw miniseed record.
+	 *
+	 * @param record
+	 *            A miniseed record, starting at index zero of the buffer
+	 * @return The number of samples in the record
+	 * @throws IllegalSeednameException
+	 *             if the record clearly is not mini-seed
+	 */
+	public static int crackNsamp(ByteBuffer record)
+			throws IllegalSeednameException {
+		return orderedView(record).getShort(30) & 0x0000ffff;
+	}
+
 	/**
 	 * This returns the seedname in NSCL order from a raw miniseed buffer in
 	 * buf. This routine would be used to extract a bit of data from a raw
@@ -584,10 +660,20 @@ public class MiniSeed {
 	 * @return The seedname in NSCL order
 	 */
 	public static String crackSeedname(byte[] buf) {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		bb.position(8);
+		return crackSeedname(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * This returns the seedname in NSCL order from a raw miniseed record.
+	 * 
+	 * @param record
+	 *            A miniseed record, starting at index zero of the buffer
+	 * @return The seedname in NSCL order
+	 */
+	public static String crackSeedname(ByteBuffer record) {
 		byte[] seed = new byte[12];
-		bb.get(seed);
+		for (int i = 0; i < 12; i++)
+			seed[i] = record.get(8 + i);
 		String s = new String(seed);
 		return s.substring(10, 12) + s.substring(0, 5) + s.substring(7, 10)
 				+ s.substring(5, 7);
@@ -611,8 +697,9 @@ public class MiniSeed {
 	 * @param buf the buf
 	 * @return the string
 	 */
-	private static String toStringRaw(byte[] buf) {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
+	private static String toStringRaw(ByteBuffer record) {
+		ByteBuffer bb = record.duplicate();
+		bb.clear();
 		StringBuilder tmp = new StringBuilder(100);
 		bb.position(0);
 		for (int i = 0; i < 6; i++)
@@ -656,27 +743,31 @@ public class MiniSeed {
 	}
 
 	/**
-	 * Swap needed.
+	 * Returns a view of the record whose byte order matches the record.
 	 *
-	 * @param buf the buf
-	 * @return true, if successful
+	 * @param record the record, starting at index zero of the buffer
+	 * @return an independent view of the record in the correct byte order
 	 * @throws IllegalSeednameException the illegal seedname exception
 	 */
-	private static boolean swapNeeded(byte[] buf)
+	private static ByteBuffer orderedView(ByteBuffer record)
 			throws IllegalSeednameException {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		return swapNeeded(buf, bb);
+		ByteBuffer probe = record.duplicate();
+		probe.order(ByteOrder.BIG_ENDIAN);
+		ByteBuffer bb = record.duplicate();
+		bb.order(swapNeeded(probe) ? ByteOrder.LITTLE_ENDIAN
+				: ByteOrder.BIG_ENDIAN);
+		return bb;
 	}
 
 	/**
-	 * Swap needed.
+	 * Swap needed. While working this out the byte order of bb is switched to
+	 * the order that appears to be in use.
 	 *
-	 * @param buf the buf
-	 * @param bb the bb
+	 * @param bb the record, starting at index zero of the buffer
 	 * @return the boolean
 	 * @throws IllegalSeednameException the illegal seedname exception
 	 */
-	private static Boolean swapNeeded(byte[] buf, ByteBuffer bb)
+	private static Boolean swapNeeded(ByteBuffer bb)
 			throws IllegalSeednameException {
 		
 		String qualityFlagsStr = Global.getQualityflags();
@@ -684,27 +775,24 @@ public class MiniSeed {
 		
 		boolean swap = false;
 
-		if( (buf[0] >= '0' && buf[0] <= '9') && (buf[1] >= '0' && buf[1] <= '9') && (buf[2] >= '0' && buf[2] <= '9') && (buf[3] >= '0' && buf[3] <= '9') && buf[7] == ' ' &&
+		if( (bb.get(0) >= '0' && bb.get(0) <= '9') && (bb.get(1) >= '0' && bb.get(1) <= '9') && (bb.get(2) >= '0' && bb.get(2) <= '9') && (bb.get(3) >= '0' && bb.get(3) <= '9') && bb.get(7) == ' ' &&
 		  (
 				  qualityFlags.contains("All") || 
-				  qualityFlags.contains(String.valueOf((char)buf[6]))
+				  qualityFlags.contains(String.valueOf((char)bb.get(6)))
 		  )
 		)
 		{
 			
-			bb.position(39); // position # of blockettes that follow
-			int nblks = bb.get(); // get it
+			int nblks = bb.get(39); // # of blockettes that follow
 			int offset;
 			if (nblks > 0) {
-				bb.position(46); // position offset to first blockette
-				offset = bb.getShort();
+				offset = bb.getShort(46); // offset to first blockette
 				if (offset > 64 || offset < 48) { // This looks like swap is needed
 					bb.order(ByteOrder.LITTLE_ENDIAN);
-					bb.position(46);
-					offset = bb.getShort(); // get byte swapped version
+					offset = bb.getShort(46); // get byte swapped version
 					if (offset > 200 || offset < 0) {
 						datalogger.error("MiniSEED: cannot figure out if this is swapped or not!!! Assume not. offset="
-								+ offset + " " + toStringRaw(buf));
+								+ offset + " " + toStringRaw(bb));
 						RuntimeException e = new RuntimeException(
 								"Cannot figure swap from offset ");
 						datalogger.error("RuntimeException:", e);
@@ -716,22 +804,21 @@ public class MiniSeed {
 						logger.error("Illegal offset trying to figure swapping off="
 								+ Util.toHex(offset) + " nblks=" + nblks
 								+ " seedname="
-								+ Util.toAllPrintable(crackSeedname(buf)) + " "
-								+ toStringRaw(buf));
+								+ Util.toAllPrintable(crackSeedname(bb)) + " "
+								+ toStringRaw(bb));
 						break;
 					}
-					bb.position(offset);
-					int type = bb.getShort();
+					int type = bb.getShort(offset);
 					int oldoffset = offset;
-					offset = bb.getShort();
+					offset = bb.getShort(oldoffset + 2);
 					// ByteOrder order=null;
 					if (type == 1000) {
-						bb.position(oldoffset + 5); // this should be word order
-						if (bb.get() == 0) {
+						// this should be word order
+						if (bb.get(oldoffset + 5) == 0) {
 							if (swap)
 								return true;
 							logger.error("Offset said swap but order byte in b1000 said not to! "
-									+ toStringRaw(buf));
+									+ toStringRaw(bb));
 							return false;
 						} else
 							return false;
@@ -739,15 +826,14 @@ public class MiniSeed {
 				}
 			} else { // This block does not have blockette 1000, so make decision
 						// based on where the data starts!
-				bb.position(44);
-				offset = bb.getShort();
+				offset = bb.getShort(44);
 				return offset < 0 || offset > 512;
 			}
 		}
 		else
 		{
 			throw new IllegalSeednameException("Bad seq # or [DQR] "
-					+ toStringRaw(buf));
+					+ toStringRaw(bb));
 		}
 		return swap;
 	}
@@ -771,39 +857,50 @@ public class MiniSeed {
 	 */
 	public static int crackBlockSize(byte[] buf)
 			throws IllegalSeednameException, BlockSizeException {
-		ByteBuffer bb = ByteBuffer.wrap(buf);
-		if (swapNeeded(buf))
-			bb.order(ByteOrder.LITTLE_ENDIAN);
-		bb.position(39); // position # of blockettes that follow
-		int nblks = bb.get(); // get it
-		bb.position(44); //The position of the data offset and end of data header.
-		int dataOffset = bb.getShort();
+		return crackBlockSize(ByteBuffer.wrap(buf));
+	}
+
+	/**
+	 * Crack block size from a record view. See {@link #crackBlockSize(byte[])}.
+	 *
+	 * @param record
+	 *            the seed record, starting at index zero of the buffer. Only
+	 *            the header and blockettes need to be present.
+	 * @return the block size
+	 * @throws IllegalSeednameException
+	 *             occurs if the blockette has an in valid name or channel.
+	 * @throws BlockSizeException
+	 *             occurs if either a blockette Offset is too small or too large
+	 *             OR if there is no blockette 1000.
+	 */
+	public static int crackBlockSize(ByteBuffer record)
+			throws IllegalSeednameException, BlockSizeException {
+		ByteBuffer bb = orderedView(record);
+		int nblks = bb.get(39); // # of blockettes that follow
+		int dataOffset = bb.getShort(44); //The data offset and end of data header.
 		if(dataOffset == 0){
 			logger.warn("Data Offset is 0. Either there is no data or there is a problem. Treating as if it was 64.");
 			dataOffset = 64; //If it is a record with no data, set to 64.
 		}
-		bb.position(46); // position offset to first blockette and end of fixed data header
-		int offset = bb.getShort();
+		int offset = bb.getShort(46); // offset to first blockette and end of fixed data header
 		for (int i = 0; i < nblks; i++) {
 			if (offset < 48 || offset >= dataOffset) {
 				String message = "Illegal offset trying to crackBlockSize() blocketteOffset="
 						+ offset + " dataOffset= " + dataOffset + " nblks=" + nblks + " seedname="
-						+ crackSeedname(buf);
+						+ crackSeedname(record);
 				throw new BlockSizeException(message);
 			}
-			bb.position(offset);
-			int type = bb.getShort();
+			int type = bb.getShort(offset);
 			int oldoffset = offset;
-			offset = bb.getShort();
+			offset = bb.getShort(oldoffset + 2);
 			if (type == 1000) {
-				bb.position(oldoffset + 6);
-				return 1 << bb.get();
+				return 1 << bb.get(oldoffset + 6);
 			}
 		}
 		/*If we got here we never found a blockette 1000*/
 		String message = "Missing blockette 1000 trying to crackBlockSize() blocketteOffset="
 				+ offset + " dataOffset= " + dataOffset + " nblks=" + nblks + " seedname="
-				+ crackSeedname(buf);
+				+ crackSeedname(record);
 		throw new BlockSizeException(message);
 
 	}
@@ -909,8 +1006,10 @@ public class MiniSeed {
 						if (time.get(Calendar.YEAR) == 2009
 								&& time.get(Calendar.DAY_OF_YEAR) >= 128
 								&& time.get(Calendar.DAY_OF_YEAR) <= 133) {
-							ms.position(ms.position() - 2);
-							ms.putShort((short) 1001);
+							if (!ms.isReadOnly()) {
+								ms.position(ms.position() - 2);
+								ms.putShort((short) 1001);
+							}
 							type = 1001;
 						}
 					}
@@ -1253,8 +1352,8 @@ public class MiniSeed {
 	public int getUsedFrameCount() {
 		crack();
 		int i;
-		for (i = Math.min(buf.length, recLength) - 1; i >= dataOffset; i--) {
-			if (buf[i] != 0)
+		for (i = Math.min(ms.capacity(), recLength) - 1; i >= dataOffset; i--) {
+			if (ms.get(i) != 0)
 				break;
 		}
 		return (i - dataOffset + 64) / 64; // This is the data frame # used
@@ -1670,12 +1769,33 @@ public class MiniSeed {
 	 * get the raw buffer representing this Miniseed-record. Beware you are
 	 * getting the actual buffer so changing it will change the underlying data
 	 * of this MiniSeed object. If this is done after crack, some of the
-	 * internals will not reflect it.
+	 * internals will not reflect it. Records created from a view without an
+	 * accessible array (e.g. a memory mapped file) return a copy instead.
 	 * 
 	 * @return the raw data byte buffer
 	 */
 	public byte[] getBuf() {
-		return buf;
+		if (ms.hasArray() && ms.arrayOffset() == 0
+				&& ms.array().length == ms.capacity())
+			return ms.array();
+		byte[] copy = new byte[ms.capacity()];
+		ByteBuffer bb = ms.duplicate();
+		bb.clear();
+		bb.get(copy);
+		return copy;
+	}
+
+	/**
+	 * Write bytes into the raw record at the given offset.
+	 *
+	 * @param offset the offset within the record
+	 * @param bytes the bytes to write
+	 */
+	private void putRaw(int offset, byte[] bytes) {
+		ByteBuffer bb = ms.duplicate();
+		bb.clear();
+		bb.position(offset);
+		bb.put(bytes);
 	}
 
 	/**
@@ -1927,8 +2047,7 @@ public class MiniSeed {
 			System.arraycopy(b1000.getBytes(), 0, buf1000, 0, 8);
 			for (int j = 0; j < blocketteList.length; j++) {
 				if (blocketteList[j] == 1000) {
-					System.arraycopy(b1000.getBytes(), 0, buf,
-							blocketteOffsets[j], 8);
+					putRaw(blocketteOffsets[j], Arrays.copyOf(b1000.getBytes(), 8));
 					break;
 				}
 			}
@@ -1950,8 +2069,7 @@ public class MiniSeed {
 			System.arraycopy(b1001.getBytes(), 0, buf1001, 0, 8);
 			for (int j = 0; j < blocketteList.length; j++) {
 				if (blocketteList[j] == 1001) {
-					System.arraycopy(b1001.getBytes(), 0, buf,
-							blocketteOffsets[j], 8);
+					putRaw(blocketteOffsets[j], Arrays.copyOf(b1001.getBytes(), 8));
 					break;
 				}
 			}
@@ -1973,8 +2091,7 @@ public class MiniSeed {
 			System.arraycopy(b1001.getBytes(), 0, buf1001, 0, 8);
 			for (int j = 0; j < blocketteList.length; j++) {
 				if (blocketteList[j] == 1001) {
-					System.arraycopy(b1001.getBytes(), 0, buf,
-							blocketteOffsets[j], 8);
+					putRaw(blocketteOffsets[j], Arrays.copyOf(b1001.getBytes(), 8));
 					break;
 				}
 			}
@@ -1982,6 +2099,72 @@ public class MiniSeed {
 		}
 	}
 
+	/**
+	 * Gets the number of samples {@link #decomp()} returns, without
+	 * decompressing them.
+	 *
+	 * @return the number of samples, -1 if the encoding is not decompressed
+	 * @throws BlockSizeException the block size exception
+	 */
+	public int getDecompLength() throws BlockSizeException {
+		if (getBlockSize() <= dataOffset) {
+			throw new BlockSizeException(String
+					.format("BlockSizeException: (blockSize:[{%s}]) > (dataOffset:[{%s}])",
+							getBlockSize(), dataOffset));
+		}
+		if (getEncoding() == B1000Types.STEIM1 || getEncoding() == B1000Types.STEIM2) {
+			return getNsamp();
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks the Steim frames of the record the same way
+	 * {@link #decomp(SampleSink)} does, without decompressing them. Used to
+	 * count samples so that records are dropped exactly when they would be
+	 * if decompressed.
+	 *
+	 * @return the number of samples {@link #decomp(SampleSink)} passes on, -1
+	 *         if the encoding is not decompressed
+	 * @throws SteimException
+	 *             if the frames are malformed
+	 * @throws BlockSizeException
+	 *             the block size exception
+	 */
+	public int checkDecomp() throws SteimException, BlockSizeException {
+		int length = getDecompLength();
+		if (length < 0) {
+			return -1;
+		}
+		SteimDecoder.check(ms, dataOffset, getBlockSize() - dataOffset,
+				getEncoding() == B1000Types.STEIM2, length, swap);
+		return length;
+	}
+
+	/**
+	 * Decompresses the samples of a Steim1 or Steim2 record straight out of
+	 * the record buffer into sink, without the intermediate arrays of
+	 * {@link #decomp()}.
+	 *
+	 * @param sink
+	 *            receives the samples
+	 * @return the number of samples passed to sink, -1 if the encoding is not
+	 *         decompressed, in which case nothing is passed to sink
+	 * @throws SteimException
+	 *             if the frames are malformed, nothing is passed to sink then
+	 * @throws BlockSizeException
+	 *             the block size exception
+	 */
+	public int decomp(SampleSink sink) throws SteimException, BlockSizeException {
+		int length = getDecompLength();
+		if (length < 0) {
+			return -1;
+		}
+		SteimDecoder.decode(ms, dataOffset, getBlockSize() - dataOffset,
+				getEncoding() == B1000Types.STEIM2, length, swap, sink);
+		return length;
+	}
+
 	/**
 	 * Decomp.
 	 *
@@ -1996,7 +2179,10 @@ public class MiniSeed {
 		if (getBlockSize() > dataOffset) {
             int framelen = getBlockSize() - dataOffset;
             byte[] frames = new byte[framelen];
-            System.arraycopy(buf, dataOffset, frames, 0, framelen);
+            ByteBuffer bb = ms.duplicate();
+            bb.clear();
+            bb.position(dataOffset);
+            bb.get(frames);
 
             if (getEncoding() == B1000Types.STEIM1)
                 samples = Steim1.decode(frames, getNsamp(), swap, rev);
@@ -0,0 +1,15 @@
+package seed;
+
+/**
+ * Receives the data points decompressed from a record one at a time, see
+ * {@link MiniSeed#decomp(SampleSink)}.
+ */
+public interface SampleSink {
+	/**
+	 * Accepts the next data point.
+	 *
+	 * @param sample
+	 *            the data point
+	 */
+	void put(int sample);
+}
@@ -0,0 +1,253 @@
+package seed;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import edu.iris.dmc.seedcodec.SteimException;
+
+/**
+ * Decompresses Steim1 and Steim2 frames directly out of a record's buffer
+ * into a {@link SampleSink}, without copying the frames or the samples into
+ * intermediate arrays.
+ *
+ * Follows the same conventions as the seedcodec decoders: the first sample is
+ * the forward integration constant X(0) of the first frame, and no more than
+ * the number of samples from the header are produced.
+ */
+final class SteimDecoder {
+
+	/** The size of a Steim frame in bytes. */
+	private static final int FRAME_SIZE = 64;
+
+	/** The number of 32 bit words in a Steim frame. */
+	private static final int FRAME_WORDS = 16;
+
+	private SteimDecoder() {
+	}
+
+	/**
+	 * Decompresses Steim1 or Steim2 frames.
+	 *
+	 * @param buf
+	 *            the record, indexed from 0 at the start of the record
+	 * @param offset
+	 *            the index of the first frame within buf
+	 * @param length
+	 *            the length of the frames in bytes
+	 * @param steim2
+	 *            true for Steim2, false for Steim1
+	 * @param numSamples
+	 *            the number of samples in the record header
+	 * @param swap
+	 *            true if the frames are little endian, see
+	 *            {@link MiniSeed#isSwapBytes()}
+	 * @param sink
+	 *            receives the samples
+	 * @throws SteimException
+	 *             if the frames are malformed or hold fewer samples than
+	 *             numSamples. Nothing has been passed to sink in that case.
+	 */
+	static void decode(ByteBuffer buf, int offset, int length, boolean steim2,
+			int numSamples, boolean swap, SampleSink sink) throws SteimException {
+		// Check the whole record before handing out the first sample, so that
+		// a malformed record leaves the sink untouched.
+		check(buf, offset, length, steim2, numSamples, swap);
+		if (numSamples <= 0) {
+			return;
+		}
+		boolean reverse = isReversed(buf, swap);
+		int numFrames = length / FRAME_SIZE;
+
+		// X(-1) = X(0) - d(0), so the first sample comes out as X(0)
+		int last = getInt(buf, offset + 4, reverse) - firstDifference(buf, offset, steim2, reverse);
+		int remaining = numSamples;
+		for (int frame = 0; frame < numFrames && remaining > 0; frame++) {
+			int frameOffset = offset + frame * FRAME_SIZE;
+			int nibbles = getInt(buf, frameOffset, reverse);
+			// Word 0 holds the nibbles, words 1 and 2 of the first frame hold
+			// the integration constants.
+			for (int word = (frame == 0) ? 3 : 1; word < FRAME_WORDS && remaining > 0; word++) {
+				int index = frameOffset + word * 4;
+				int nibble = (nibbles >>> (30 - word * 2)) & 0x03;
+				if (nibble == 0) {
+					continue;
+				}
+				if (nibble == 1) {
+					// 4 one byte differences
+					int n = Math.min(4, remaining);
+					for (int i = 0; i < n; i++) {
+						last += buf.get(index + i);
+						sink.put(last);
+					}
+					remaining -= n;
+				} else if (!steim2) {
+					if (nibble == 2) {
+						// 2 two byte differences
+						last += getShort(buf, index, reverse);
+						sink.put(last);
+						if (--remaining > 0) {
+							last += getShort(buf, index + 2, reverse);
+							sink.put(last);
+							remaining--;
+						}
+					} else {
+						// 1 four byte difference
+						last += getInt(buf, index, reverse);
+						sink.put(last);
+						remaining--;
+					}
+				} else {
+					int value = getInt(buf, index, reverse);
+					int dnib = value >>> 30;
+					int bits;
+					int n;
+					int shift;
+					if (nibble == 2) {
+						// dnib 1, 2, 3: 1 x 30, 2 x 15, 3 x 10 bits
+						n = dnib;
+						bits = 30 / dnib;
+						shift = 2;
+					} else {
+						// dnib 0, 1, 2: 5 x 6, 6 x 5, 7 x 4 bits
+						n = 5 + dnib;
+						bits = 6 - dnib;
+						shift = 32 - n * bits;
+					}
+					n = Math.min(n, remaining);
+					for (int i = 0; i < n; i++) {
+						last += (value << shift) >> (32 - bits);
+						sink.put(last);
+						shift += bits;
+					}
+					remaining -= n;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks Steim1 or Steim2 frames without decompressing them. Frames that
+	 * pass are decompressed by
+	 * {@link #decode(ByteBuffer, int, int, boolean, int, boolean, SampleSink)}
+	 * without an exception.
+	 *
+	 * @param buf
+	 *            the record, indexed from 0 at the start of the record
+	 * @param offset
+	 *            the index of the first frame within buf
+	 * @param length
+	 *            the length of the frames in bytes
+	 * @param steim2
+	 *            true for Steim2, false for Steim1
+	 * @param numSamples
+	 *            the number of samples in the record header
+	 * @param swap
+	 *            true if the frames are little endian
+	 * @throws SteimException
+	 *             if the frames are malformed or hold fewer samples than
+	 *             numSamples
+	 */
+	static void check(ByteBuffer buf, int offset, int length, boolean steim2,
+			int numSamples, boolean swap) throws SteimException {
+		if (length % FRAME_SIZE != 0) {
+			throw new SteimException("encoded data length is not multiple of 64 bytes ("
+					+ length + ")");
+		}
+		if (numSamples <= 0) {
+			return;
+		}
+		int count = countDifferences(buf, offset, length / FRAME_SIZE, steim2,
+				isReversed(buf, swap));
+		if (count < numSamples) {
+			throw new SteimException("Number of samples decompressed doesn't match number in header: "
+					+ count + " != " + numSamples);
+		}
+	}
+
+	/**
+	 * Values are read in buf's byte order and reversed when the frames are in
+	 * the other one.
+	 */
+	private static boolean isReversed(ByteBuffer buf, boolean swap) {
+		return swap == (buf.order() == ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Counts the differences held by the frames.
+	 *
+	 * @throws SteimException
+	 *             if a Steim2 word has an invalid dnib.
+	 */
+	private static int countDifferences(ByteBuffer buf, int offset, int numFrames,
+			boolean steim2, boolean reverse) throws SteimException {
+		int count = 0;
+		for (int frame = 0; frame < numFrames; frame++) {
+			int frameOffset = offset + frame * FRAME_SIZE;
+			int nibbles = getInt(buf, frameOffset, reverse);
+			for (int word = (frame == 0) ? 3 : 1; word < FRAME_WORDS; word++) {
+				int nibble = (nibbles >>> (30 - word * 2)) & 0x03;
+				if (nibble == 0) {
+					continue;
+				}
+				if (nibble == 1) {
+					count += 4;
+				} else if (!steim2) {
+					count += (nibble == 2) ? 2 : 1;
+				} else {
+					int dnib = getInt(buf, frameOffset + word * 4, reverse) >>> 30;
+					if (nibble == 2) {
+						if (dnib == 0) {
+							throw new SteimException("invalid dnib 0 for nibble 2 in frame "
+									+ frame + ", word " + word);
+						}
+						count += dnib;
+					} else {
+						if (dnib == 3) {
+							throw new SteimException("invalid dnib 3 for nibble 3 in frame "
+									+ frame + ", word " + word);
+						}
+						count += 5 + dnib;
+					}
+				}
+			}
+		}
+		// X(0) stands in for d(0), so each difference yields one sample.
+		return count;
+	}
+
+	/**
+	 * Returns d(0), the first difference of the first frame.
+	 */
+	private static int firstDifference(ByteBuffer buf, int offset, boolean steim2,
+			boolean reverse) {
+		int nibbles = getInt(buf, offset, reverse);
+		for (int word = 3; word < FRAME_WORDS; word++) {
+			int index = offset + word * 4;
+			int nibble = (nibbles >>> (30 - word * 2)) & 0x03;
+			if (nibble == 1) {
+				return buf.get(index);
+			} else if (nibble == 2 && !steim2) {
+				return getShort(buf, index, reverse);
+			} else if (nibble == 3 && !steim2) {
+				return getInt(buf, index, reverse);
+			} else if (nibble != 0) {
+				int value = getInt(buf, index, reverse);
+				int dnib = value >>> 30;
+				int bits = (nibble == 2) ? 30 / dnib : 6 - dnib;
+				int shift = (nibble == 2) ? 2 : 32 - (5 + dnib) * bits;
+				return (value << shift) >> (32 - bits);
+			}
+		}
+		return 0;
+	}
+
+	private static int getInt(ByteBuffer buf, int index, boolean reverse) {
+		int value = buf.getInt(index);
+		return reverse ? Integer.reverseBytes(value) : value;
+	}
+
+	private static int getShort(ByteBuffer buf, int index, boolean reverse) {
+		short value = buf.getShort(index);
+		return reverse ? Short.reverseBytes(value) : value;
+	}
+}
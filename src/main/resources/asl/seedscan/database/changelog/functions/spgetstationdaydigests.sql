@@ -0,0 +1,39 @@
+-- Function: spgetstationdaydigests(date, character varying, character varying)
+
+-- DROP FUNCTION spgetstationdaydigests(date, character varying, character varying);
+
+CREATE OR REPLACE FUNCTION spgetstationdaydigests(
+    IN date,
+    IN character varying,
+    IN character varying)
+  RETURNS TABLE(metric character varying, location character varying, channel character varying, hash bytea) AS
+$BODY$
+--Digests of every metric value of every channel of a station for a day.
+	SELECT
+	  tblMetric.name,
+	  tblSensor.location,
+	  tblChannel.name,
+	  tblHash.hash
+	FROM
+	  public.tblhash,
+	  public.tblmetricdata,
+	  public.tblmetric,
+	  public.tblchannel,
+	  public.tblsensor,
+	  public.tblstation,
+	  public."tblGroup"
+	WHERE
+	  --JOINS
+	  tblmetricdata."fkHashID" = tblHash."pkHashID" AND
+	  tblmetricdata.fkmetricid = tblmetric.pkmetricid AND
+	  tblmetricdata.fkchannelid = tblchannel.pkchannelid AND
+	  tblchannel.fksensorid = tblsensor.pksensorid AND
+	  tblsensor.fkstationid = tblstation.pkstationid AND
+	  tblstation.fknetworkid = "tblGroup".pkgroupid AND
+	  --Criteria
+	  "tblGroup".name = $2 AND
+	  tblStation.name = $3 AND
+	  tblMetricData.date = to_char($1, 'J')::INT;
+$BODY$
+  LANGUAGE sql STABLE
+  COST 100;
@@ -0,0 +1,69 @@
+package asl.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetadataStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File createDatalessFile(String name) throws Exception {
+    File datalessFile = folder.newFile(name);
+    Files.write(datalessFile.toPath(), new byte[]{1, 2, 3, 4});
+    return datalessFile;
+  }
+
+  private static SeedVolume createVolume() {
+    SeedVolume volume = new SeedVolume(new Blockette(10), "IU", "ANMO");
+    StationKey stationKey = new StationKey(new Station("IU", "ANMO"));
+    volume.addStation(stationKey, new StationData("IU", "ANMO"));
+    return volume;
+  }
+
+  @Test
+  public void testStoredVolumeIsReadOnRestart() throws Exception {
+    File storeDir = new File(folder.getRoot(), "store");
+    File datalessFile = createDatalessFile("IU_ANMO.dataless");
+    StationKey stationKey = new StationKey(new Station("IU", "ANMO"));
+
+    MetadataStore store = new MetadataStore(storeDir);
+    assertFalse(store.addStored(datalessFile));
+    store.store(datalessFile, createVolume());
+
+    MetadataStore restarted = new MetadataStore(storeDir);
+    assertTrue(restarted.addStored(datalessFile));
+    assertEquals(Collections.singleton(stationKey), restarted.getStationKeys());
+    assertEquals(1, restarted.getStationList(stationKey).size());
+    assertEquals("ANMO", restarted.getStationList(stationKey).get(0).getStation());
+
+    SeedVolume volume = restarted.getVolume(stationKey);
+    assertNotNull(volume);
+    assertEquals(stationKey, volume.getStationKey());
+    assertTrue(volume.hasStation(stationKey));
+  }
+
+  @Test
+  public void testChangedDatalessFileIsNotUsed() throws Exception {
+    File storeDir = new File(folder.getRoot(), "store");
+    File datalessFile = createDatalessFile("IU_ANMO.dataless");
+
+    new MetadataStore(storeDir).store(datalessFile, createVolume());
+    Files.write(datalessFile.toPath(), new byte[]{1, 2, 3, 4, 5});
+
+    MetadataStore restarted = new MetadataStore(storeDir);
+    assertFalse(restarted.addStored(datalessFile));
+    assertTrue(restarted.getStationKeys().isEmpty());
+    assertNull(restarted.getVolume(new StationKey(new Station("IU", "ANMO"))));
+  }
+}
@@ -0,0 +1,87 @@
+package asl.metadata.meta_new;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.math3.complex.Complex;
+import org.junit.Test;
+
+/**
+ * Compares PoleZeroStage against the Complex based evaluation it replaced. The arithmetic is the
+ * same, so values agree exactly.
+ */
+public class PoleZeroStageTest {
+
+  /**
+   * An STS-1 like velocity response.
+   */
+  private static PoleZeroStage createStage(char stageType) {
+    PoleZeroStage stage = new PoleZeroStage(1, stageType, 2400., 0.02);
+    stage.addZero(new Complex(0., 0.));
+    stage.addZero(new Complex(0., 0.));
+    stage.addPole(new Complex(-0.01234, 0.01234));
+    stage.addPole(new Complex(-0.01234, -0.01234));
+    stage.addPole(new Complex(-39.18, 49.12));
+    stage.addPole(new Complex(-39.18, -49.12));
+    stage.setNormalization(3948.58);
+    stage.setInputUnits("M/S - Velocity in Meters Per Second");
+    return stage;
+  }
+
+  /**
+   * The Complex based evaluation PoleZeroStage used before it evaluated responses in double[].
+   */
+  private static Complex legacyResponse(PoleZeroStage stage, double f) {
+    Complex s;
+    if (stage.getStageType() == 'A') {
+      s = new Complex(0.0, 2 * Math.PI * f);
+    } else {
+      s = new Complex(0.0, f);
+    }
+    Complex numerator = Complex.ONE;
+    Complex denomenator = Complex.ONE;
+    for (Complex zero : stage.getZeros()) {
+      numerator = numerator.multiply(s.subtract(zero));
+    }
+    for (Complex pole : stage.getPoles()) {
+      denomenator = denomenator.multiply(s.subtract(pole));
+    }
+    return numerator.multiply(stage.getNormalization()).divide(denomenator);
+  }
+
+  private static void assertMatchesLegacy(char stageType) throws Exception {
+    PoleZeroStage stage = createStage(stageType);
+    double[] freqs = new double[1000];
+    for (int i = 0; i < freqs.length; i++) {
+      freqs[i] = i * 0.001;
+    }
+
+    Complex[] response = stage.getResponse(freqs);
+    for (int i = 0; i < freqs.length; i++) {
+      Complex expected = legacyResponse(stage, freqs[i]);
+      assertEquals(expected.getReal(), response[i].getReal(), 0.);
+      assertEquals(expected.getImaginary(), response[i].getImaginary(), 0.);
+    }
+  }
+
+  @Test
+  public final void testLaplaceRadiansMatchesLegacy() throws Exception {
+    assertMatchesLegacy('A');
+  }
+
+  @Test
+  public final void testLaplaceHertzMatchesLegacy() throws Exception {
+    assertMatchesLegacy('B');
+  }
+
+  @Test
+  public final void testUnitConversionMultiplies() throws Exception {
+    double[] response = {3., 4.};
+    PoleZeroStage.multiply(response, 0, 0., 2.);
+    assertEquals(-8., response[0], 0.);
+    assertEquals(6., response[1], 0.);
+
+    PoleZeroStage.multiply(response, 0, 0.5);
+    assertEquals(-4., response[0], 0.);
+    assertEquals(3., response[1], 0.);
+  }
+}
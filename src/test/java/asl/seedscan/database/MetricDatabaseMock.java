@@ -2,8 +2,10 @@ package asl.seedscan.database;
 
 import asl.metadata.Channel;
 import asl.metadata.Station;
+import asl.seedscan.metrics.MetricResult;
 import java.nio.ByteBuffer;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -72,6 +74,18 @@ public class MetricDatabaseMock extends MetricDatabase {
   }
 
 
+  @Override
+  public synchronized int insertMetricData(Collection<MetricResult> resultsList) {
+    for (MetricResult results : resultsList) {
+      for (String id : results.getIdSet()) {
+        MetricValueIdentifier valueId = new MetricValueIdentifier(results.getDate(),
+            results.getMetricName(), results.getStation(), MetricResult.createChannel(id));
+        insertMockData(valueId, results.getResult(id), results.getDigest(id));
+      }
+    }
+    return 0;
+  }
+
   @Override
   public synchronized DatabaseScan takeNextScan() {
     scanRequests++;
@@ -1,11 +1,15 @@
 package asl.seedscan.event;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import asl.metadata.Station;
 import asl.testutils.ResourceManager;
+import asl.timeseries.MyFilter;
+import java.io.File;
 import java.time.LocalDate;
 import java.util.Hashtable;
 import org.junit.AfterClass;
@@ -68,4 +72,35 @@ public class EventLoaderTest {
     assertEquals(new Double(cmt.getDepth()), new Double(212.5));
   }
 
+  @Test
+  public final void testGetFilteredSynthetic() throws Exception {
+    LocalDate date = LocalDate.of(2015, 10, 26);
+    Station station = new Station("IU", "NWAO");
+    String fileName = "NWAO.XX.LXZ.modes.sac.proc";
+
+    eventLoader.getDayEvents(date);
+    SacTimeSeries synthetic = eventLoader.getDaySynthetics(date, station)
+        .get("C201510260909A").get(fileName);
+    // Synthetics are read once and shared.
+    assertSame(synthetic, eventLoader.getDaySynthetics(date, station)
+        .get("C201510260909A").get(fileName));
+    float[] unfiltered = synthetic.getY().clone();
+
+    SacTimeSeries expected = new SacTimeSeries();
+    expected.read(new File(EventLoader.getEventsDirectory() + "/2015/C201510260909A/" + fileName));
+    MyFilter.bandpass(expected, 1. / 500, 1. / 400, 1. / 165, 1. / 160);
+    float[] expectedY = expected.getY();
+    double[] expectedData = new double[expectedY.length];
+    for (int k = 0; k < expectedY.length; k++) {
+      expectedData[k] = expectedY[k];
+    }
+
+    double[] filtered = EventLoader.getFilteredSynthetic("C201510260909A", fileName, synthetic,
+        1. / 500, 1. / 400, 1. / 165, 1. / 160);
+    assertArrayEquals(expectedData, filtered, 0.);
+    // Filtering again returns the cached result and leaves the synthetic alone.
+    assertArrayEquals(filtered, EventLoader.getFilteredSynthetic("C201510260909A", fileName,
+        synthetic, 1. / 500, 1. / 400, 1. / 165, 1. / 160), 0.);
+    assertArrayEquals(unfiltered, synthetic.getY(), 0f);
+  }
 }
@@ -13,6 +13,7 @@ import asl.metadata.meta_new.StationMeta;
 import asl.seedscan.database.MetricDatabaseMock;
 import asl.seedscan.database.MetricValueIdentifier;
 import asl.seedsplitter.DataSet;
+import asl.seedsplitter.IntSeries;
 import asl.testutils.ResourceManager;
 import java.nio.ByteBuffer;
 import java.time.LocalDate;
@@ -229,7 +230,7 @@ public class MetricDataTest {
 
   @Test
   public final void testGetChannelTimingQualityDataChannel() throws Exception {
-    ArrayList<Integer> timingQuality;
+    IntSeries timingQuality;
 
     timingQuality = data.getChannelTimingQualityData(new Channel("10", "BH1"));
 
@@ -0,0 +1,159 @@
+package asl.seedscan.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import asl.metadata.Station;
+import asl.seedscan.metrics.MetricData;
+import asl.seedsplitter.DataSet;
+import asl.seedsplitter.DirectBlockPool;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class MetricDataCacheTest {
+
+  private static final Station STATION = new Station("IU", "ANMO");
+
+  private static final long DAY_SIZE = (long) DataSet.getBlockSize() * Integer.BYTES;
+
+  /**
+   * Creates MetricData holding a single block of samples.
+   */
+  private static MetricData createMetricData() {
+    return createMetricData(new DataSet());
+  }
+
+  private static MetricData createMetricData(DataSet dataSet) {
+    dataSet.extend(new int[10], 0, 10);
+    ArrayList<DataSet> dataSets = new ArrayList<>();
+    dataSets.add(dataSet);
+    Hashtable<String, ArrayList<DataSet>> table = new Hashtable<>();
+    table.put("IU_ANMO 00-LHZ", dataSets);
+    return new MetricData(null, table, new Hashtable<>(), null, new Hashtable<>());
+  }
+
+  @Test
+  public void get_ReturnsViewOfCachedDay() throws Exception {
+    MetricDataCache cache = new MetricDataCache(DAY_SIZE);
+    MetricData data = createMetricData();
+    cache.put(STATION, LocalDate.of(2016, 6, 30), null, false, 1, data);
+
+    MetricData view = cache.get(STATION, LocalDate.of(2016, 6, 30), null, false, 1, null);
+    assertNotNull(view);
+    assertNotSame(data, view);
+    assertEquals(1, cache.getHits());
+
+    assertNull(cache.get(STATION, LocalDate.of(2016, 6, 30), "LH.*", false, 1, null));
+    assertNull(cache.get(STATION, LocalDate.of(2016, 6, 30), null, true, 1, null));
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void get_ChangedFilesAreReloaded() throws Exception {
+    MetricDataCache cache = new MetricDataCache(DAY_SIZE);
+    cache.put(STATION, LocalDate.of(2016, 6, 30), null, false, 1, createMetricData());
+
+    assertNull(cache.get(STATION, LocalDate.of(2016, 6, 30), null, false, 2, null));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void put_EvictsLeastRecentlyUsed() throws Exception {
+    MetricDataCache cache = new MetricDataCache(2 * DAY_SIZE);
+    cache.put(STATION, LocalDate.of(2016, 6, 28), null, false, 1, createMetricData());
+    cache.put(STATION, LocalDate.of(2016, 6, 29), null, false, 1, createMetricData());
+    assertNotNull(cache.get(STATION, LocalDate.of(2016, 6, 28), null, false, 1, null));
+
+    cache.put(STATION, LocalDate.of(2016, 6, 30), null, false, 1, createMetricData());
+
+    assertEquals(1, cache.getEvictions());
+    assertEquals(2 * DAY_SIZE, cache.getSize());
+    assertNotNull(cache.get(STATION, LocalDate.of(2016, 6, 28), null, false, 1, null));
+    assertNull(cache.get(STATION, LocalDate.of(2016, 6, 29), null, false, 1, null));
+  }
+
+  @Test
+  public void put_DayLargerThanCacheIsNotCached() throws Exception {
+    MetricDataCache cache = new MetricDataCache(DAY_SIZE - 1);
+    cache.put(STATION, LocalDate.of(2016, 6, 30), null, false, 1, createMetricData());
+
+    assertNull(cache.get(STATION, LocalDate.of(2016, 6, 30), null, false, 1, null));
+  }
+
+  @Test
+  public void put_OffHeapDayIsReleasedAfterLastView() throws Exception {
+    MetricDataCache cache = new MetricDataCache(DAY_SIZE);
+    DataSet dataSet = new DataSet(false, new DirectBlockPool());
+    cache.put(STATION, LocalDate.of(2016, 6, 29), null, false, 1, createMetricData(dataSet));
+    MetricData view = cache.get(STATION, LocalDate.of(2016, 6, 29), null, false, 1, null);
+
+    cache.put(STATION, LocalDate.of(2016, 6, 30), null, false, 1, createMetricData());
+    assertEquals(1, cache.getEvictions());
+    assertEquals(10, dataSet.getLength());
+
+    view.release();
+    assertEquals(0, dataSet.getLength());
+  }
+
+  @Test
+  public void get_ConcurrentCallersShareOneLoad() throws Exception {
+    MetricDataCache cache = new MetricDataCache(DAY_SIZE);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch waiting = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<MetricData> first = executor.submit(
+          () -> cache.get(STATION, LocalDate.of(2016, 6, 30), null, false, 1, null, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+              waiting.await();
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+            return createMetricData();
+          }));
+      loading.await();
+      Future<MetricData> second = executor.submit(
+          () -> cache.get(STATION, LocalDate.of(2016, 6, 30), null, false, 1, null, () -> {
+            loads.incrementAndGet();
+            return createMetricData();
+          }));
+      // Give the second caller time to start waiting for the first load
+      Thread.sleep(100);
+      waiting.countDown();
+
+      assertNotNull(first.get());
+      assertNotNull(second.get());
+      assertEquals(1, loads.get());
+      assertEquals(1, cache.getMisses());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void get_OffHeapDayTooLargeToCacheStaysWithWaiters() throws Exception {
+    MetricDataCache cache = new MetricDataCache(0);
+    DataSet dataSet = new DataSet(false, new DirectBlockPool());
+    MetricData view = cache.get(STATION, LocalDate.of(2016, 6, 30), null, false, 1, null,
+        () -> createMetricData(dataSet));
+
+    assertNotNull(view);
+    assertEquals(0, cache.getSize());
+    assertEquals(10, dataSet.getLength());
+
+    view.release();
+    assertEquals(0, dataSet.getLength());
+  }
+}
@@ -1,6 +1,8 @@
 package asl.seedscan.scanner.scanworker;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import asl.metadata.MetaGenerator;
@@ -13,6 +15,7 @@ import asl.testutils.ResourceManager;
 import java.time.LocalDate;
 import java.util.Queue;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -116,10 +119,18 @@ public class StationScanTest {
         1, false);
     StationScan scan = new StationScan(manager, dbScan, LocalDate.of(2012, 1, 17), null);
 
-    //Should do basically nothing and add only one more scan to manager queue
+    //Should split off the last days, then add the next day of its own half
     scan.run();
 
-    assertEquals("Number of station Scans added: ", 1, manager.getNumberTasksAdded());
+    assertEquals("Number of station Scans added: ", 2, manager.getNumberTasksAdded());
+
+    Queue<ScanWorker> workQueue = manager.getWorkQueue();
+    StationScan splitScan = (StationScan) workQueue.poll();
+    assertEquals(LocalDate.of(2012, 1, 19), splitScan.currentDate);
+    assertEquals(LocalDate.of(2012, 1, 20), splitScan.lastDate);
+    StationScan nextScan = (StationScan) workQueue.poll();
+    assertEquals(LocalDate.of(2012, 1, 18), nextScan.currentDate);
+    assertEquals(LocalDate.of(2012, 1, 18), nextScan.lastDate);
   }
 
   @Test(timeout = 20000)
@@ -172,6 +183,23 @@ public class StationScanTest {
 
   }
 
+  @Test
+  public void getChannelFilter_UnrestrictedScan() throws Exception {
+    assertNull(StationScan.getChannelFilter(null));
+    assertNull(StationScan.getChannelFilter(" "));
+    assertNull(StationScan.getChannelFilter("LH?"));
+  }
+
+  @Test
+  public void getChannelFilter_LoadsWholeBand() throws Exception {
+    Pattern filter = StationScan.getChannelFilter("LHZ, BH1");
+    assertTrue(filter.matcher("LHZ").matches());
+    assertTrue(filter.matcher("LHND").matches());
+    assertTrue(filter.matcher("BH2").matches());
+    assertFalse(filter.matcher("VHZ").matches());
+    assertFalse(filter.matcher("LNZ").matches());
+  }
+
   @Test
   public void getBasePriority() throws Exception {
     DatabaseScan dbScan = new DatabaseScan(
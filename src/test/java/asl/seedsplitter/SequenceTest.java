@@ -0,0 +1,225 @@
+package asl.seedsplitter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import asl.metadata.Channel;
+import asl.seedscan.metrics.MetricData;
+import asl.testutils.ResourceManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class SequenceTest {
+
+  /**
+   * Interval of a 20 Hz sequence in microseconds.
+   */
+  private static final long INTERVAL = 50000;
+
+  private static final long START = 1000 * INTERVAL;
+
+  private static final int LENGTH = Sequence.getBlockSize() + 7;
+
+  /**
+   * Creates a 20 Hz sequence. Each data point is the index of its time, so overlapping sequences
+   * agree on their data points.
+   */
+  private static Sequence createSequence(boolean summary, long startTime, int length)
+      throws Exception {
+    return createSequence(summary, null, startTime, length);
+  }
+
+  private static Sequence createSequence(boolean summary, DirectBlockPool directPool,
+      long startTime, int length) throws Exception {
+    Sequence sequence = new Sequence(summary, directPool);
+    sequence.setStartTime(startTime);
+    sequence.setSampleRate(20.0);
+    if (summary) {
+      sequence.extendSummary(length);
+    } else {
+      int[] series = new int[length];
+      for (int i = 0; i < length; i++) {
+        series[i] = (int) (startTime / INTERVAL) + i;
+      }
+      sequence.extend(series, 0, length);
+    }
+    return sequence;
+  }
+
+  /**
+   * Merges a source into a target both as summaries and keeping data points, and checks they
+   * end up with the same time range and number of data points.
+   */
+  private static void assertMergeMatches(long sourceStart, int sourceLength, long targetStart,
+      int targetLength) throws Exception {
+    Sequence source = createSequence(false, sourceStart, sourceLength);
+    Sequence target = createSequence(false, targetStart, targetLength);
+    Sequence sourceSummary = createSequence(true, sourceStart, sourceLength);
+    Sequence targetSummary = createSequence(true, targetStart, targetLength);
+
+    source.mergeInto(target);
+    sourceSummary.mergeInto(targetSummary);
+
+    assertEquals(target.getLength(), target.getSeries().length);
+    assertEquals(target.getLength(), targetSummary.getLength());
+    assertEquals(target.getStartTime(), targetSummary.getStartTime());
+    assertEquals(source.getLength(), sourceSummary.getLength());
+    assertEquals(target.getSummaryDigestBytes(), targetSummary.getDigestBytes());
+  }
+
+  @Test
+  public void mergeInto_SummaryContiguousAfterTarget() throws Exception {
+    assertMergeMatches(START + LENGTH * INTERVAL, LENGTH, START, LENGTH);
+  }
+
+  @Test
+  public void mergeInto_SummaryOverlappingTargetEnd() throws Exception {
+    assertMergeMatches(START + (LENGTH - 20) * INTERVAL, LENGTH, START, LENGTH);
+  }
+
+  @Test
+  public void mergeInto_SummaryBeforeTarget() throws Exception {
+    assertMergeMatches(START - 30 * INTERVAL, LENGTH, START, LENGTH);
+    assertMergeMatches(START - LENGTH * INTERVAL, LENGTH, START, LENGTH);
+  }
+
+  @Test
+  public void mergeInto_SummaryWithinTarget() throws Exception {
+    assertMergeMatches(START + 10 * INTERVAL, 20, START, LENGTH);
+  }
+
+  @Test
+  public void trimStart_SummaryKeepsSameDataPoints() throws Exception {
+    long[] startTimes = {START - INTERVAL, START, START + INTERVAL, START + 5 * INTERVAL / 2,
+        START + (LENGTH - 1) * INTERVAL, START + LENGTH * INTERVAL};
+    for (long startTime : startTimes) {
+      Sequence sequence = createSequence(false, START, LENGTH);
+      Sequence summary = createSequence(true, START, LENGTH);
+
+      sequence.trimStart(startTime);
+      summary.trimStart(startTime);
+
+      assertEquals(sequence.getLength(), summary.getLength());
+      assertEquals(sequence.getStartTime(), summary.getStartTime());
+    }
+  }
+
+  @Test
+  public void getSummaryDigestBytes_SameForSummaryAndDataPoints() throws Exception {
+    Sequence sequence = createSequence(false, START, LENGTH);
+    Sequence summary = createSequence(true, START, LENGTH);
+
+    assertEquals(summary.getDigestBytes(), sequence.getSummaryDigestBytes());
+    assertEquals(summary.getDigestBytes(), summary.getSummaryDigestBytes());
+    assertNotEquals(sequence.getDigestBytes(), sequence.getSummaryDigestBytes());
+    assertNotEquals(summary.getDigestBytes(),
+        createSequence(false, START, LENGTH - 1).getSummaryDigestBytes());
+  }
+
+  /**
+   * Fills every block a pool has on hand, so reused blocks no longer hold their old data points.
+   */
+  private static void overwritePool(DirectBlockPool directPool) throws Exception {
+    Sequence sequence = new Sequence(false, directPool);
+    sequence.setSampleRate(20.0);
+    int[] series = new int[10 * Sequence.getBlockSize()];
+    Arrays.fill(series, -1);
+    sequence.extend(series, 0, series.length);
+  }
+
+  @Test
+  public void mergeInto_DirectPoolKeepsSurvivorData() throws Exception {
+    DirectBlockPool directPool = new DirectBlockPool();
+    long sourceStart = START + (LENGTH - 20) * INTERVAL;
+    Sequence source = createSequence(false, directPool, sourceStart, 3 * LENGTH);
+    Sequence target = createSequence(false, directPool, START, LENGTH);
+    Sequence expected = createSequence(false, START, LENGTH);
+
+    target.trimStart(START + 3 * INTERVAL);
+    expected.trimStart(START + 3 * INTERVAL);
+    overwritePool(directPool);
+    source.mergeInto(target);
+    createSequence(false, sourceStart, 3 * LENGTH).mergeInto(expected);
+    overwritePool(directPool);
+
+    assertTrue(target.isDirect());
+    assertEquals(0, source.getLength());
+    assertEquals(expected.getStartTime(), target.getStartTime());
+    assertArrayEquals(expected.getSeries(), target.getSeries());
+  }
+
+  @Test
+  public void mergeInto_DirectPoolKeepsSurvivorDataWhenSwapping() throws Exception {
+    DirectBlockPool directPool = new DirectBlockPool();
+    Sequence source = createSequence(false, directPool, START - 30 * INTERVAL, LENGTH);
+    Sequence target = createSequence(false, directPool, START, 2 * LENGTH);
+    Sequence expected = createSequence(false, START, 2 * LENGTH);
+
+    source.mergeInto(target);
+    createSequence(false, START - 30 * INTERVAL, LENGTH).mergeInto(expected);
+    source.release();
+    overwritePool(directPool);
+
+    assertEquals(expected.getStartTime(), target.getStartTime());
+    assertArrayEquals(expected.getSeries(), target.getSeries());
+  }
+
+  private static Object roundTrip(Object object) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  @Test
+  public void serialization_DirectSequenceReadsAsHeapSequence() throws Exception {
+    Sequence direct = createSequence(false, new DirectBlockPool(), START, LENGTH);
+    Sequence heap = createSequence(false, START, LENGTH);
+
+    Sequence read = (Sequence) roundTrip(direct);
+
+    assertFalse(read.isDirect());
+    assertEquals(heap.getStartTime(), read.getStartTime());
+    assertEquals(heap.getSampleRate(), read.getSampleRate(), 0.0);
+    assertEquals(heap.getLength(), read.getLength());
+    assertArrayEquals(heap.getSeries(), read.getSeries());
+    assertEquals(heap.getDigestBytes(), read.getDigestBytes());
+
+    // The read Sequence keeps growing like any heap Sequence
+    read.extend(new int[]{1, 2, 3}, 0, 3);
+    heap.extend(new int[]{1, 2, 3}, 0, 3);
+    assertArrayEquals(heap.getSeries(), read.getSeries());
+  }
+
+  @Test
+  public void serialization_ExistingMetricDataStillReads() throws Exception {
+    MetricData data = (MetricData) ResourceManager
+        .loadCompressedObject("/java_serials/data/IU.ANMO.2015.206.MetricData.ser.gz", true);
+    ArrayList<DataSet> dataSets = data.getChannelData(new Channel("00", "LHZ"));
+
+    assertEquals(1, dataSets.size());
+    DataSet dataSet = dataSets.get(0);
+    assertFalse(dataSet.isSummary());
+    assertFalse(dataSet.isDirect());
+    assertTrue(dataSet.getLength() > Sequence.getBlockSize());
+    int[] series = dataSet.getSeries();
+    assertEquals(dataSet.getLength(), series.length);
+
+    DataSet read = (DataSet) roundTrip(dataSet);
+    assertEquals(dataSet.getStartTime(), read.getStartTime());
+    assertArrayEquals(series, read.getSeries());
+    assertEquals(dataSet.getDigestBytes(), read.getDigestBytes());
+  }
+}
@@ -7,6 +7,7 @@ import asl.metadata.meta_new.StationMeta;
 import asl.seedscan.database.MetricDatabaseMock;
 import asl.seedscan.metrics.MetricData;
 import asl.seedsplitter.DataSet;
+import asl.seedsplitter.IntSeries;
 import asl.seedsplitter.SeedSplitter;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -158,7 +159,7 @@ public abstract class ResourceManager { // NO_UCD (test only)
     File[] files = dir.listFiles((dir1, name) -> name.endsWith(".seed"));
 
     Hashtable<String, ArrayList<DataSet>> dataTable;
-    Hashtable<String, ArrayList<Integer>> qualityTable;
+    Hashtable<String, IntSeries> qualityTable;
     Hashtable<String, ArrayList<Blockette320>> calibrationTable;
 
     int timeout = 900;
@@ -2,6 +2,7 @@ package asl.timeseries;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
 import org.apache.commons.math3.complex.Complex;
 import org.junit.Test;
 
@@ -89,4 +90,49 @@ public class FFTUtilsTest {
     }
   }
 
+
+  @Test
+  public final void testRealFFTMatchesSingleSidedFFT() throws Exception {
+    Random random = new Random(42);
+    for (int size = 1; size <= 4096; size <<= 1) {
+      double[] input = new double[size];
+      for (int i = 0; i < size; i++) {
+        input[i] = Math.sin(i / 3.) + random.nextGaussian();
+      }
+
+      Complex[] expected = FFTUtils.singleSidedFFT(input);
+      double[] spectrum = new double[size + 2];
+      FFTUtils.realFFT(input, spectrum);
+
+      for (int k = 0; k < expected.length; k++) {
+        assertEquals(expected[k].getReal(), spectrum[2 * k], 1E-9);
+        assertEquals(expected[k].getImaginary(), spectrum[2 * k + 1], 1E-9);
+      }
+    }
+  }
+
+  @Test
+  public final void testInverseRealFFT() throws Exception {
+    Random random = new Random(43);
+    for (int size = 1; size <= 4096; size <<= 1) {
+      double[] input = new double[size];
+      for (int i = 0; i < size; i++) {
+        input[i] = random.nextGaussian();
+      }
+
+      double[] spectrum = new double[size + 2];
+      FFTUtils.realFFT(input, spectrum);
+      double[] output = new double[size];
+      FFTUtils.inverseRealFFT(spectrum, output);
+
+      for (int i = 0; i < size; i++) {
+        assertEquals(input[i], output[i], 1E-12);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testRealFFTUnpaddedData() throws Exception {
+    FFTUtils.realFFT(new double[5], new double[8]);
+  }
 }
@@ -0,0 +1,166 @@
+package asl.timeseries;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.Test;
+
+/**
+ * Compares PSD against the Complex[] based implementation it replaced. PSD now uses its own real
+ * FFT, so values agree to rounding relative to the largest power.
+ */
+public class PSDTest {
+
+  /**
+   * The Complex[] based PSD computation PSD used before its spectra were kept in double[].
+   */
+  private static Complex[] legacyPSD(double[] dataX, double[] dataY, double period) {
+    int dataSize = dataX.length;
+    int segmentSize = dataSize / 4;
+    int segmentOffsetSize = segmentSize / 4;
+    int paddedSegmentSize = FFTUtils.getPaddedSize(segmentSize);
+    int singleSideSize = paddedSegmentSize / 2 + 1;
+
+    Complex[] psd = new Complex[singleSideSize];
+    Arrays.fill(psd, Complex.ZERO);
+    double wss = 0.;
+    int numberSegmentsProcessed = 0;
+    int segmentLastIndex = segmentSize;
+    int offset = 0;
+
+    while (segmentLastIndex <= dataSize) {
+      double[] xseg = Arrays.copyOfRange(dataX, offset, segmentLastIndex);
+      TimeseriesUtils.detrend(xseg);
+      TimeseriesUtils.demean(xseg);
+      wss = TimeseriesUtils.costaper(xseg, .10);
+      Complex[] xfft = FFTUtils.singleSidedFFT(xseg);
+
+      double[] yseg = Arrays.copyOfRange(dataY, offset, segmentLastIndex);
+      TimeseriesUtils.detrend(yseg);
+      TimeseriesUtils.demean(yseg);
+      wss = TimeseriesUtils.costaper(yseg, .10);
+      Complex[] yfft = FFTUtils.singleSidedFFT(yseg);
+
+      for (int k = 0; k < singleSideSize; k++) {
+        psd[k] = psd[k].add(xfft[k].multiply(yfft[k].conjugate()));
+      }
+
+      numberSegmentsProcessed++;
+      offset += segmentOffsetSize;
+      segmentLastIndex += segmentOffsetSize;
+    }
+
+    double psdNormalization = 2.0 * period / (double) paddedSegmentSize;
+    double windowCorrection = wss / (double) segmentSize;
+    psdNormalization = psdNormalization / windowCorrection;
+    psdNormalization = psdNormalization / (double) numberSegmentsProcessed;
+    for (int k = 0; k < singleSideSize; k++) {
+      psd[k] = psd[k].multiply(psdNormalization);
+    }
+
+    Complex[] smooth = Arrays.copyOf(psd, singleSideSize);
+    for (int iw = 5; iw < singleSideSize - 5; iw++) {
+      Complex sumC = Complex.ZERO;
+      for (int k = iw - 5; k < iw + 5; k++) {
+        sumC = sumC.add(psd[k]);
+      }
+      smooth[iw] = sumC.divide(11.);
+    }
+    return smooth;
+  }
+
+  private static double[] randomData(long seed, int length) {
+    Random random = new Random(seed);
+    double[] data = new double[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = 1000 * Math.sin(i / 50.) + 0.01 * i + 100 * random.nextGaussian();
+    }
+    return data;
+  }
+
+  private static final double RELATIVE_ERROR = 1E-10;
+
+  private static void assertMatchesLegacy(double[] dataX, double[] dataY, double period) {
+    Complex[] expected = legacyPSD(dataX, dataY, period);
+    PSD psd = new PSD(dataX, dataY, period);
+    Complex[] actual = psd.getSpectrum();
+
+    double maxPower = 0;
+    for (Complex power : expected) {
+      maxPower = Math.max(maxPower, power.abs());
+    }
+    double delta = maxPower * RELATIVE_ERROR;
+
+    assertEquals(expected.length, actual.length);
+    assertEquals(expected.length, psd.getFreq().length);
+    for (int k = 0; k < expected.length; k++) {
+      assertEquals(expected[k].getReal(), actual[k].getReal(), delta);
+      assertEquals(expected[k].getImaginary(), actual[k].getImaginary(), delta);
+    }
+
+    double[] magnitude = psd.getMagnitude();
+    for (int k = 0; k < expected.length; k++) {
+      assertEquals(expected[k].abs(), magnitude[k], delta);
+    }
+  }
+
+  @Test
+  public final void testPowerSpectrumMatchesLegacy() throws Exception {
+    double[] data = randomData(1, 40000);
+    assertMatchesLegacy(data, data.clone(), 0.05);
+  }
+
+  @Test
+  public final void testCrossSpectrumMatchesLegacy() throws Exception {
+    // Segments are not a power of 2, so they are zero padded.
+    double[] dataX = randomData(2, 43201);
+    double[] dataY = randomData(3, 43201);
+    assertMatchesLegacy(dataX, dataY, 1.);
+  }
+
+  @Test
+  public final void testWorkspaceReuseAcrossSizes() throws Exception {
+    double[] small = randomData(4, 8640);
+    double[] large = randomData(5, 86400);
+    assertMatchesLegacy(large, randomData(6, 86400), 1.);
+    assertMatchesLegacy(small, small.clone(), 1.);
+    assertMatchesLegacy(large, large.clone(), 1.);
+  }
+
+  @Test
+  public final void testParallelSegmentsMatchSequential() throws Exception {
+    double[] dataX = randomData(8, 86400);
+    double[] dataY = randomData(9, 86400);
+    PSD sequential = new PSD(dataX, dataY, 1., Integer.MAX_VALUE);
+    PSD parallel;
+    PSD.setSegmentThreads(3);
+    try {
+      parallel = new PSD(dataX, dataY, 1., 1);
+    } finally {
+      PSD.setSegmentThreads(Runtime.getRuntime().availableProcessors());
+    }
+
+    double[] expected = sequential.getInterleavedSpectrum();
+    double[] actual = parallel.getInterleavedSpectrum();
+    double[] magnitude = sequential.getMagnitude();
+    double maxPower = 0;
+    for (double power : magnitude) {
+      maxPower = Math.max(maxPower, power);
+    }
+    assertArrayEquals(expected, actual, maxPower * RELATIVE_ERROR);
+    assertArrayEquals(sequential.getFreq(), parallel.getFreq(), 0.);
+  }
+
+  @Test
+  public final void testGetFreq() throws Exception {
+    double[] data = randomData(7, 4096);
+    PSD psd = new PSD(data, data, 0.5);
+    double[] freq = psd.getFreq();
+    assertEquals(1. / (1024 * 0.5), psd.getDeltaF(), 0.);
+    assertArrayEquals(new double[]{0., psd.getDeltaF(), 2 * psd.getDeltaF()},
+        Arrays.copyOf(freq, 3), 0.);
+  }
+}
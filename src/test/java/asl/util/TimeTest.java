@@ -1,11 +1,13 @@
 package asl.util;
 
+import static asl.util.Time.btimeToEpochMicroSeconds;
 import static asl.util.Time.btimeToLocalDateTime;
 import static asl.util.Time.calculateEpochMicroSeconds;
 import static asl.util.Time.calculateEpochMilliSeconds;
 import static asl.util.Time.decimillisecondsToNanoSeconds;
 import static org.junit.Assert.assertEquals;
 
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneOffset;
@@ -82,4 +84,20 @@ public class TimeTest {
     assertEquals(expected, dateTime);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testBtimeToEpochMicroSeconds_MatchesLocalDateTime() throws Exception {
+    int[][] btimes = {{2001, 182, 8, 30, 35, 1234}, {2000, 366, 23, 59, 59, 9999},
+        {2012, 182, 23, 59, 60, 0}, {1969, 1, 0, 0, 0, 1}, {1970, 1, 0, 0, 0, 0}};
+    for (int[] b : btimes) {
+      long expected = calculateEpochMicroSeconds(
+          btimeToLocalDateTime(b[0], b[1], b[2], b[3], b[4], b[5]));
+      assertEquals(expected, btimeToEpochMicroSeconds(b[0], b[1], b[2], b[3], b[4], b[5]));
+    }
+  }
+
+  @Test(expected = DateTimeException.class)
+  public void testBtimeToEpochMicroSeconds_Invalid_Day() throws Exception {
+    btimeToEpochMicroSeconds(2001, 366, 0, 0, 0, 0);
+  }
+
+}
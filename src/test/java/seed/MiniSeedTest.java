@@ -0,0 +1,304 @@
+package seed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.iris.dmc.seedcodec.B1000Types;
+import edu.iris.dmc.seedcodec.SteimException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class MiniSeedTest {
+
+  private static final int RECORD_LENGTH = 512;
+
+  private static final int DATA_OFFSET = 64;
+
+  private static final int FRAME_SIZE = 64;
+
+  /**
+   * Differences held by the 7 frames of a record, one per word.
+   */
+  private static final int MAX_DIFFERENCES = 7 * 15 - 2;
+
+  /**
+   * Word formats as {nibble, dnib, number of differences, bits per difference}.
+   */
+  private static final int[][] STEIM1_FORMATS = {{1, 0, 4, 8}, {2, 0, 2, 16}, {3, 0, 1, 32}};
+
+  private static final int[][] STEIM2_FORMATS = {{1, 0, 4, 8}, {2, 1, 1, 30}, {2, 2, 2, 15},
+      {2, 3, 3, 10}, {3, 0, 5, 6}, {3, 1, 6, 5}, {3, 2, 7, 4}};
+
+  /**
+   * Creates a 512 byte Steim record holding one difference per word. The first sample is 1 and
+   * each difference is 1, so the samples are 1, 2, 3 and so on.
+   *
+   * @param steim2 true for Steim2, false for Steim1
+   * @param swap true for a little endian record
+   * @param numSamples the number of samples in the header
+   * @param numDifferences the number of differences in the frames
+   */
+  static byte[] createRecord(boolean steim2, boolean swap, int numSamples, int numDifferences) {
+    ByteBuffer buf = ByteBuffer.allocate(RECORD_LENGTH);
+    buf.order(swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    buf.put(String.format("%06dD %-5s%-2s%-3s%-2s", 1, "ANMO", "00", "BHZ", "IU").getBytes());
+    // Start time 2016,100 00:00:00.0000
+    buf.putShort((short) 2016).putShort((short) 100).put((byte) 0).put((byte) 0).put((byte) 0)
+        .put((byte) 0).putShort((short) 0);
+    // Sample count, 20 Hz rate, flags, one blockette
+    buf.putShort((short) numSamples).putShort((short) 20).putShort((short) 1);
+    buf.put((byte) 0).put((byte) 0).put((byte) 0).put((byte) 1);
+    buf.putInt(0).putShort((short) DATA_OFFSET).putShort((short) 48);
+    // Blockette 1000
+    buf.putShort((short) 1000).putShort((short) 0);
+    buf.put((byte) (steim2 ? B1000Types.STEIM2 : B1000Types.STEIM1)).put((byte) (swap ? 0 : 1))
+        .put((byte) 9).put((byte) 0);
+
+    int difference = 0;
+    for (int frame = 0; frame < (RECORD_LENGTH - DATA_OFFSET) / FRAME_SIZE; frame++) {
+      int frameOffset = DATA_OFFSET + frame * FRAME_SIZE;
+      int nibbles = 0;
+      for (int word = (frame == 0) ? 3 : 1; word < 16 && difference < numDifferences; word++) {
+        // Steim1 nibble 3 is one 32 bit difference, Steim2 nibble 2 with dnib 1 one 30 bit one
+        nibbles |= (steim2 ? 2 : 3) << (30 - word * 2);
+        buf.putInt(frameOffset + word * 4, steim2 ? (1 << 30) | 1 : 1);
+        difference++;
+      }
+      buf.putInt(frameOffset, nibbles);
+    }
+    buf.putInt(DATA_OFFSET + 4, 1);
+    buf.putInt(DATA_OFFSET + 8, numDifferences);
+    return buf.array();
+  }
+
+  /**
+   * Creates a 512 byte Steim record of random differences in random word formats, leaving some
+   * words empty.
+   *
+   * @param samples receives the samples the frames hold
+   * @return the record, with no samples in its header, see {@link #setNumSamples(byte[], boolean,
+   * int)}
+   */
+  static byte[] createRandomRecord(boolean steim2, boolean swap, Random random,
+      List<Integer> samples) {
+    byte[] record = createRecord(steim2, swap, 0, 0);
+    ByteBuffer buf = ByteBuffer.wrap(record)
+        .order(swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    int[][] formats = steim2 ? STEIM2_FORMATS : STEIM1_FORMATS;
+    int sample = random.nextInt(2000) - 1000;
+    for (int frame = 0; frame < (RECORD_LENGTH - DATA_OFFSET) / FRAME_SIZE; frame++) {
+      int frameOffset = DATA_OFFSET + frame * FRAME_SIZE;
+      int nibbles = 0;
+      for (int word = (frame == 0) ? 3 : 1; word < 16; word++) {
+        int index = frameOffset + word * 4;
+        if (random.nextInt(20) == 0) {
+          buf.putInt(index, 0);
+          continue;
+        }
+        int[] format = formats[random.nextInt(formats.length)];
+        int bits = format[3];
+        int[] differences = new int[format[2]];
+        for (int i = 0; i < differences.length; i++) {
+          differences[i] = (bits == 32) ? random.nextInt()
+              : random.nextInt(1 << bits) - (1 << (bits - 1));
+          if (samples.isEmpty()) {
+            // The first difference is replaced by the integration constant X(0)
+            buf.putInt(DATA_OFFSET + 4, sample);
+          } else {
+            sample += differences[i];
+          }
+          samples.add(sample);
+        }
+        nibbles |= format[0] << (30 - word * 2);
+        if (format[0] == 1) {
+          for (int i = 0; i < 4; i++) {
+            buf.put(index + i, (byte) differences[i]);
+          }
+        } else if (!steim2 && format[0] == 2) {
+          buf.putShort(index, (short) differences[0]);
+          buf.putShort(index + 2, (short) differences[1]);
+        } else if (!steim2) {
+          buf.putInt(index, differences[0]);
+        } else {
+          int value = format[1] << 30;
+          int shift = 32 - differences.length * bits;
+          for (int difference : differences) {
+            value |= (difference & ((1 << bits) - 1)) << (32 - shift - bits);
+            shift += bits;
+          }
+          buf.putInt(index, value);
+        }
+      }
+      buf.putInt(frameOffset, nibbles);
+    }
+    buf.putInt(DATA_OFFSET + 8, sample);
+    return record;
+  }
+
+  /**
+   * Sets the number of samples in the header of a record.
+   */
+  static void setNumSamples(byte[] record, boolean swap, int numSamples) {
+    ByteBuffer.wrap(record).order(swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN)
+        .putShort(30, (short) numSamples);
+  }
+
+  /**
+   * Asserts that {@link MiniSeed#checkDecomp()} rejects the record exactly when {@link
+   * MiniSeed#decomp(SampleSink)} does, and counts the samples passed to the sink otherwise.
+   *
+   * @return true if the record was accepted
+   */
+  private static boolean assertCheckMatchesDecomp(byte[] record) throws Exception {
+    MiniSeed ms = new MiniSeed(record);
+    int checked;
+    try {
+      checked = ms.checkDecomp();
+    } catch (SteimException e) {
+      checked = -2;
+    }
+    List<Integer> samples = new ArrayList<>();
+    int decompressed;
+    try {
+      decompressed = ms.decomp(samples::add);
+    } catch (SteimException e) {
+      decompressed = -2;
+    }
+    assertEquals(checked, decompressed);
+    if (decompressed < 0) {
+      assertTrue(samples.isEmpty());
+      return false;
+    }
+    assertEquals(decompressed, samples.size());
+    for (int i = 0; i < samples.size(); i++) {
+      assertEquals(i + 1, (int) samples.get(i));
+    }
+    return true;
+  }
+
+  @Test
+  public void checkDecomp_AcceptsCompleteRecords() throws Exception {
+    for (boolean steim2 : new boolean[]{false, true}) {
+      for (boolean swap : new boolean[]{false, true}) {
+        assertTrue(assertCheckMatchesDecomp(createRecord(steim2, swap, 40, 40)));
+        assertTrue(assertCheckMatchesDecomp(createRecord(steim2, swap, 30, 40)));
+        assertTrue(assertCheckMatchesDecomp(
+            createRecord(steim2, swap, MAX_DIFFERENCES, MAX_DIFFERENCES)));
+        assertTrue(assertCheckMatchesDecomp(createRecord(steim2, swap, 0, 0)));
+      }
+    }
+  }
+
+  @Test
+  public void checkDecomp_RejectsMoreSamplesThanFrames() throws Exception {
+    for (boolean steim2 : new boolean[]{false, true}) {
+      for (boolean swap : new boolean[]{false, true}) {
+        assertEquals(false, assertCheckMatchesDecomp(createRecord(steim2, swap, 41, 40)));
+        assertEquals(false, assertCheckMatchesDecomp(
+            createRecord(steim2, swap, MAX_DIFFERENCES + 1, MAX_DIFFERENCES)));
+      }
+    }
+  }
+
+  @Test
+  public void checkDecomp_RejectsInvalidDnib() throws Exception {
+    for (boolean swap : new boolean[]{false, true}) {
+      byte[] record = createRecord(true, swap, 40, 40);
+      ByteBuffer buf = ByteBuffer.wrap(record)
+          .order(swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+      // Nibble 2 with dnib 0 in the second frame
+      buf.putInt(DATA_OFFSET + FRAME_SIZE + 8, 1);
+      assertEquals(false, assertCheckMatchesDecomp(record));
+    }
+  }
+
+  /**
+   * Decompresses a record with {@link MiniSeed#decomp(SampleSink)} and with the seedcodec decoders
+   * behind {@link MiniSeed#decomp()}, and asserts they return the same samples or both reject it.
+   *
+   * @return the samples, null if the record was rejected
+   */
+  private static int[] assertDecompMatchesSeedcodec(byte[] record) throws Exception {
+    MiniSeed ms = new MiniSeed(record);
+    int[] expected;
+    try {
+      expected = ms.decomp();
+    } catch (SteimException e) {
+      expected = null;
+    }
+    List<Integer> samples = new ArrayList<>();
+    int[] actual;
+    try {
+      ms.decomp(samples::add);
+      actual = samples.stream().mapToInt(Integer::intValue).toArray();
+    } catch (SteimException e) {
+      assertTrue(samples.isEmpty());
+      actual = null;
+    }
+    assertArrayEquals(expected, actual);
+    return actual;
+  }
+
+  @Test
+  public void decomp_MatchesSeedcodecForRandomRecords() throws Exception {
+    Random random = new Random(24);
+    for (boolean steim2 : new boolean[]{false, true}) {
+      for (boolean swap : new boolean[]{false, true}) {
+        for (int i = 0; i < 200; i++) {
+          List<Integer> samples = new ArrayList<>();
+          byte[] record = createRandomRecord(steim2, swap, random, samples);
+          int numSamples = (i % 2 == 0) ? samples.size() : 1 + random.nextInt(samples.size());
+          setNumSamples(record, swap, numSamples);
+
+          int[] decompressed = assertDecompMatchesSeedcodec(record);
+          assertEquals(numSamples, decompressed.length);
+          for (int j = 0; j < numSamples; j++) {
+            assertEquals((int) samples.get(j), decompressed[j]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void decomp_MatchesSeedcodecForMoreSamplesThanFrames() throws Exception {
+    Random random = new Random(24);
+    for (boolean steim2 : new boolean[]{false, true}) {
+      for (boolean swap : new boolean[]{false, true}) {
+        List<Integer> samples = new ArrayList<>();
+        byte[] record = createRandomRecord(steim2, swap, random, samples);
+        setNumSamples(record, swap, samples.size() + 1);
+        assertEquals(null, assertDecompMatchesSeedcodec(record));
+        setNumSamples(record, swap, samples.size() + 100);
+        assertEquals(null, assertDecompMatchesSeedcodec(record));
+      }
+    }
+  }
+
+  @Test
+  public void decomp_MatchesSeedcodecForInvalidDnib() throws Exception {
+    Random random = new Random(24);
+    // Nibble 2 with dnib 0 and nibble 3 with dnib 3
+    int[][] invalid = {{2, 0}, {3, 3}};
+    for (boolean swap : new boolean[]{false, true}) {
+      for (int[] word : invalid) {
+        List<Integer> samples = new ArrayList<>();
+        byte[] record = createRandomRecord(true, swap, random, samples);
+        setNumSamples(record, swap, samples.size());
+        ByteBuffer buf = ByteBuffer.wrap(record)
+            .order(swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        // Word 5 of the second frame
+        int frameOffset = DATA_OFFSET + FRAME_SIZE;
+        int nibbles = buf.getInt(frameOffset) & ~(3 << 20);
+        buf.putInt(frameOffset, nibbles | (word[0] << 20));
+        buf.putInt(frameOffset + 5 * 4, (word[1] << 30) | 1);
+        assertEquals(null, assertDecompMatchesSeedcodec(record));
+      }
+    }
+  }
+}